@@ -0,0 +1,86 @@
+package com.latte.orm.benchmarks;
+/**
+ * @author hikmatullohhari
+ */
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.latte.orm.ColumnarModel;
+import com.latte.orm.GenericModel;
+
+// Generated records of the "narrow" and "wide" schemas. Values are derived from the id so every run reads the same data,
+// files are written once in java.io.tmpdir (or -Dlatte.benchmarks.dir) and reused by the next runs
+public class Datasets {
+	public static final int CATEGORIES = 100;
+	
+	public static String name(int id){
+		return "name " + id;
+	}
+	
+	public static String category(int id){
+		return "c" + (id % CATEGORIES);
+	}
+	
+	// From 0 to 999.9, spread over the ids
+	public static double price(int id){
+		return ((id * 7919L) % 10000) / 10.0;
+	}
+	
+	public static Class<?> entityClass(String schema){
+		return schema.equals("wide") ? WideRecord.class : NarrowRecord.class;
+	}
+	
+	public static Object record(String schema, int id){
+		return schema.equals("wide") ? new WideRecord(id) : new NarrowRecord(id);
+	}
+	
+	// Records with the ids from firstId
+	public static List<Object> records(String schema, int firstId, int count){
+		List<Object> records = new ArrayList<Object>(count);
+		for(int id=firstId; id<firstId+count; id++){
+			records.add(record(schema, id));
+		}
+		return records;
+	}
+	
+	public static GenericModel<Object> model(String schema, String store, int rows){
+		List<Object> records = records(schema, 0, rows);
+		if(store.equals("columnar")){
+			return new ColumnarModel<Object>(entityClass(schema), records);
+		}
+		return new GenericModel<Object>(entityClass(schema), records);
+	}
+	
+	private static File dir(){
+		File dir = new File(System.getProperty("latte.benchmarks.dir", System.getProperty("java.io.tmpdir")));
+		dir.mkdirs();
+		return dir;
+	}
+	
+	// File of rows records, extension is csv, ser or bin
+	public static String file(String schema, int rows, String extension){
+		File dir = dir();
+		File file = new File(dir, "latte-" + schema + "-" + rows + "." + extension);
+		if(!file.exists()){
+			GenericModel<Object> model = new GenericModel<Object>(entityClass(schema), records(schema, 0, rows));
+			if(extension.equals("csv")){
+				model.exportToCSV(file.getPath());
+			} else if(extension.equals("ser")){
+				model.exportToSER(file.getPath());
+			} else {
+				model.exportToBinary(file.getPath());
+			}
+			if(model.getErrors().hasErrors()){
+				throw new IllegalStateException("Cannot write " + file + ": " + model.getErrors().getMessages());
+			}
+		}
+		return file.getPath();
+	}
+	
+	// A new file in the directory of the datasets, for the exports
+	public static String output(String extension){
+		File dir = dir();
+		return new File(dir, "latte-export." + extension).getPath();
+	}
+}
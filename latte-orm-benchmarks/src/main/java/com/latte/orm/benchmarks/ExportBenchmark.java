@@ -0,0 +1,59 @@
+package com.latte.orm.benchmarks;
+/**
+ * @author hikmatullohhari
+ */
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.latte.orm.GenericModel;
+
+// Writing every record of the model, each export replaces the same file
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportBenchmark {
+	@Param({"10000", "100000", "1000000"})
+	public int rows;
+	
+	@Param({"narrow", "wide"})
+	public String schema;
+	
+	@Param({"generic", "columnar"})
+	public String store;
+	
+	private GenericModel<Object> model;
+	
+	@Setup
+	public void setUp(){
+		model = Datasets.model(schema, store, rows);
+	}
+	
+	@Benchmark
+	public void csv(){
+		model.exportToCSV(Datasets.output("csv"));
+	}
+	
+	@Benchmark
+	public void ser(){
+		model.exportToSER(Datasets.output("ser"));
+	}
+	
+	@Benchmark
+	public void binary(){
+		model.exportToBinary(Datasets.output("bin"));
+	}
+}
@@ -0,0 +1,76 @@
+package com.latte.orm.benchmarks;
+/**
+ * @author hikmatullohhari
+ */
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.latte.orm.BinaryModel;
+import com.latte.orm.CSVModel;
+import com.latte.orm.ColumnarModel;
+import com.latte.orm.Model;
+import com.latte.orm.SERModel;
+
+// startMapping() of each file format, the files are generated by the first run
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+	@Param({"10000", "100000", "1000000"})
+	public int rows;
+	
+	@Param({"narrow", "wide"})
+	public String schema;
+	
+	private Class<?> entityClass;
+	private String csv;
+	private String ser;
+	private String bin;
+	
+	@Setup
+	public void setUp(){
+		entityClass = Datasets.entityClass(schema);
+		csv = Datasets.file(schema, rows, "csv");
+		ser = Datasets.file(schema, rows, "ser");
+		bin = Datasets.file(schema, rows, "bin");
+	}
+	
+	@Benchmark
+	public Model<Object> csv(){
+		return new CSVModel<Object>(entityClass, csv).startMapping();
+	}
+	
+	@Benchmark
+	public Model<Object> csvParallel(){
+		return new CSVModel<Object>(entityClass, csv).parallel(Runtime.getRuntime().availableProcessors()).startMapping();
+	}
+	
+	@Benchmark
+	public Model<Object> ser(){
+		return new SERModel<Object>(entityClass, ser).startMapping();
+	}
+	
+	@Benchmark
+	public Model<Object> binary(){
+		return new BinaryModel<Object>(entityClass, bin).startMapping();
+	}
+	
+	@Benchmark
+	public Model<Object> columnar(){
+		return new ColumnarModel<Object>(entityClass, bin).startMapping();
+	}
+}
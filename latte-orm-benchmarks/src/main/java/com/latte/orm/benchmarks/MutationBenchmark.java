@@ -0,0 +1,73 @@
+package com.latte.orm.benchmarks;
+/**
+ * @author hikmatullohhari
+ */
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.latte.orm.GenericModel;
+
+// insert() checking the @PrimaryKey and @Unique constraints, and the batch operations. Every iteration starts from
+// a new model of rows records, the inserted ids follow the last one so no insert is refused
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MutationBenchmark {
+	public static final int BATCH = 1000;
+	
+	@Param({"10000", "100000", "1000000"})
+	public int rows;
+	
+	@Param({"narrow", "wide"})
+	public String schema;
+	
+	@Param({"generic", "columnar"})
+	public String store;
+	
+	private GenericModel<Object> model;
+	private int nextId;
+	private List<Object> updates;
+	
+	@Setup(Level.Iteration)
+	public void setUp(){
+		model = Datasets.model(schema, store, rows);
+		nextId = rows;
+		updates = Datasets.records(schema, rows / 2, Math.min(BATCH, rows / 2));
+	}
+	
+	@Benchmark
+	public GenericModel<Object> insert(){
+		model.insert(Datasets.record(schema, nextId++));
+		return model;
+	}
+	
+	@Benchmark
+	public GenericModel<Object> insertAll(){
+		model.insertAll(Datasets.records(schema, nextId, BATCH));
+		nextId += BATCH;
+		return model;
+	}
+	
+	// Same values, the records are replaced through the @PrimaryKey index
+	@Benchmark
+	public GenericModel<Object> updateAll(){
+		model.updateAll(updates);
+		return model;
+	}
+}
@@ -0,0 +1,55 @@
+package com.latte.orm.benchmarks;
+/**
+ * @author hikmatullohhari
+ */
+import java.io.Serializable;
+
+import com.latte.orm.annotations.PrimaryKey;
+import com.latte.orm.annotations.Unique;
+
+// Four columns, the columns read by the queries of every schema
+public class NarrowRecord implements Serializable {
+	private static final long serialVersionUID = 1L;
+	
+	@PrimaryKey
+	private int id;
+	@Unique
+	private String name;
+	private String category;
+	private double price;
+	
+	public NarrowRecord(){
+	}
+	
+	public NarrowRecord(int id){
+		this.id = id;
+		this.name = Datasets.name(id);
+		this.category = Datasets.category(id);
+		this.price = Datasets.price(id);
+	}
+	
+	public int getId() {
+		return id;
+	}
+	public void setId(int id) {
+		this.id = id;
+	}
+	public String getName() {
+		return name;
+	}
+	public void setName(String name) {
+		this.name = name;
+	}
+	public String getCategory() {
+		return category;
+	}
+	public void setCategory(String category) {
+		this.category = category;
+	}
+	public double getPrice() {
+		return price;
+	}
+	public void setPrice(double price) {
+		this.price = price;
+	}
+}
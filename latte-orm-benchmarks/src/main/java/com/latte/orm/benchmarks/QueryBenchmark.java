@@ -0,0 +1,113 @@
+package com.latte.orm.benchmarks;
+/**
+ * @author hikmatullohhari
+ */
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.latte.orm.GenericModel;
+import com.latte.orm.Model.Operator;
+
+// where() with each Operator, chained conditions and lookups, on the records of a GenericModel or a ColumnarModel
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+	@Param({"10000", "100000", "1000000"})
+	public int rows;
+	
+	@Param({"narrow", "wide"})
+	public String schema;
+	
+	@Param({"generic", "columnar"})
+	public String store;
+	
+	private GenericModel<Object> model;
+	private String id;
+	
+	// A column and a value for each Operator, only the where benchmarks run once per Operator
+	@State(Scope.Benchmark)
+	public static class Condition {
+		@Param({"CONTAINS", "NOT_CONTAINS", "EQUALS", "NOT_EQUALS", "EQUALS_IGNORE_CASE", "NOT_EQUALS_IGNORE_CASE", "BETWEEN", "NOT_BETWEEN", "IN", "NOT_IN"})
+		public Operator operator;
+		
+		private String column;
+		private String value;
+		
+		@Setup
+		public void setUp(){
+			switch(operator){
+				case CONTAINS:
+				case NOT_CONTAINS:
+					column = "name";
+					value = "99";
+					break;
+				case EQUALS:
+				case NOT_EQUALS:
+					column = "category";
+					value = "c7";
+					break;
+				case EQUALS_IGNORE_CASE:
+				case NOT_EQUALS_IGNORE_CASE:
+					column = "category";
+					value = "C7";
+					break;
+				case BETWEEN:
+				case NOT_BETWEEN:
+					column = "price";
+					value = "100 and 200";
+					break;
+				default:
+					column = "category";
+					value = "c1,c2,c3,c4,c5";
+			}
+		}
+	}
+	
+	@Setup
+	public void setUp(){
+		model = Datasets.model(schema, store, rows);
+		id = String.valueOf(rows / 2);
+	}
+	
+	@Benchmark
+	public List<Object> where(Condition condition){
+		return model.where(condition.column, condition.operator, condition.value).toList();
+	}
+	
+	// First match only
+	@Benchmark
+	public Object whereSingle(Condition condition){
+		return model.where(condition.column, condition.operator, condition.value).toSingle();
+	}
+	
+	// (price between and category equals) or name contains
+	@Benchmark
+	public List<Object> chained(){
+		return model.where("price", Operator.BETWEEN, "100 and 200")
+				.andWhere("category", Operator.EQUALS, "c7")
+				.orWhere("name", Operator.CONTAINS, "999")
+				.toList();
+	}
+	
+	// Through the @PrimaryKey index
+	@Benchmark
+	public Object primaryKey(){
+		return model.where("id", Operator.EQUALS, id).toSingle();
+	}
+}
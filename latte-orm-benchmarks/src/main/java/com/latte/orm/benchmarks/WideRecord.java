@@ -0,0 +1,185 @@
+package com.latte.orm.benchmarks;
+/**
+ * @author hikmatullohhari
+ */
+import java.io.Serializable;
+
+import com.latte.orm.annotations.PrimaryKey;
+import com.latte.orm.annotations.Unique;
+
+// Twenty columns, the first four are those of NarrowRecord
+public class WideRecord implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private static final String[] REGIONS = {"North", "South", "East", "West", "Central"};
+	private static final String[] COLORS = {"red", "green", "blue", "black", "white", "grey"};
+	
+	@PrimaryKey
+	private int id;
+	@Unique
+	private String name;
+	private String category;
+	private double price;
+	private int quantity;
+	private int rating;
+	private int warehouse;
+	private int shelf;
+	private double weight;
+	private double width;
+	private double height;
+	private double depth;
+	private float discount;
+	private float tax;
+	private String code;
+	private String supplier;
+	private String region;
+	private String color;
+	private String unit;
+	private String description;
+	
+	public WideRecord(){
+	}
+	
+	public WideRecord(int id){
+		this.id = id;
+		this.name = Datasets.name(id);
+		this.category = Datasets.category(id);
+		this.price = Datasets.price(id);
+		this.quantity = id % 500;
+		this.rating = id % 5;
+		this.warehouse = id % 40;
+		this.shelf = id % 1000;
+		this.weight = (id % 2000) / 100.0;
+		this.width = (id % 300) / 10.0;
+		this.height = (id % 200) / 10.0;
+		this.depth = (id % 100) / 10.0;
+		this.discount = (id % 50) / 100f;
+		this.tax = (id % 3) * 0.05f;
+		this.code = "SKU-" + Integer.toHexString(id);
+		this.supplier = "supplier " + (id % 250);
+		this.region = REGIONS[id % REGIONS.length];
+		this.color = COLORS[id % COLORS.length];
+		this.unit = (id % 2 == 0) ? "pcs" : "kg";
+		this.description = "Item " + id + " of " + Datasets.category(id);
+	}
+	
+	public int getId() {
+		return id;
+	}
+	public void setId(int id) {
+		this.id = id;
+	}
+	public String getName() {
+		return name;
+	}
+	public void setName(String name) {
+		this.name = name;
+	}
+	public String getCategory() {
+		return category;
+	}
+	public void setCategory(String category) {
+		this.category = category;
+	}
+	public double getPrice() {
+		return price;
+	}
+	public void setPrice(double price) {
+		this.price = price;
+	}
+	public int getQuantity() {
+		return quantity;
+	}
+	public void setQuantity(int quantity) {
+		this.quantity = quantity;
+	}
+	public int getRating() {
+		return rating;
+	}
+	public void setRating(int rating) {
+		this.rating = rating;
+	}
+	public int getWarehouse() {
+		return warehouse;
+	}
+	public void setWarehouse(int warehouse) {
+		this.warehouse = warehouse;
+	}
+	public int getShelf() {
+		return shelf;
+	}
+	public void setShelf(int shelf) {
+		this.shelf = shelf;
+	}
+	public double getWeight() {
+		return weight;
+	}
+	public void setWeight(double weight) {
+		this.weight = weight;
+	}
+	public double getWidth() {
+		return width;
+	}
+	public void setWidth(double width) {
+		this.width = width;
+	}
+	public double getHeight() {
+		return height;
+	}
+	public void setHeight(double height) {
+		this.height = height;
+	}
+	public double getDepth() {
+		return depth;
+	}
+	public void setDepth(double depth) {
+		this.depth = depth;
+	}
+	public float getDiscount() {
+		return discount;
+	}
+	public void setDiscount(float discount) {
+		this.discount = discount;
+	}
+	public float getTax() {
+		return tax;
+	}
+	public void setTax(float tax) {
+		this.tax = tax;
+	}
+	public String getCode() {
+		return code;
+	}
+	public void setCode(String code) {
+		this.code = code;
+	}
+	public String getSupplier() {
+		return supplier;
+	}
+	public void setSupplier(String supplier) {
+		this.supplier = supplier;
+	}
+	public String getRegion() {
+		return region;
+	}
+	public void setRegion(String region) {
+		this.region = region;
+	}
+	public String getColor() {
+		return color;
+	}
+	public void setColor(String color) {
+		this.color = color;
+	}
+	public String getUnit() {
+		return unit;
+	}
+	public void setUnit(String unit) {
+		this.unit = unit;
+	}
+	public String getDescription() {
+		return description;
+	}
+	public void setDescription(String description) {
+		this.description = description;
+	}
+}
@@ -0,0 +1,100 @@
+package com.latte.orm;
+/**
+ * @author hikmatullohhari
+ */
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.latte.orm.binary.BinaryFile;
+import com.latte.orm.binary.ColumnBlock;
+import com.latte.orm.binary.ColumnType;
+import com.latte.orm.helpers.EntityMetadata.Column;
+import com.latte.orm.helpers.Helper;
+import com.latte.orm.helpers.ModelError.Kind;
+import com.latte.orm.metrics.Operation;
+
+// Records stored column by column in a .bin file written by exportToBinary()
+public class BinaryModel<T> extends GenericModel<T>{
+	private boolean isCompressed = false;
+	
+	public BinaryModel(Class<?> entityClass, String fileLocation) {
+		super(entityClass, fileLocation);
+	}
+	
+	// Deflate the blocks written by save() and exportToBinary()
+	public BinaryModel<T> compressed(boolean isCompressed){
+		this.isCompressed = isCompressed;
+		return this;
+	}
+	
+	@Override
+	public Model<T> startMapping(){
+		long start = System.nanoTime();
+		File binFile = new File(Helper.filePath(fileLocation)+Helper.fileName(fileLocation)+((Helper.fileExtension(fileLocation) == "") ? "" : ".bin"));
+		try {
+			List<ColumnBlock> blocks = BinaryFile.read(binFile);
+			metrics.bytesRead(binFile.length());
+			// Bind every stored column to the setter of its field
+			List<ColumnBlock> boundBlocks = new ArrayList<ColumnBlock>();
+			List<Column> boundColumns = new ArrayList<Column>();
+			for(ColumnBlock block: blocks){
+				Column column = metadata.getColumn(block.getName());
+				if(column == null || column.getSetter() == null){
+					continue;
+				}
+				if(ColumnType.of(column.getType()) != block.getType()){
+					errors.add(Kind.ENTITY, "[Error] Field ["+column.getName()+"] is "+column.getType().getSimpleName()+" but stored as "+block.getType()+".");
+					setRecords(new ArrayList<T>());
+					return this;
+				}
+				boundBlocks.add(block);
+				boundColumns.add(column);
+			}
+			int rowCount = blocks.isEmpty() ? 0 : blocks.get(0).size();
+			List<T> mapped = new ArrayList<T>(rowCount);
+			for(int row=0; row<rowCount; row++){
+				@SuppressWarnings("unchecked")
+				T newEntityClassInstance = (T) metadata.newInstance();
+				for(int i=0; i<boundBlocks.size(); i++){
+					Object value = boundBlocks.get(i).get(row);
+					if(value != null || !boundColumns.get(i).getType().isPrimitive()){
+						boundColumns.get(i).getSetter().set(newEntityClassInstance, value);
+					}
+				}
+				mapped.add(newEntityClassInstance);
+			}
+			setRecords(mapped);
+		} catch (NoSuchFileException e) {
+			errors.add(Kind.FILE, "[Error] File "+binFile+" not found.");
+		} catch (InstantiationException e) {
+			errors.add(Kind.ENTITY, "[Error] Can't instantiate class "+entityClass.getSimpleName()+".class because empty constructor is not defined in that class.");
+		} catch (IllegalAccessException e) {
+			errors.add(e);
+		} catch (InvocationTargetException e) {
+			errors.add(e);
+		} catch (IOException e) { // unreadable, truncated or corrupt
+			errors.add(Kind.FILE, "[Error] File "+binFile+" can't be read, "+e.getMessage()+".");
+		} finally {
+			changed(Operation.MAPPING, start);
+		}
+		return this;
+	}
+	
+	@Override
+	public void exportToBinary(String fileLocation){
+		exportToBinary(fileLocation, isCompressed);
+	}
+	
+	@Override
+	public void save(){
+		if(!errors.hasErrors()){
+			exportToBinary(fileLocation, isCompressed);
+		} else {
+			errors.add(Kind.FAILED, "[Error] errors found, save failed.");
+		}
+	}
+}
@@ -2,127 +2,963 @@ package com.latte.orm;
 /**
  * @author hikmatullohhari
  */
-import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
-import java.lang.annotation.Annotation;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
 
-import com.latte.orm.annotations.OnMapping;
-import com.latte.orm.helpers.ErrorsHelper;
+import com.latte.orm.convert.FieldConverter;
+import com.latte.orm.csv.CSVTokenizer;
+import com.latte.orm.csv.Journal;
+import com.latte.orm.csv.MappedCSVReader;
+import com.latte.orm.csv.RecordReader;
+import com.latte.orm.helpers.Accessor;
+import com.latte.orm.helpers.EntityMetadata.Column;
 import com.latte.orm.helpers.Helper;
-import com.latte.orm.helpers.ReflectionHelper;
+import com.latte.orm.helpers.ModelError.Kind;
+import com.latte.orm.index.UniqueIndex;
+import com.latte.orm.metrics.Operation;
+import com.latte.orm.query.Criteria;
 
 public class CSVModel<T> extends GenericModel<T>{
-	private String delimiter = ","+REGEX_ESCAPE_QUOTE;
+	private static final long MIN_CHUNK_SIZE = 1 << 20;
+	private static final String JOURNAL = ".journal";
+	private static final String ROTATED_JOURNAL = ".journal.old";
+	private static final String COMPACTED_FILE = ".compacting";
+	private static final int CHECKED_BYTES = 4096;
+	
+	private String delimiter = ",";
+	private boolean isMemoryMapped = false;
+	private boolean isJournaled = false;
+	private boolean isSynced = false;
+	private long compactionSize = 0;
+	private Journal journal; // opened by startMapping() when journaled
+	private Column primaryKey;
+	private Accessor[] journalGetters;
+	private Thread compaction;
+	private Set<String> projection; // set by columns(), null for every column
+	private Query<T> filter; // set by filter()
+	private Set<String> mappedColumns; // columns set by the last mapping, null for every column
+	private Tail tail; // where the last mapping or refresh() ended, null if the mapping failed
+	private long readLimit = -1; // byte offset where the mapping of remap() stops, -1 for the end of the file
 	
 	public CSVModel(Class<?> entityClass, String fileLocation) {
 		super(entityClass, fileLocation);
 	}
 	
+	// Plain text, not a regular expression. Escaped characters of a regular expression, as "\\|" or "\\t", are read as
+	// those characters since delimiter() used to take one, other regular expressions are rejected
 	public CSVModel<T> delimiter(String delimiter){
-		this.delimiter = delimiter +REGEX_ESCAPE_QUOTE;
+		String text = unescaped(delimiter);
+		if(text == null){
+			errors.add(Kind.USAGE, "[Error] Delimiter ["+delimiter+"] is a regular expression, delimiter() takes plain text as \";\" or \"||\".");
+			return this;
+		}
+		if(text.isEmpty() || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0){
+			errors.add(Kind.USAGE, "[Error] Delimiter ["+delimiter+"] can't be empty or hold a double quote or a line break.");
+			return this;
+		}
+		this.delimiter = text;
+		return this;
+	}
+	
+	// Text of a delimiter whose backslashes escape a symbol or a tab as in a regular expression, null for another escape.
+	// A lone backslash was never a valid regular expression, it is kept as it is
+	private static String unescaped(String delimiter){
+		if(delimiter == null || delimiter.indexOf('\\') < 0 || delimiter.equals("\\")){
+			return (delimiter == null) ? "" : delimiter;
+		}
+		StringBuilder text = new StringBuilder(delimiter.length());
+		for(int i=0; i<delimiter.length(); i++){
+			char c = delimiter.charAt(i);
+			if(c != '\\'){
+				text.append(c);
+				continue;
+			}
+			char escaped = (i + 1 < delimiter.length()) ? delimiter.charAt(++i) : 0;
+			if(escaped == 't'){
+				text.append('\t');
+			} else if(escaped != 0 && !Character.isLetterOrDigit(escaped)){
+				text.append(escaped);
+			} else {
+				return null;
+			}
+		}
+		return text.toString();
+	}
+	
+	// Read the file through a memory mapping instead of a Reader, only the columns bound to a setter are decoded.
+	// The file stays mapped until the mapping is garbage collected, on Windows it can't be overwritten meanwhile
+	public CSVModel<T> memoryMapped(boolean isMemoryMapped){
+		this.isMemoryMapped = isMemoryMapped;
 		return this;
 	}
 	
+	// save() appends the changes since the last save to a journal next to the csv file instead of rewriting it,
+	// startMapping() replays the journal and compact() merges it into the csv file. Records need a @PrimaryKey.
+	// With isSynced, save() returns once the changes are on the disk
+	public CSVModel<T> journaled(boolean isSynced){
+		this.isJournaled = true;
+		this.isSynced = isSynced;
+		return this;
+	}
+	
+	// Compact in the background from save() once the journal is bigger than size bytes, 0 for compact() only
+	public CSVModel<T> compactAfter(long size){
+		this.compactionSize = size;
+		return this;
+	}
+	
+	// Map only these fields, the others keep the value given by the empty constructor.
+	// A partially mapped model can't be saved over its file, exportToCSV() can write it to another one
+	public CSVModel<T> columns(String... fieldNames){
+		projection = new LinkedHashSet<String>();
+		for(String fieldName: fieldNames){
+			if(metadata.getSetter(fieldName) == null){
+				errors.add(Kind.USAGE, "[Error] columName not found.");
+				continue;
+			}
+			projection.add(fieldName.toLowerCase());
+		}
+		return this;
+	}
+	
+	// Map only the rows matching the where() and limit() of query, which is evaluated while reading the file.
+	// The filtered columns are mapped first, the other columns only once a row matches
+	public CSVModel<T> filter(Model<T> query){
+		if(!(query instanceof Query) || ((Query<T>) query).getSource() != null){
+			errors.add(Kind.USAGE, "[Error] filter() needs a query of where(), andWhere(), orWhere() and limit() on this model.");
+			return this;
+		}
+		Criteria<T> criteria = ((Query<T>) query).getCriteria();
+		if(criteria != null){
+			for(String columnName: criteria.getColumnNames()){
+				if(metadata.getSetter(columnName) == null){
+					errors.add(Kind.ENTITY, "[Error] Setter of field ["+columnName+"] not found in "+entityClass.getSimpleName()+".class, it can't be filtered while mapping.");
+					return this;
+				}
+			}
+		}
+		filter = (Query<T>) query;
+		return this;
+	}
+	
+	private boolean isPartial(){
+		return projection != null || filter != null;
+	}
+	
+	// Columns outside a partial mapping aren't checked, their values were never read
+	@Override
+	protected boolean isChecked(Column column){
+		return mappedColumns == null || mappedColumns.contains(column.getName().toLowerCase());
+	}
+	
+	// Bytes of the file the tokenizer read so far, a filter or a limit may stop it before the end.
+	// input is the stream under a CSVTokenizer, null for a MappedCSVReader
+	private static long bytesRead(RecordReader tokenizer, FileInputStream input) throws IOException {
+		return (input == null) ? ((MappedCSVReader) tokenizer).getOffset() : input.getChannel().position();
+	}
+	
 	@Override
 	public Model<T> startMapping(){
+		long start = System.nanoTime();
+		try {
+			return mapFile();
+		} finally {
+			changed(Operation.MAPPING, start);
+		}
+	}
+	
+	private Model<T> mapFile(){
 		boolean isMappingSuccess = true;
+		tail = null;
 		try {
-			String readline;
 			int rowNumber = 1;
-			BufferedReader bf;
-			records = new ArrayList<T>();
-			bf = new BufferedReader(new FileReader(new File(fileLocation)));
-			readline = bf.readLine();
-			columnNamesInCSV = (readline == null) ? null : readline.split(delimiter, -1);
-			columnNames = (readline == null) ? null : readline.toLowerCase().split(delimiter, -1);
+			closeJournal();
+			setRecords(new ArrayList<T>());
+			File file = new File(fileLocation);
+			Tail seen = new Tail(file);
+			Charset charset = Charset.defaultCharset(); // same charset as FileReader
+			boolean isMapped = (isMemoryMapped || pool != null) && MappedCSVReader.isSupported(charset);
+			FileInputStream input = isMapped ? null : new FileInputStream(file);
+			RecordReader tokenizer = isMapped ? new MappedCSVReader(file, delimiter, charset, 0, readLimit) : new CSVTokenizer(new InputStreamReader(input, charset), delimiter);
+			columnNamesInCSV = tokenizer.next() ? tokenizer.getFields() : new String[0];
+			columnNames = new String[columnNamesInCSV.length];
 			for(int i=0;i<columnNames.length;i++){
-				columnNames[i] = columnNames[i].replace(" ", "").replaceAll("[^A-Za-z0-9]", "_");
+				columnNames[i] = columnNamesInCSV[i].toLowerCase().replace(" ", "").replaceAll("[^A-Za-z0-9]", "_");
 			}
-			Method[] method = entityClass.getDeclaredMethods();
+			boolean isPartial = isPartial();
+			if(isPartial && isJournaled){
+				errors.add(Kind.USAGE, "[Error] columns() and filter() can't be used with journaled(), every column and row is mapped.");
+				isPartial = false;
+			}
+			Criteria<T> criteria = isPartial && filter != null ? filter.getCriteria() : null;
+			int offset = isPartial && filter != null ? filter.getOffset() : 0;
+			int end = isPartial && filter != null ? filter.getEnd() : Integer.MAX_VALUE;
 			
-			whileloop:
-			while((readline = bf.readLine()) != null){
-				Object[] columns = readline.toString().split(delimiter,-1);
-				@SuppressWarnings("unchecked")
-				T newEntityClassInstance = (T) entityClass.newInstance();
-				
-				for(Method m: method){
-					if(m.getName().contains("set")){
-						String methodName = m.getName().replace("set", "").toLowerCase();
-						
-						if(Arrays.asList(columnNames).contains(methodName)){
-							int index = Arrays.asList(columnNames).indexOf(methodName);
-							String rawValue = columns[index].toString().replace("\"", "");
-							// Add to instance then invoke
-							m.invoke(newEntityClassInstance, ReflectionHelper.autocast(m, rawValue));
-						} else {
-							ErrorsHelper.setErrorMessageAndPrintToConsole("[Error] Method -> "+methodName+" not found in ColumnName of CSV file -> "+Arrays.asList(columnNames));
-							break whileloop;
-						}
-					}
+			// Bind every mapped setter to its column once, before reading the rows. The filtered columns come first
+			Set<String> wanted = new LinkedHashSet<String>();
+			if(criteria != null){
+				wanted.addAll(criteria.getColumnNames());
+			}
+			int filtered = wanted.size();
+			wanted.addAll((isPartial && projection != null) ? projection : metadata.getSetters().keySet());
+			List<String> columnList = Arrays.asList(columnNames);
+			FieldConverter[] boundConverters = new FieldConverter[wanted.size()];
+			int[] boundIndexes = new int[wanted.size()];
+			boolean isBound = true;
+			int bound = 0;
+			for(String setter: wanted){
+				int index = columnList.indexOf(setter);
+				if(index < 0){
+					errors.add(Kind.FILE, "[Error] Method -> "+setter+" not found in ColumnName of CSV file -> "+columnList);
+					isBound = false;
+					break;
 				}
-				
-				OnMapping onMapping = null;
-				if(entityClass.getAnnotation(OnMapping.class) == null){ //if not declared, set check() true
-					onMapping = new OnMapping() {
-						public Class<? extends Annotation> annotationType() {
-							return OnMapping.class;
-						}
-						public boolean check() {
-							return true;
-						}
-					};
-				} else {
-					onMapping = entityClass.getAnnotation(OnMapping.class);
+				boundConverters[bound] = FieldConverter.of(metadata.getSetter(setter));
+				if(boundConverters[bound] == null){
+					errors.add(Kind.ENTITY, "[Error] Type "+metadata.getSetter(setter).getType().getSimpleName()+" of field ["+setter+"] in "+entityClass.getSimpleName()+".class can't be mapped, register a Converter for it with Converters.register().");
+					isBound = false;
+					break;
 				}
-				
-				if(onMapping.check()){
-					if(CheckAnnotationConstraints(newEntityClassInstance)){
-						records.add(newEntityClassInstance);
-					} else {
-						ErrorsHelper.setErrorMessageAndPrintToConsole("[Error] ON ROW -> "+ rowNumber);
-						isMappingSuccess = false;
-					}
-				} else {
-					records.add(newEntityClassInstance);
+				boundIndexes[bound] = index;
+				bound++;
+			}
+			mappedColumns = isPartial ? new HashSet<String>(wanted) : null;
+			
+			// With a pool set by parallel(), large files are mapped in chunks on the pool
+			if(isBound && pool != null && tokenizer instanceof MappedCSVReader && ((MappedCSVReader) tokenizer).getEnd() - ((MappedCSVReader) tokenizer).getOffset() >= 2 * MIN_CHUNK_SIZE){
+				long from = ((MappedCSVReader) tokenizer).getOffset();
+				long to = ((MappedCSVReader) tokenizer).getEnd();
+				metrics.bytesRead(from); // the header, the chunks count their own bytes
+				tokenizer.close();
+				return startMappingChunks(file, seen, from, to, new RowMapper(boundConverters, boundIndexes, filtered, criteria), offset, end);
+			}
+			
+			RowMapper mapper = new RowMapper(boundConverters, boundIndexes, filtered, criteria);
+			int matched = 0;
+			while(isBound && matched < end && tokenizer.next()){
+				if(tokenizer.getFieldCount() < columnNames.length){
+					rowRejected(rowNumber, null, missingColumns(tokenizer.getFieldCount()));
+					isMappingSuccess = false;
+					rowNumber++;
+					continue;
+				}
+				T newEntityClassInstance = mapper.map(tokenizer);
+				if(mapper.invalidColumn != null){
+					rowRejected(rowNumber, mapper.invalidColumn, mapper.invalidValue);
+					isMappingSuccess = false;
+				} else if(newEntityClassInstance != null && ++matched > offset && !addMappedRow(newEntityClassInstance, rowNumber)){
+					isMappingSuccess = false;
 				}
-				
 				rowNumber++;
 			}
-			bf.close();
+			metrics.bytesRead(bytesRead(tokenizer, input));
+			tokenizer.close();
+			if(isBound && isMappingSuccess && offset == 0 && end == Integer.MAX_VALUE){
+				tail = seen.mapped(file, (tokenizer instanceof MappedCSVReader) ? lineEndOrUnknown(file, ((MappedCSVReader) tokenizer).getOffset()) : -1, rowNumber, mapper);
+			}
+			if(isBound && isMappingSuccess){
+				isMappingSuccess = openJournal(boundConverters, boundIndexes);
+			}
 		} catch (FileNotFoundException e) {
-			ErrorsHelper.setErrorMessageAndPrintToConsole("[Error] File "+fileLocation+" not found.");
+			errors.add(Kind.FILE, "[Error] File "+fileLocation+" not found.");
 		} catch (InstantiationException e) {
-			ErrorsHelper.setErrorMessageAndPrintToConsole("[Error] Can't instantiate class "+entityClass.getSimpleName()+".class because empty constructor is not defined in that class.");
+			instantiationFailed();
 		} catch (IllegalAccessException e) {
-			ErrorsHelper.addSuppressedAndPrintStackTree(e);
+			errors.add(e);
 		} catch (IllegalArgumentException e) {
-			ErrorsHelper.addSuppressedAndPrintStackTree(e);
+			errors.add(e);
 		} catch (InvocationTargetException e) {
-			ErrorsHelper.addSuppressedAndPrintStackTree(e);
+			errors.add(e);
 		} catch (IOException e) {
-			ErrorsHelper.addSuppressedAndPrintStackTree(e);
+			errors.add(e);
 		}
+		return mappingDone(isMappingSuccess);
+	}
+	
+	private Model<T> mappingDone(boolean isMappingSuccess){
 		if(!isMappingSuccess){
-			ErrorsHelper.setErrorMessageAndPrintToConsole("[Error] Mapping Failed.");
-			records = new ArrayList<T>();
+			errors.add(Kind.FAILED, "[Error] Mapping Failed.");
+			setRecords(new ArrayList<T>());
+			tail = null;
 		}
 		return this;
 	}
 	
+	private void instantiationFailed(){
+		errors.add(Kind.ENTITY, "[Error] Can't instantiate class "+entityClass.getSimpleName()+".class because empty constructor is not defined in that class.");
+	}
+	
+	private String missingColumns(int fieldCount){
+		return ", "+columnNames.length+" columns expected but "+fieldCount+" found.";
+	}
+	
+	// column is null unless the row is rejected for the value of one column
+	private void rowRejected(int rowNumber, String column, String reason){
+		errors.add(Kind.ROW, "[Error] ON ROW -> "+ rowNumber + reason, rowNumber, column);
+	}
+	
+	// New instance with the bound columns of the current record set, null if a value can't be converted
+	private T newInstance(RecordReader tokenizer, FieldConverter[] boundConverters, int[] boundIndexes) throws InstantiationException, IllegalAccessException, InvocationTargetException {
+		@SuppressWarnings("unchecked")
+		T newEntityClassInstance = (T) metadata.newInstance();
+		return (setFields(newEntityClassInstance, tokenizer, boundConverters, boundIndexes, 0, boundConverters.length) < 0) ? newEntityClassInstance : null;
+	}
+	
+	// Index of the first bound column whose value can't be converted to the field type, -1 if they are all set
+	private int setFields(T newEntityClassInstance, RecordReader tokenizer, FieldConverter[] boundConverters, int[] boundIndexes, int from, int to) throws InvocationTargetException {
+		for(int i=from; i<to; i++){
+			if(!boundConverters[i].set(newEntityClassInstance, tokenizer.getText(boundIndexes[i]))){
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	// Instantiates the rows matching the filter, one per thread. The filtered columns are set on a reused instance
+	// and the criteria is evaluated on it, the other columns are only read from a matching row
+	private class RowMapper {
+		private final FieldConverter[] boundConverters;
+		private final int[] boundIndexes;
+		private final int filtered; // number of bound columns read by criteria
+		private final Criteria<T> criteria;
+		private T probe;
+		private String invalidColumn; // column of the last row whose value can't be converted, null if the row is valid
+		private String invalidValue; // why, for the error of the row
+		
+		RowMapper(FieldConverter[] boundConverters, int[] boundIndexes, int filtered, Criteria<T> criteria){
+			this.boundConverters = boundConverters;
+			this.boundIndexes = boundIndexes;
+			this.filtered = filtered;
+			this.criteria = criteria;
+		}
+		
+		RowMapper copy(){
+			return new RowMapper(boundConverters, boundIndexes, filtered, criteria);
+		}
+		
+		// Record of the current row, null if it doesn't match or a value can't be converted
+		T map(RecordReader tokenizer) throws InstantiationException, IllegalAccessException, InvocationTargetException {
+			invalidColumn = null;
+			if(probe == null){
+				@SuppressWarnings("unchecked")
+				T newEntityClassInstance = (T) metadata.newInstance();
+				probe = newEntityClassInstance;
+			}
+			int from = (criteria == null) ? 0 : filtered;
+			int invalid = setFields(probe, tokenizer, boundConverters, boundIndexes, 0, from);
+			if(invalid < 0 && criteria != null && !criteria.matches(probe)){
+				return null;
+			}
+			if(invalid < 0){
+				invalid = setFields(probe, tokenizer, boundConverters, boundIndexes, from, boundConverters.length);
+			}
+			if(invalid >= 0){ // the probe is reused, every bound field of the next row is set again
+				invalidColumn = columnNames[boundIndexes[invalid]];
+				invalidValue = ", value ["+tokenizer.getField(boundIndexes[invalid])+"] of column ["+invalidColumn+"] can't be converted to "+boundConverters[invalid].getType().getSimpleName()+".";
+				return null;
+			}
+			T newEntityClassInstance = probe;
+			probe = null;
+			return newEntityClassInstance;
+		}
+	}
+	
+	// Check the constraints of a mapped row then add it, false if it is rejected
+	private boolean addMappedRow(T newEntityClassInstance, int rowNumber){
+		if(metadata.isCheckOnMapping() && !CheckAnnotationConstraints(newEntityClassInstance)){
+			rowRejected(rowNumber, null, "");
+			return false;
+		}
+		addRecord(newEntityClassInstance);
+		return true;
+	}
+	
+	// Rows of one byte range of the file, instantiated on a worker
+	private static class Chunk<T> {
+		private final List<T> rows = new ArrayList<T>(); // matching rows, null for a rejected row
+		private final List<Integer> rowIndexes = new ArrayList<Integer>(); // index of each row in the chunk
+		private final List<String[]> rejected = new ArrayList<String[]>(); // column and reason of each null row
+		private int rowCount = 0; // rows read, matching or not
+		private long from; // byte offset of the first row
+		private long end; // byte offset after the last row
+		private Exception failure; // stops the mapping after the rows before it
+	}
+	
+	// Rows starting from byte offset from and before byte offset stop, the last one is read to its end before to.
+	// At most limit matching rows are instantiated, the rows after them are never needed
+	private Chunk<T> mapChunk(File file, long from, long stop, long to, RowMapper mapper, int limit){
+		Chunk<T> chunk = new Chunk<T>();
+		chunk.from = from;
+		chunk.end = from;
+		try {
+			MappedCSVReader tokenizer = new MappedCSVReader(file, delimiter, Charset.defaultCharset(), from, to);
+			tokenizer.stopAt(stop);
+			try {
+				int matched = 0;
+				while(matched < limit && tokenizer.next()){
+					T newEntityClassInstance = null;
+					if(tokenizer.getFieldCount() < columnNames.length){
+						chunk.rejected.add(new String[]{null, missingColumns(tokenizer.getFieldCount())});
+					} else {
+						newEntityClassInstance = mapper.map(tokenizer);
+						if(mapper.invalidColumn != null){
+							chunk.rejected.add(new String[]{mapper.invalidColumn, mapper.invalidValue});
+						} else if(newEntityClassInstance == null){
+							chunk.rowCount++;
+							continue;
+						} else {
+							matched++;
+						}
+					}
+					chunk.rows.add(newEntityClassInstance);
+					chunk.rowIndexes.add(chunk.rowCount++);
+				}
+				chunk.end = tokenizer.getOffset();
+			} finally {
+				tokenizer.close();
+			}
+		} catch (InstantiationException e) {
+			chunk.failure = e;
+		} catch (IllegalAccessException e) {
+			chunk.failure = e;
+		} catch (IllegalArgumentException e) {
+			chunk.failure = e;
+		} catch (InvocationTargetException e) {
+			chunk.failure = e;
+		} catch (IOException e) {
+			chunk.failure = e;
+		}
+		return chunk;
+	}
+	
+	// Parse and instantiate the rows chunk by chunk on the pool, then check the constraints
+	// and add them in file order so row numbers and duplicates are the same as a sequential mapping.
+	// The chunk bounds are guessed line starts: a chunk whose previous one didn't end on its bound started inside a
+	// quoted field, it is mapped again from where the previous one ended
+	private Model<T> startMappingChunks(final File file, Tail seen, long from, final long to, final RowMapper mapper, int offset, final int end) throws IOException, InstantiationException, IllegalAccessException, InvocationTargetException {
+		boolean isMappingSuccess = true;
+		boolean isComplete = true;
+		int chunkCount = (int) Math.min(pool.getParallelism() * 4L, (to - from) / MIN_CHUNK_SIZE);
+		final long[] bounds = MappedCSVReader.split(file, delimiter, Charset.defaultCharset(), from, to, chunkCount);
+		List<Callable<Chunk<T>>> tasks = new ArrayList<Callable<Chunk<T>>>();
+		for(int i=0; i<chunkCount; i++){
+			final int chunk = i;
+			tasks.add(new Callable<Chunk<T>>() {
+				public Chunk<T> call() {
+					return mapChunk(file, bounds[chunk], bounds[chunk + 1], to, mapper.copy(), end);
+				}
+			});
+		}
+		int firstRow = 1;
+		long rowsEnd = from; // where the rows added so far end
+		try {
+			int matched = 0;
+			int next = 1;
+			for(Future<Chunk<T>> future: pool.invokeAll(tasks)){
+				Chunk<T> chunk = future.get();
+				metrics.bytesRead(chunk.end - chunk.from);
+				if(matched >= end){ // every row needed was found in the chunks before
+					continue;
+				}
+				if(chunk.from != rowsEnd){
+					chunk = mapChunk(file, rowsEnd, bounds[next], to, mapper.copy(), end);
+					metrics.bytesRead(chunk.end - chunk.from);
+				}
+				rowsEnd = chunk.end;
+				next++;
+				int rejected = 0;
+				for(int i=0; i<chunk.rows.size() && matched < end; i++){
+					T newEntityClassInstance = chunk.rows.get(i);
+					int rowNumber = firstRow + chunk.rowIndexes.get(i);
+					if(newEntityClassInstance == null){
+						String[] columnAndReason = chunk.rejected.get(rejected++);
+						rowRejected(rowNumber, columnAndReason[0], columnAndReason[1]);
+						isMappingSuccess = false;
+					} else if(++matched > offset && !addMappedRow(newEntityClassInstance, rowNumber)){
+						isMappingSuccess = false;
+					}
+				}
+				firstRow += chunk.rowCount;
+				if(chunk.failure instanceof InstantiationException){
+					instantiationFailed();
+					isComplete = false;
+					break;
+				} else if(chunk.failure != null){
+					errors.add(chunk.failure);
+					isComplete = false;
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			errors.add(e);
+			isComplete = false;
+		} catch (ExecutionException e) {
+			errors.add(e);
+			isComplete = false;
+		}
+		if(isComplete && isMappingSuccess && offset == 0 && end == Integer.MAX_VALUE){
+			tail = seen.mapped(file, lineEndOrUnknown(file, rowsEnd), firstRow, mapper);
+		}
+		if(isComplete && isMappingSuccess){
+			isMappingSuccess = openJournal(mapper.boundConverters, mapper.boundIndexes);
+		}
+		return mappingDone(isMappingSuccess);
+	}
+	
+	// End of the rows mapped from the file, refresh() maps the rows appended after it
+	private class Tail {
+		private final long modified; // last modification and length of the file when it was mapped
+		private final long length;
+		private final long offset; // byte offset after the last mapped row, -1 if unknown
+		private final long checksum; // of the bytes before offset
+		private final int rowNumber; // of the next row
+		private final RowMapper mapper;
+		
+		// Read before the file, nothing mapped yet
+		Tail(File file){
+			this(file.lastModified(), file.length(), -1, 0, 1, null);
+		}
+		
+		private Tail(long modified, long length, long offset, long checksum, int rowNumber, RowMapper mapper){
+			this.modified = modified;
+			this.length = length;
+			this.offset = offset;
+			this.checksum = checksum;
+			this.rowNumber = rowNumber;
+			this.mapper = mapper;
+		}
+		
+		// Rows mapped up to offset, -1 if the reader can't tell: the file is then mapped again once changed
+		Tail mapped(File file, long offset, int rowNumber, RowMapper mapper) throws IOException {
+			return new Tail(modified, length, offset, (offset < 0) ? 0 : checksum(file, offset), rowNumber, mapper);
+		}
+		
+		boolean isSame(Tail seen){
+			return seen.modified == modified && seen.length == length;
+		}
+		
+		// The bytes before offset are still the mapped ones
+		boolean isAppended(File file, Tail seen) throws IOException {
+			return offset >= 0 && seen.length >= offset && checksum(file, offset) == checksum;
+		}
+	}
+	
+	// CRC of the first and the last bytes before offset, a rewritten file rarely keeps both
+	private static long checksum(File file, long offset) throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] bytes = new byte[(int) Math.min(offset, CHECKED_BYTES)];
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			in.readFully(bytes);
+			crc.update(bytes);
+			in.seek(offset - bytes.length);
+			in.readFully(bytes);
+			crc.update(bytes);
+		} finally {
+			in.close();
+		}
+		return crc.getValue();
+	}
+	
+	// Byte offset after the last line break between from and to, from if there is none: the last line may be half written
+	private static long lastLineEnd(File file, long from, long to) throws IOException {
+		byte[] block = new byte[8192];
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			for(long blockEnd=to; blockEnd>from; ){
+				int count = (int) Math.min(block.length, blockEnd - from);
+				in.seek(blockEnd - count);
+				in.readFully(block, 0, count);
+				for(int i=count-1; i>=0; i--){
+					if(block[i] == '\n'){
+						return blockEnd - count + i + 1;
+					}
+				}
+				blockEnd -= count;
+			}
+		} finally {
+			in.close();
+		}
+		return from;
+	}
+	
+	// offset if the mapped rows end with a line break, -1 if the last one may be half written
+	private static long lineEndOrUnknown(File file, long offset) throws IOException {
+		return (offset == 0 || lastLineEnd(file, offset - 1, offset) == offset) ? offset : -1;
+	}
+	
+	// Map the changes of the file since the last mapping. Rows appended after the mapped ones are mapped alone,
+	// once their line ends. A file rewritten or truncated is mapped again aside, then replaces the records.
+	// Either way the records are unchanged if a row is rejected, the next change of the file tries again
+	@Override
+	public boolean refresh(){
+		if(isJournaled){
+			errors.add(Kind.USAGE, "[Error] refresh() can't be used with journaled(), the file is only changed by save().");
+			return false;
+		}
+		long start = System.nanoTime();
+		File file = new File(fileLocation);
+		Tail seen = new Tail(file);
+		try {
+			if(tail != null && tail.isSame(seen)){
+				return false;
+			}
+			boolean isChanged = (tail != null && tail.isAppended(file, seen)) ? mapAppended(file, seen) : remap(file, seen);
+			if(isChanged){
+				changed(Operation.MAPPING, start);
+			}
+			return isChanged;
+		} catch (IOException e) {
+			errors.add(e);
+			return false;
+		}
+	}
+	
+	// Check the rows after the tail as one batch, then add them all
+	private boolean mapAppended(File file, Tail seen) throws IOException {
+		long to = lastLineEnd(file, tail.offset, seen.length);
+		Chunk<T> chunk = (to > tail.offset) ? mapChunk(file, tail.offset, to, to, tail.mapper.copy(), Integer.MAX_VALUE) : new Chunk<T>();
+		boolean isMappingSuccess = true;
+		List<T> rows = new ArrayList<T>();
+		int rejected = 0;
+		for(int i=0; i<chunk.rows.size(); i++){
+			if(chunk.rows.get(i) == null){
+				String[] columnAndReason = chunk.rejected.get(rejected++);
+				rowRejected(tail.rowNumber + chunk.rowIndexes.get(i), columnAndReason[0], columnAndReason[1]);
+				isMappingSuccess = false;
+			} else {
+				rows.add(chunk.rows.get(i));
+			}
+		}
+		if(chunk.failure instanceof InstantiationException){
+			instantiationFailed();
+			isMappingSuccess = false;
+		} else if(chunk.failure != null){
+			errors.add(chunk.failure);
+			isMappingSuccess = false;
+		}
+		if(isMappingSuccess && metadata.isCheckOnMapping() && !checkConstraints(rows, null)){
+			isMappingSuccess = false;
+		}
+		if(!isMappingSuccess){
+			errors.add(Kind.FAILED, "[Error] Rows appended to "+fileLocation+" can't be mapped, the records are unchanged.");
+			tail = seen.mapped(file, tail.offset, tail.rowNumber, tail.mapper);
+			return false;
+		}
+		for(T row: rows){
+			addRecord(row);
+		}
+		metrics.bytesRead(to - tail.offset);
+		tail = seen.mapped(file, to, tail.rowNumber + chunk.rowCount, tail.mapper);
+		return !rows.isEmpty();
+	}
+	
+	// Map the whole file on another model, in chunks with parallel(). Its records replace these if it succeeds
+	private boolean remap(File file, Tail seen) throws IOException {
+		CSVModel<T> model = new CSVModel<T>(entityClass, fileLocation);
+		model.delimiter = delimiter;
+		model.isMemoryMapped = true; // to know where the rows end, the next changes are appended rows
+		model.projection = projection;
+		model.filter = filter;
+		model.pool = pool;
+		model.errors = errors;
+		model.metrics = metrics;
+		model.readLimit = lastLineEnd(file, 0, seen.length);
+		model.mapFile();
+		if(model.tail == null){
+			errors.add(Kind.FAILED, "[Error] "+fileLocation+" changed and can't be mapped, the records are unchanged.");
+			tail = seen;
+			return false;
+		}
+		records = model.records;
+		indexes = model.indexes;
+		columnNames = model.columnNames;
+		columnNamesInCSV = model.columnNamesInCSV;
+		mappedColumns = model.mappedColumns;
+		tail = model.tail;
+		return true;
+	}
+	
+	// Replay the journals left by the last saves on the mapped records, then journal the next changes
+	private boolean openJournal(FieldConverter[] boundConverters, int[] boundIndexes) throws IOException, InstantiationException, IllegalAccessException, InvocationTargetException {
+		if(!isJournaled){
+			return true;
+		}
+		primaryKey = null;
+		for(Column column: metadata.getColumns()){
+			if(column.isPrimaryKey() && column.getGetter() != null){
+				primaryKey = column;
+			}
+		}
+		if(primaryKey == null){
+			errors.add(Kind.ENTITY, "[Error] journaled() needs a @PrimaryKey with a getter in "+entityClass.getSimpleName()+".class, save() rewrites the file instead.");
+			return true;
+		}
+		int[] entryIndexes = new int[boundIndexes.length];
+		for(int i=0; i<boundIndexes.length; i++){
+			entryIndexes[i] = boundIndexes[i] + 2; // after the operation and the key
+		}
+		Replay replay = new Replay(indexes.getUniqueIndex(primaryKey.getName()));
+		File rotated = new File(fileLocation + ROTATED_JOURNAL);
+		File current = new File(fileLocation + JOURNAL);
+		boolean isCompactionNeeded = rotated.exists(); // a background compaction didn't finish
+		if(rotated.exists()){
+			isCompactionNeeded |= !replay.read(rotated, boundConverters, entryIndexes);
+		}
+		if(current.exists()){
+			isCompactionNeeded |= !replay.read(current, boundConverters, entryIndexes);
+		}
+		setRecords(replay.merge());
+		journal = new Journal(current, delimiter, isSynced);
+		journalGetters = getExportedGetters();
+		if(isCompactionNeeded){
+			compact();
+		}
+		return true;
+	}
+	
+	// Journal entries applied to the mapped records, which are merged once at the end.
+	// Entries are upserts by primary key so replaying a journal already merged into the csv file changes nothing
+	private class Replay {
+		private final UniqueIndex<T> keys;
+		private final Map<T, T> replaced = new IdentityHashMap<T, T>(); // null for a deleted record
+		private final List<T> inserted = new ArrayList<T>();
+		
+		Replay(UniqueIndex<T> keys){
+			this.keys = keys;
+		}
+		
+		// false if the journal ends with a torn entry
+		boolean read(File file, FieldConverter[] boundConverters, int[] entryIndexes) throws IOException, InstantiationException, IllegalAccessException, InvocationTargetException {
+			CSVTokenizer tokenizer = new CSVTokenizer(new FileReader(file), delimiter);
+			try {
+				while(tokenizer.next()){
+					int fieldCount = tokenizer.getFieldCount();
+					if(fieldCount < 3 || !Journal.END.equals(tokenizer.getField(fieldCount - 1))){
+						return false;
+					}
+					String operation = tokenizer.getField(0);
+					T r = keys.get(tokenizer.getField(1));
+					if(operation.equals("C")){
+						records = new ArrayList<T>();
+						replaced.clear();
+						inserted.clear();
+						indexes.clear();
+					} else if(operation.equals("D")){
+						if(r != null){
+							replaced.put(r, null);
+							indexes.remove(r);
+						}
+					} else if(fieldCount == columnNames.length + 3){
+						T newEntityClassInstance = newInstance(tokenizer, boundConverters, entryIndexes);
+						if(newEntityClassInstance == null){
+							return false;
+						}
+						T sameKey = keys.get(keys.keyOf(newEntityClassInstance));
+						if(r == null || operation.equals("I")){
+							r = sameKey;
+						} else if(sameKey != null && sameKey != r){ // already replayed, the record was updated to this key
+							replaced.put(sameKey, null);
+							indexes.remove(sameKey);
+						}
+						if(r == null){
+							inserted.add(newEntityClassInstance);
+							indexes.add(newEntityClassInstance);
+						} else {
+							replaced.put(r, newEntityClassInstance);
+							indexes.replace(r, newEntityClassInstance);
+						}
+					} else {
+						return false;
+					}
+				}
+			} finally {
+				tokenizer.close();
+			}
+			return true;
+		}
+		
+		List<T> merge(){
+			List<T> merged = new ArrayList<T>(records.size() + inserted.size());
+			for(T r: records){
+				add(merged, r);
+			}
+			for(T r: inserted){
+				add(merged, r);
+			}
+			return merged;
+		}
+		
+		private void add(List<T> merged, T r){
+			while(r != null && replaced.containsKey(r)){
+				r = replaced.get(r);
+			}
+			if(r != null){
+				merged.add(r);
+			}
+		}
+	}
+	
+	@Override
+	protected void onInsert(T t){
+		journal("I", t, t);
+	}
+	
+	@Override
+	protected void onUpdate(T oldRecord, T newRecord){
+		journal("U", oldRecord, newRecord);
+	}
+	
+	@Override
+	protected void onDelete(T t){
+		journal("D", t, null);
+	}
+	
+	@Override
+	protected void onDeleteAll(){
+		journal("C", null, null);
+	}
+	
+	// Entry kept in memory until the next save()
+	private void journal(String operation, T keyRecord, T row){
+		if(journal == null){
+			return;
+		}
+		try {
+			String key = (keyRecord == null) ? "" : String.valueOf(primaryKey.getGetter().get(keyRecord));
+			journal.append(operation, key, (row == null) ? null : toRow(row, journalGetters));
+		} catch (InvocationTargetException e) {
+			errors.add(e);
+		} catch (IOException e) {
+			errors.add(e);
+		}
+	}
+	
+	// Rewrite the csv file with every record, saved or not, and drop the journal
+	public void compact(){
+		if(journal == null){
+			return;
+		}
+		waitForCompaction();
+		try {
+			replaceFile(records);
+			journal.clear();
+			File rotated = new File(fileLocation + ROTATED_JOURNAL);
+			if(rotated.exists() && !rotated.delete()){
+				throw new IOException("can't delete " + rotated);
+			}
+		} catch (IOException e) {
+			errors.add(e);
+		}
+	}
+	
+	// Move the journal aside and merge it with a copy of the records on another thread, save() keeps journaling meanwhile
+	private void compactInBackground() throws IOException {
+		if(compaction != null && compaction.isAlive()){
+			return;
+		}
+		if(new File(fileLocation + ROTATED_JOURNAL).exists()){ // the last compaction failed
+			compact();
+			return;
+		}
+		final File rotated = journal.rotate(new File(fileLocation + ROTATED_JOURNAL));
+		final List<T> snapshot = new ArrayList<T>(records);
+		compaction = new Thread(new Runnable() {
+			public void run() {
+				try {
+					replaceFile(snapshot);
+					if(rotated.exists() && !rotated.delete()){
+						throw new IOException("can't delete " + rotated);
+					}
+				} catch (IOException e) {
+					errors.add(e);
+				}
+			}
+		}, "latte-orm-compaction");
+		compaction.setDaemon(true);
+		compaction.start();
+	}
+	
+	private void waitForCompaction(){
+		try {
+			if(compaction != null){
+				compaction.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			errors.add(e);
+		}
+	}
+	
+	private void closeJournal() throws IOException {
+		if(journal != null){
+			waitForCompaction();
+			journal.close();
+			journal = null;
+		}
+	}
+	
+	// Write the records next to the csv file then move them over it, a crash never leaves a partial csv file
+	private void replaceFile(List<T> snapshot) throws IOException {
+		File file = new File(fileLocation);
+		File written = new File(fileLocation + COMPACTED_FILE);
+		writeCSV(written, delimiter, snapshot);
+		try {
+			Files.move(written.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(written.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+	
 	@Override
 	public void save(){
-		if(!ErrorsHelper.hasErrors()){
-			exportToCSV(fileLocation);
+		if(mappedColumns != null){
+			errors.add(Kind.USAGE, "[Error] Records mapped with columns() or filter() can't be saved over the csv file, use exportToCSV() instead.");
+			return;
+		}
+		if(!errors.hasErrors()){
+			if(journal == null){
+				exportToCSV(fileLocation, delimiter);
+				tail = new Tail(new File(fileLocation)); // mapped again by refresh() once changed by someone else
+				return;
+			}
+			long start = System.nanoTime();
+			try {
+				long size = journal.size();
+				journal.commit();
+				metrics.bytesWritten(journal.size() - size);
+				if(compactionSize > 0 && journal.size() >= compactionSize){
+					compactInBackground();
+				}
+			} catch (IOException e) {
+				errors.add(e);
+			}
+			timed(Operation.WRITE, start);
 		} else {
-			ErrorsHelper.setErrorMessageAndPrintToConsole("[Error] errors found, save failed. ");
+			errors.add(Kind.FAILED, "[Error] errors found, save failed. ");
 		}
 	}
 }
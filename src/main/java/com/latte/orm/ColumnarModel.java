@@ -0,0 +1,570 @@
+package com.latte.orm;
+/**
+ * @author hikmatullohhari
+ */
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.NoSuchFileException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.latte.orm.binary.BinaryFile;
+import com.latte.orm.binary.ColumnBlock;
+import com.latte.orm.binary.ColumnType;
+import com.latte.orm.columnar.Bitmaps;
+import com.latte.orm.columnar.ColumnStore;
+import com.latte.orm.columnar.ColumnVector;
+import com.latte.orm.helpers.EntityMetadata.Column;
+import com.latte.orm.helpers.Helper;
+import com.latte.orm.helpers.ModelError.Kind;
+import com.latte.orm.metrics.Operation;
+import com.latte.orm.query.Ordering;
+
+// Records stored column by column in primitive arrays instead of objects, strings are dictionary encoded.
+// Queries are evaluated on the columns and objects are only created for the records they return,
+// every call returns new objects so records are compared by value, not by identity
+public class ColumnarModel<T> extends GenericModel<T>{
+	private final ColumnStore<T> store;
+	private boolean isCompressed = false;
+	
+	// Records of a .bin file written by exportToBinary(), read by startMapping()
+	public ColumnarModel(Class<?> entityClass, String fileLocation) {
+		super(entityClass, fileLocation);
+		this.store = newStore();
+	}
+	
+	public ColumnarModel(Class<?> entityClass, List<T> objects) {
+		super(entityClass, (String) null);
+		this.store = newStore();
+		for(T t: objects){
+			addRecord(t);
+		}
+	}
+	
+	// Copy of the rows of model, for snapshot()
+	private ColumnarModel(ColumnarModel<T> model){
+		super(model.entityClass, (String) null);
+		this.store = model.store.copy();
+		this.records = new RowList();
+		this.errors = model.errors;
+		this.metrics = model.metrics;
+		this.version = model.version;
+	}
+	
+	private ColumnStore<T> newStore(){
+		for(Column column: metadata.getColumns()){
+			if(column.getSetter() != null && ColumnType.of(column.getType()) == null){
+				errors.add(Kind.ENTITY, "[Error] Field ["+column.getName()+"] of type "+column.getType().getSimpleName()+" can't be stored in a ColumnarModel, it keeps the value given by the empty constructor.");
+			}
+		}
+		records = new RowList();
+		return new ColumnStore<T>(metadata);
+	}
+	
+	// Deflate the blocks written by save() and exportToBinary()
+	public ColumnarModel<T> compressed(boolean isCompressed){
+		this.isCompressed = isCompressed;
+		return this;
+	}
+	
+	// Records as a list, each get() creates a new object. Serialized as an ArrayList of those objects
+	private class RowList extends AbstractList<T> implements Serializable {
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		public T get(int row) {
+			return materialize(row);
+		}
+		
+		@Override
+		public int size() {
+			return store.size();
+		}
+		
+		private Object writeReplace(){
+			return new ArrayList<T>(this);
+		}
+	}
+	
+	// New instance of the row, null if it can't be created
+	private T materialize(int row){
+		try {
+			return store.get(row);
+		} catch (InvocationTargetException e) {
+			if(e.getCause() instanceof InstantiationException){
+				errors.add(Kind.ENTITY, "[Error] Can't instantiate class "+entityClass.getSimpleName()+".class because empty constructor is not defined in that class.");
+			} else {
+				errors.add(e);
+			}
+			return null;
+		}
+	}
+	
+	@Override
+	public Model<T> startMapping(){
+		if(fileLocation == null){
+			return this;
+		}
+		long start = System.nanoTime();
+		File binFile = new File(Helper.filePath(fileLocation)+Helper.fileName(fileLocation)+((Helper.fileExtension(fileLocation) == "") ? "" : ".bin"));
+		try {
+			List<ColumnBlock> blocks = BinaryFile.read(binFile);
+			metrics.bytesRead(binFile.length());
+			for(ColumnBlock block: blocks){
+				Column column = metadata.getColumn(block.getName());
+				if(column != null && store.getVector(column.getName()) != null && ColumnType.of(column.getType()) != block.getType()){
+					errors.add(Kind.ENTITY, "[Error] Field ["+column.getName()+"] is "+column.getType().getSimpleName()+" but stored as "+block.getType()+".");
+					store.clear();
+					return this;
+				}
+			}
+			store.load(blocks, blocks.isEmpty() ? 0 : blocks.get(0).size());
+		} catch (NoSuchFileException e) {
+			errors.add(Kind.FILE, "[Error] File "+binFile+" not found.");
+		} catch (IOException e) { // unreadable, truncated or corrupt
+			errors.add(Kind.FILE, "[Error] File "+binFile+" can't be read, "+e.getMessage()+".");
+		} finally {
+			changed(Operation.MAPPING, start);
+		}
+		return this;
+	}
+	
+	// Copies every vector, unlike the chunks GenericModel shares: O(records) for each write of a ConcurrentModel
+	@Override
+	protected GenericModel<T> snapshot(){
+		return new ColumnarModel<T>(this);
+	}
+	
+	@Override
+	protected void setRecords(List<T> records){
+		store.clear();
+		for(T t: records){
+			addRecord(t);
+		}
+	}
+	
+	@Override
+	protected void addRecord(T t){
+		try {
+			store.add(t);
+		} catch (InvocationTargetException e) {
+			errors.add(e);
+		}
+	}
+	
+	// Found in the rows of each value of the column. replacedElement is the record being updated
+	@Override
+	protected boolean isDuplicate(Column column, Object value, T replacedElement){
+		int[] rows = store.rowsWith(column.getName(), value);
+		if(rows == null){
+			return false;
+		}
+		try {
+			int others = rows.length;
+			if(replacedElement != null && value != null && value.equals(column.getGetter().get(replacedElement))){
+				others--; // one of them is the replaced record itself
+			}
+			return others > 0;
+		} catch (InvocationTargetException e) {
+			errors.add(e);
+			return true;
+		}
+	}
+	
+	// Row with the @PrimaryKey of each given record, -1 where there is none. Null if the entity has no @PrimaryKey
+	private int[] rowsByPrimaryKey(List<T> batch) throws InvocationTargetException {
+		Column primaryKey = getPrimaryKey();
+		if(primaryKey == null || store.getVector(primaryKey.getName()) == null){
+			return null;
+		}
+		int[] rows = new int[batch.size()];
+		for(int i=0; i<rows.length; i++){
+			int[] valueRows = store.rowsWith(primaryKey.getName(), primaryKey.getGetter().get(batch.get(i)));
+			rows[i] = (valueRows.length == 0) ? -1 : valueRows[0]; // the first row of a value, as the unique index
+		}
+		return rows;
+	}
+	
+	@Override
+	public void updateAll(Collection<T> newElements){
+		long start = System.nanoTime();
+		List<T> batch = new ArrayList<T>(newElements);
+		try {
+			int[] rows = rowsByPrimaryKey(batch);
+			List<T> replaced = new ArrayList<T>();
+			boolean isFound = rows != null;
+			for(int i=0; rows != null && i<rows.length; i++){
+				if(rows[i] < 0){
+					reportNotFound(batch.get(i));
+					isFound = false;
+				} else {
+					replaced.add(store.get(rows[i]));
+				}
+			}
+			if(!isFound || !checkConstraints(batch, replaced)){
+				errors.add(Kind.FAILED, "[Error] Data can't be updated.");
+				return;
+			}
+			for(int i=0; i<rows.length; i++){
+				store.set(rows[i], batch.get(i));
+				onUpdate(replaced.get(i), batch.get(i));
+			}
+		} catch (InvocationTargetException e) {
+			errors.add(e);
+		} finally {
+			changed(Operation.UPDATE, start);
+		}
+	}
+	
+	@Override
+	public void deleteAll(Collection<T> elements){
+		long start = System.nanoTime();
+		try {
+			int[] rows = rowsByPrimaryKey(new ArrayList<T>(elements));
+			BitSet deleted = new BitSet();
+			for(int i=0; rows != null && i<rows.length; i++){
+				if(rows[i] >= 0){
+					deleted.set(rows[i]);
+				}
+			}
+			if(!deleted.isEmpty()){
+				deleteRows(deleted);
+			}
+		} catch (InvocationTargetException e) {
+			errors.add(e);
+		} finally {
+			changed(Operation.DELETE, start);
+		}
+	}
+	
+	// Rows whose stored fields equal those of t. Only the rows sharing its @PrimaryKey or @Unique value are compared
+	private BitSet rowsEqualTo(T t) throws InvocationTargetException {
+		BitSet rows = new BitSet();
+		if(t == null){
+			return rows;
+		}
+		for(Column column: store.getColumns()){
+			if((column.isPrimaryKey() || column.isUnique()) && column.getGetter() != null){
+				for(int row: store.rowsWith(column.getName(), column.getGetter().get(t))){
+					if(store.isEqual(row, t)){
+						rows.set(row);
+					}
+				}
+				return rows;
+			}
+		}
+		for(int row=0; row<store.size(); row++){
+			if(store.isEqual(row, t)){
+				rows.set(row);
+			}
+		}
+		return rows;
+	}
+	
+	@Override
+	public void update(T oldElement, T newElement){
+		long start = System.nanoTime();
+		try {
+			int row = rowsEqualTo(oldElement).nextSetBit(0); // only the first one, as List.set()
+			if(!checkConstraints(newElement, (row < 0) ? null : oldElement)){
+				errors.add(Kind.FAILED, "[Error] Data can't be updated.");
+				return;
+			}
+			if(row >= 0){
+				T r = store.get(row);
+				store.set(row, newElement);
+				onUpdate(r, newElement);
+			}
+		} catch (InvocationTargetException e) {
+			errors.add(e);
+		} finally {
+			changed(Operation.UPDATE, start);
+		}
+	}
+	
+	@Override
+	public void delete(T t){
+		long start = System.nanoTime();
+		try {
+			BitSet rows = rowsEqualTo(t);
+			if(!rows.isEmpty()){
+				rows.clear(rows.nextSetBit(0) + 1, store.size()); // only the first one, as List.remove()
+				deleteRows(rows);
+			}
+		} catch (InvocationTargetException e) {
+			errors.add(e);
+		} finally {
+			changed(Operation.DELETE, start);
+		}
+	}
+	
+	@Override
+	protected void deleteRecords(Collection<T> deletedRecords){
+		try {
+			BitSet rows = new BitSet();
+			for(T t: deletedRecords){
+				BitSet equal = rowsEqualTo(t);
+				equal.andNot(rows);
+				if(!equal.isEmpty()){
+					rows.set(equal.nextSetBit(0)); // one row for each record, as List.remove()
+				}
+			}
+			deleteRows(rows);
+		} catch (InvocationTargetException e) {
+			errors.add(e);
+		}
+	}
+	
+	@Override
+	protected void deleteMatches(Query<T> query){
+		long start = System.nanoTime();
+		BitSet rows = new BitSet();
+		try {
+			if(query.isOrdered()){
+				for(int row: orderedRows(query)){
+					rows.set(row);
+				}
+				metrics.rows(store.size(), rows.cardinality());
+			} else {
+				RowCursor cursor = new RowCursor(query);
+				for(int row=cursor.next(); row>=0; row=cursor.next()){
+					rows.set(row);
+				}
+				metrics.rows(cursor.getScanned(), rows.cardinality());
+			}
+			deleteRows(rows);
+		} catch (InvocationTargetException e) {
+			errors.add(e);
+		} finally {
+			changed(Operation.DELETE, start);
+		}
+	}
+	
+	private void deleteRows(BitSet rows) throws InvocationTargetException {
+		if(rows.cardinality() == store.size()){
+			store.clear();
+			onDeleteAll();
+			return;
+		}
+		List<T> deleted = new ArrayList<T>(); // created before the rows are dropped, for onDelete()
+		for(int row=rows.nextSetBit(0); row>=0; row=rows.nextSetBit(row + 1)){
+			deleted.add(store.get(row));
+		}
+		store.remove(rows);
+		for(T r: deleted){
+			onDelete(r);
+		}
+	}
+	
+	// Rows matching a query in rows order. The criteria is evaluated column at a time on windows of rows, the first
+	// windows are small so a limited query stops early, then they double up to the whole columns
+	private class RowCursor {
+		private static final int FIRST_WINDOW = 4096;
+		
+		private final Query<T> query;
+		private long[] candidates; // rows of the source query, null for every row
+		private long[] selected; // matching rows of the current window
+		private int selectedTo = 0; // rows before are evaluated
+		private int window;
+		private int matched = 0;
+		private int row = -1;
+		private long scanned = 0; // rows of the evaluated windows, and of the source query
+		
+		RowCursor(Query<T> query){
+			this.query = query;
+			boolean isLimited = query.getOffset() > 0 || query.getEnd() < Integer.MAX_VALUE;
+			this.window = isLimited ? FIRST_WINDOW : Integer.MAX_VALUE;
+			if(query.getSource() != null){
+				candidates = Bitmaps.empty(store.size());
+				RowCursor source = new RowCursor(query.getSource());
+				for(int r=source.next(); r>=0; r=source.next()){
+					Bitmaps.set(candidates, r, true);
+				}
+				scanned = source.scanned;
+			}
+		}
+		
+		long getScanned(){
+			return scanned;
+		}
+		
+		private void selectNextWindow(){
+			int from = selectedTo;
+			int to = (int) Math.min(store.size(), (long) from + window);
+			window = (int) Math.min(Integer.MAX_VALUE, window * 2L);
+			long[] rows = Bitmaps.range(store.size(), from, to);
+			if(candidates != null){
+				Bitmaps.and(rows, candidates);
+			}
+			try {
+				selected = (query.getCriteria() == null) ? rows : query.getCriteria().select(store, rows);
+			} catch (InvocationTargetException e) {
+				errors.add(e);
+				selected = Bitmaps.empty(store.size());
+			}
+			selectedTo = to;
+			scanned += to - from;
+		}
+		
+		// Next matching row, -1 after the last one
+		int next(){
+			while(matched < query.getEnd()){
+				int found = (selected == null) ? -1 : Bitmaps.nextSetBit(selected, row + 1);
+				if(found < 0){
+					if(selectedTo >= store.size()){
+						return -1;
+					}
+					row = selectedTo - 1;
+					selectNextWindow();
+					continue;
+				}
+				row = found;
+				if(matched++ >= query.getOffset()){
+					return row;
+				}
+			}
+			return -1;
+		}
+	}
+	
+	// Rows matching an ordered query in its order. The keys are read from the columns, only the returned rows are materialized
+	private int[] orderedRows(Query<T> query) throws InvocationTargetException {
+		final Ordering<T> ordering = query.getOrdering();
+		if(ordering != null){
+			final int[] rows = orderedRows(query.unordered());
+			final ColumnVector[] vectors = new ColumnVector[ordering.size()];
+			for(int key=0; key<vectors.length; key++){
+				vectors[key] = store.getVector(ordering.getColumnName(key)); // null for a field that isn't stored
+			}
+			int[] order = ordering.sort(rows.length, new Ordering.Values() {
+				public Object get(int item, int key) {
+					return (vectors[key] == null) ? null : vectors[key].get(rows[item]);
+				}
+			}, query.getEnd());
+			int[] sorted = new int[Math.max(order.length - query.getOffset(), 0)];
+			for(int i=0; i<sorted.length; i++){
+				sorted[i] = rows[order[query.getOffset() + i]];
+			}
+			return sorted;
+		}
+		if(!query.isOrdered()){
+			RowCursor cursor = new RowCursor(query);
+			int[] rows = new int[16];
+			int count = 0;
+			for(int row=cursor.next(); row>=0; row=cursor.next()){
+				if(count == rows.length){
+					rows = Arrays.copyOf(rows, count * 2);
+				}
+				rows[count++] = row;
+			}
+			return Arrays.copyOf(rows, count);
+		}
+		// the criteria keeps the rows of the ordered source query in their order
+		int[] candidates = orderedRows(query.getSource());
+		long[] selected = Bitmaps.empty(store.size());
+		for(int row: candidates){
+			Bitmaps.set(selected, row, true);
+		}
+		if(query.getCriteria() != null){
+			selected = query.getCriteria().select(store, selected);
+		}
+		int[] rows = new int[candidates.length];
+		int count = 0, matched = 0;
+		for(int i=0; i<candidates.length && matched < query.getEnd(); i++){
+			if(Bitmaps.get(selected, candidates[i]) && matched++ >= query.getOffset()){
+				rows[count++] = candidates[i];
+			}
+		}
+		return Arrays.copyOf(rows, count);
+	}
+	
+	@Override
+	protected List<T> select(Query<T> query){
+		List<T> selected = new ArrayList<T>();
+		if(query.isOrdered()){
+			try {
+				int[] rows = orderedRows(query);
+				for(int row: rows){
+					selected.add(materialize(row));
+				}
+				metrics.rows(store.size(), selected.size());
+			} catch (InvocationTargetException e) {
+				errors.add(e);
+			}
+			return selected;
+		}
+		RowCursor cursor = new RowCursor(query);
+		for(int row=cursor.next(); row>=0; row=cursor.next()){
+			selected.add(materialize(row));
+		}
+		metrics.rows(cursor.getScanned(), selected.size());
+		return selected;
+	}
+	
+	@Override
+	protected Iterator<T> iterator(Query<T> query){
+		if(query.isOrdered()){
+			return select(query).iterator();
+		}
+		final RowCursor cursor = new RowCursor(query);
+		return new Iterator<T>() {
+			private int next = cursor.next();
+			
+			public boolean hasNext() {
+				return next >= 0;
+			}
+			
+			public T next() {
+				if(next < 0){
+					throw new NoSuchElementException();
+				}
+				T r = materialize(next);
+				next = cursor.next();
+				return r;
+			}
+			
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+	
+	@Override
+	public void exportToBinary(String fileLocation){
+		exportToBinary(fileLocation, isCompressed);
+	}
+	
+	// Written from the columns, no object is created
+	@Override
+	protected void exportToBinary(String fileLocation, boolean isCompressed){
+		long start = System.nanoTime();
+		this.fileLocation = fileLocation;
+		File binFile = new File(Helper.filePath(fileLocation)+Helper.fileName(fileLocation)+((Helper.fileExtension(fileLocation) == "") ? "" : ".bin"));
+		try {
+			BinaryFile.write(binFile, store.toBlocks(), store.size(), isCompressed);
+			metrics.bytesWritten(binFile.length());
+		} catch (IOException e) {
+			errors.add(Kind.FILE, "[Error] File "+Helper.fileName(fileLocation)+".bin can't be created. Access denied.");
+		}
+		timed(Operation.WRITE, start);
+	}
+	
+	@Override
+	public void save(){
+		if(fileLocation == null){
+			super.save();
+		} else if(!errors.hasErrors()){
+			exportToBinary(fileLocation, isCompressed);
+		} else {
+			errors.add(Kind.FAILED, "[Error] errors found, save failed.");
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package com.latte.orm;
+/**
+ * @author hikmatullohhari
+ */
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import com.latte.orm.metrics.Metrics;
+import com.latte.orm.metrics.Operation;
+import com.latte.orm.query.QueryCache;
+
+// A model shared by many threads. Queries read an immutable snapshot of the records without locking, so readers
+// never wait for each other or for a write. insert, update and delete are applied one at a time to the wrapped model,
+// then a copy of its records and indexes replaces the snapshot: a query sees the records as they were when it started.
+// Snapshots share the chunks of records and index entries a write didn't change, so a write copies only a few of them.
+// Except over a ColumnarModel: its snapshot copies every column and dictionary, each write costs O(records).
+// Records must not be modified in place, update() them with a new object instead.
+public class ConcurrentModel<T> extends GenericModel<T>{
+	private final GenericModel<T> model; // only accessed while holding the lock of this
+	private volatile GenericModel<T> snapshot;
+	
+	public ConcurrentModel(GenericModel<T> model){
+		super(model.entityClass, (String) null);
+		this.model = model;
+		this.errors = model.errors;
+		this.metrics = model.metrics;
+		publish();
+	}
+	
+	// Queries started after it see the changes of the wrapped model
+	private void publish(){
+		long start = System.nanoTime();
+		GenericModel<T> snapshot = model.snapshot();
+		snapshot.cache = cache; // queries of this model are cached by the snapshot they read
+		this.snapshot = snapshot;
+		timed(Operation.SNAPSHOT, start);
+	}
+	
+	@Override
+	protected GenericModel<T> snapshot(){
+		return snapshot;
+	}
+	
+	@Override
+	protected GenericModel<T> reader(){
+		return snapshot;
+	}
+	
+	@Override
+	public synchronized ConcurrentModel<T> cache(QueryCache<T> cache){
+		this.cache = cache;
+		publish();
+		return this;
+	}
+	
+	@Override
+	public synchronized Model<T> startMapping(){
+		model.startMapping();
+		publish();
+		return this;
+	}
+	
+	// The wrapped model maps the changes aside from the snapshot, queries see them all at once
+	@Override
+	public synchronized boolean refresh(){
+		boolean isChanged = model.refresh();
+		if(isChanged){
+			publish();
+		}
+		return isChanged;
+	}
+	
+	@Override
+	public synchronized void insert(T t){
+		model.insert(t);
+		publish();
+	}
+	
+	@Override
+	public synchronized void update(T oldElement, T newElement){
+		model.update(oldElement, newElement);
+		publish();
+	}
+	
+	@Override
+	public synchronized void delete(T t){
+		model.delete(t);
+		publish();
+	}
+	
+	@Override
+	public synchronized void insertAll(Collection<T> newElements){
+		model.insertAll(newElements);
+		publish();
+	}
+	
+	@Override
+	public synchronized void updateAll(Collection<T> newElements){
+		model.updateAll(newElements);
+		publish();
+	}
+	
+	@Override
+	public synchronized void deleteAll(Collection<T> elements){
+		model.deleteAll(elements);
+		publish();
+	}
+	
+	// The query is evaluated on the wrapped model, not on the snapshot
+	@Override
+	protected synchronized void deleteMatches(Query<T> query){
+		model.deleteMatches(query);
+		publish();
+	}
+	
+	@Override
+	public synchronized ConcurrentModel<T> metrics(Metrics metrics){
+		model.metrics(metrics);
+		this.metrics = model.metrics;
+		publish();
+		return this;
+	}
+	
+	@Override
+	public synchronized ConcurrentModel<T> parallel(int parallelism){
+		model.parallel(parallelism);
+		publish();
+		return this;
+	}
+	
+	@Override
+	public synchronized ConcurrentModel<T> parallel(ForkJoinPool pool){
+		model.parallel(pool);
+		publish();
+		return this;
+	}
+	
+	// Version of the snapshot, cached results follow the records queries read
+	@Override
+	protected long version(){
+		return snapshot.version();
+	}
+	
+	@Override
+	protected boolean isEmpty(){
+		return snapshot.isEmpty();
+	}
+	
+	@Override
+	protected List<T> select(Query<T> query){
+		return snapshot.select(query);
+	}
+	
+	@Override
+	protected Iterator<T> iterator(Query<T> query){
+		return snapshot.iterator(query);
+	}
+	
+	@Override
+	public synchronized void save(){
+		model.save();
+	}
+	
+	@Override
+	public synchronized void exportToCSV(String fileLocation){
+		model.exportToCSV(fileLocation);
+	}
+	
+	@Override
+	public synchronized void exportToSER(String fileLocation){
+		model.exportToSER(fileLocation);
+	}
+	
+	@Override
+	public synchronized void exportToBinary(String fileLocation){
+		model.exportToBinary(fileLocation);
+	}
+}
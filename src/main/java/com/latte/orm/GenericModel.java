@@ -9,40 +9,76 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.NotSerializableException;
 import java.io.ObjectOutputStream;
-import java.io.PrintWriter;
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
-import com.latte.orm.annotations.*;
-import com.latte.orm.helpers.ErrorsHelper;
+import com.latte.orm.binary.BinaryFile;
+import com.latte.orm.binary.ColumnBlock;
+import com.latte.orm.binary.ColumnType;
+import com.latte.orm.csv.CSVWriter;
+import com.latte.orm.helpers.Accessor;
+import com.latte.orm.helpers.ChunkedList;
+import com.latte.orm.helpers.EntityMetadata;
+import com.latte.orm.helpers.EntityMetadata.Column;
+import com.latte.orm.helpers.Errors;
 import com.latte.orm.helpers.Helper;
+import com.latte.orm.helpers.ModelError.Kind;
+import com.latte.orm.index.Indexes;
+import com.latte.orm.index.UniqueIndex;
+import com.latte.orm.metrics.Metrics;
+import com.latte.orm.metrics.Operation;
+import com.latte.orm.query.Criteria;
+import com.latte.orm.query.IndexOrder;
+import com.latte.orm.query.Ordering;
+import com.latte.orm.query.ParallelScan;
+import com.latte.orm.query.QueryCache;
+import com.latte.orm.query.QueryIterator;
+import com.latte.orm.query.QueryPlanner;
 
 public class GenericModel<T> implements Model<T> {
-	protected static final String REGEX_ESCAPE_QUOTE = "(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)";
 	protected Class<?> entityClass;
+	protected EntityMetadata metadata;
 	protected String fileLocation;
 	protected List<T> records = new ArrayList<T>();
-	protected List<T> filteringRecords = new ArrayList<T>();
-	protected List<T> resultRecords = new ArrayList<T>();
+	protected Indexes<T> indexes;
+	protected ForkJoinPool pool;
+	private boolean isOwnPool; // pool created by parallel(int), shut down when replaced
 	protected String[] columnNames;
 	protected String[] columnNamesInCSV;
-	private boolean andWhere = false;
-	private boolean orWhere = false;
+	protected Errors errors = new Errors();
+	protected Metrics metrics = Metrics.NONE;
+	protected QueryCache<T> cache;
+	protected long version = 0; // changed by every insert, update, delete and startMapping()
+	private ScheduledExecutorService watcher; // started by watch()
 	
 	protected GenericModel (Class<?> entityClass, String fileLocation){
 		this.entityClass = entityClass;
+		this.metadata = EntityMetadata.of(entityClass);
+		this.indexes = new Indexes<T>(metadata);
 		this.fileLocation = fileLocation;
 	}
 	
 	public GenericModel (Class<?> entityClass, List<T> objects){
 		this.entityClass = entityClass;
-		this.records = objects;
+		this.metadata = EntityMetadata.of(entityClass);
+		this.indexes = new Indexes<T>(metadata);
+		setRecords(objects);
 	}
 	
 	// Override by CSVModel and SERModel
@@ -50,401 +86,707 @@ public class GenericModel<T> implements Model<T> {
 		return this;
 	}
 	
+	// Map the changes of the source file since the last mapping, true if the records changed. Override by CSVModel
+	public boolean refresh(){
+		return false;
+	}
+	
+	// refresh() every period on a daemon thread, errors are added to getErrors(). A period of 0 stops it.
+	// Queries from other threads need a ConcurrentModel, watched itself
+	public GenericModel<T> watch(long period, TimeUnit unit){
+		if(watcher != null){
+			watcher.shutdown();
+			watcher = null;
+		}
+		if(period > 0){
+			watcher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable runnable){
+					Thread thread = new Thread(runnable, "latte-orm-watch");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			watcher.scheduleWithFixedDelay(new Runnable() {
+				public void run(){
+					try {
+						refresh();
+					} catch (RuntimeException e) { // would cancel the next runs
+						errors.add(e);
+					}
+				}
+			}, period, period, unit);
+		}
+		return this;
+	}
+	
+	// Errors of this model, save() is refused until they are cleared
+	public Errors getErrors(){
+		return errors;
+	}
+	
+	// Measures of the operations of this model, see MetricsRegistry.forModel(). null records nothing
+	public GenericModel<T> metrics(Metrics metrics){
+		this.metrics = (metrics == null) ? Metrics.NONE : metrics;
+		return this;
+	}
+	
+	// Latency of an operation started at start, a System.nanoTime()
+	protected void timed(Operation operation, long start){
+		metrics.timed(operation, System.nanoTime() - start);
+	}
+	
+	// End of an operation changing the records, cached results of the older versions are stale
+	protected void changed(Operation operation, long start){
+		version++;
+		timed(operation, start);
+	}
+	
+	// Version of the records read by queries
+	protected long version(){
+		return version;
+	}
+	
+	// Keep the results of toList() and toSingle() until the records change, null turns it off
+	public GenericModel<T> cache(QueryCache<T> cache){
+		this.cache = cache;
+		return this;
+	}
+	
+	// Replace the records and rebuild their indexes
+	protected void setRecords(List<T> records){
+		this.records = records;
+		try {
+			indexes.rebuild(records);
+		} catch (InvocationTargetException e) {
+			errors.add(e);
+		}
+	}
+	
+	// No record, toList() and toSingle() report it
+	protected boolean isEmpty(){
+		return records.isEmpty();
+	}
+	
+	// Copy of the records and their indexes, later changes of this model don't affect it. See ConcurrentModel.
+	// The records are moved to a ChunkedList once, then both sides share the chunks and indexes nobody changed
+	protected GenericModel<T> snapshot(){
+		if(!(records instanceof ChunkedList)){
+			records = new ChunkedList<T>(records);
+		}
+		GenericModel<T> snapshot = new GenericModel<T>(entityClass, (String) null);
+		snapshot.records = ((ChunkedList<T>) records).copy();
+		snapshot.indexes = indexes.copy();
+		snapshot.pool = pool;
+		snapshot.errors = errors;
+		snapshot.metrics = metrics;
+		snapshot.cache = cache;
+		snapshot.version = version;
+		return snapshot;
+	}
+	
+	// Model a query reads from start to end, a ConcurrentModel gives its snapshot of the moment
+	protected GenericModel<T> reader(){
+		return this;
+	}
+	
+	protected void addRecord(T t){
+		try {
+			indexes.add(t);
+			records.add(t);
+		} catch (InvocationTargetException e) {
+			errors.add(e);
+		}
+	}
+	
 	protected boolean CheckAnnotationConstraints(T t){
+		return CheckAnnotationConstraints(t, null);
+	}
+	
+	// replacedElement is the record being updated, its own values don't count as duplicates
+	protected boolean CheckAnnotationConstraints(T t, T replacedElement){
 		boolean isAllPassed = false;
-		int primaryKeyCount = 0;
 		int fieldPassedOverAnnotationTest = 0;
-		Field[] fields = t.getClass().getDeclaredFields();
-		Method[] methods = t.getClass().getDeclaredMethods();
+		List<Column> columns = metadata.getColumns();
 		
 		// Check Annotation Constraints
 		try {
-			for(Field field: fields){
+			for(Column column: columns){
 				int annotationPassed = 0;
-				Annotation[] annotations = field.getAnnotations();
-				Method methodOfField = null;
-				
-				for(Method method: methods){
-					if(method.getName().toLowerCase().equals("get"+field.getName().toLowerCase())){
-						methodOfField = method;
-					}
+				if(column.getConstraintCount() == 0 || !isChecked(column)){
+					fieldPassedOverAnnotationTest++;
+					continue;
 				}
-				Object value = methodOfField.invoke(t, null);
-				for(Annotation annotation: annotations){
-					T valueInRecords = null;
-					if(annotation instanceof PrimaryKey){
-						if(!records.isEmpty()){
-							valueInRecords = where(field.getName(), Operator.EQUALS, String.valueOf(value)).toSingle();
-						}
-						
-						filteringRecords = new ArrayList<T>(); //because where is called inside this class
-						if(records.contains(valueInRecords)){
-							ErrorsHelper.setErrorMessageAndPrintToConsole("[Error] Duplicate entry, Field ["+field.getName()+" (@PrimaryKey) = "+value+"] has found in the data. ");
-						} else {
-							if(value != null && value != ""){
-								annotationPassed++;
-							}
-						}
-						primaryKeyCount++;
-						
-					}
-					if(annotation instanceof NotNull){
-						if(value != null && !value.equals("")){
+				if(column.getGetter() == null){
+					errors.add(Kind.ENTITY, "[Error] Getter of field ["+column.getName()+"] not found in "+entityClass.getSimpleName()+".class.");
+					continue;
+				}
+				Object value = column.getGetter().get(t);
+				if(column.isPrimaryKey()){
+					if(isDuplicate(column, value, replacedElement)){
+						errors.add(Kind.CONSTRAINT, "[Error] Duplicate entry, Field ["+column.getName()+" (@PrimaryKey) = "+value+"] has found in the data. ");
+					} else {
+						if(value != null && value != ""){
 							annotationPassed++;
-						} else {
-							ErrorsHelper.setErrorMessageAndPrintToConsole("[Error] Field ["+field.getName()+" (@NotNull) = "+value+"] Can't be null or empty.");
 						}
 					}
-					if(annotation instanceof Unique){
-						if(!records.isEmpty()){
-							valueInRecords = where(field.getName(), Operator.EQUALS, String.valueOf(value)).toSingle();
-						}
-						filteringRecords = new ArrayList<T>(); //because where is called inside this class
-						if(records.contains(valueInRecords)){
-							ErrorsHelper.setErrorMessageAndPrintToConsole("[Error] Duplicate entry, Field ["+field.getName()+" (@Unique) = "+value+"] has found in the data.");
-						} else {
-							annotationPassed++;
-						}
+				}
+				if(column.isNotNull()){
+					if(value != null && !value.equals("")){
+						annotationPassed++;
+					} else {
+						errors.add(Kind.CONSTRAINT, "[Error] Field ["+column.getName()+" (@NotNull) = "+value+"] Can't be null or empty.");
 					}
 				}
-				if(primaryKeyCount > 1) {
-					ErrorsHelper.setErrorMessageAndPrintToConsole("[Error] Multiple @PrimaryKey detected in "+entityClass.getSimpleName()+".class. @PrimaryKey should be defined once.");
+				if(column.isUnique()){
+					if(isDuplicate(column, value, replacedElement)){
+						errors.add(Kind.CONSTRAINT, "[Error] Duplicate entry, Field ["+column.getName()+" (@Unique) = "+value+"] has found in the data.");
+					} else {
+						annotationPassed++;
+					}
 				}
-				if(annotationPassed == annotations.length){
+				if(annotationPassed == column.getConstraintCount()){
 					fieldPassedOverAnnotationTest++;
 				}
 			}
-			if(fieldPassedOverAnnotationTest == fields.length && primaryKeyCount == 1){
+			if(metadata.getPrimaryKeyCount() > 1) {
+				errors.add(Kind.ENTITY, "[Error] Multiple @PrimaryKey detected in "+entityClass.getSimpleName()+".class. @PrimaryKey should be defined once.");
+			}
+			if(fieldPassedOverAnnotationTest == columns.size() && metadata.getPrimaryKeyCount() == 1){
 				isAllPassed = true;
 			}
-		} catch (IllegalAccessException e) {
-			ErrorsHelper.addSuppressedAndPrintStackTree(e);
 		} catch (IllegalArgumentException e) {
-			ErrorsHelper.addSuppressedAndPrintStackTree(e);
+			errors.add(e);
 		} catch (InvocationTargetException e) {
-			ErrorsHelper.addSuppressedAndPrintStackTree(e);
-		} catch (SecurityException e) {
-			ErrorsHelper.addSuppressedAndPrintStackTree(e);
+			errors.add(e);
+		}
+		return isAllPassed;
+	}
+	
+	// Constraints of a batch, replacedElements holds the record each one replaces or is null for new records.
+	// Each record is checked as by CheckAnnotationConstraints(), and their @PrimaryKey and @Unique values must differ
+	protected boolean CheckAnnotationConstraints(List<T> batch, List<T> replacedElements){
+		boolean isAllPassed = true;
+		Map<Column, Set<String>> batchKeys = new LinkedHashMap<Column, Set<String>>();
+		for(Column column: metadata.getColumns()){
+			if((column.isPrimaryKey() || column.isUnique()) && column.getGetter() != null && isChecked(column)){
+				batchKeys.put(column, new HashSet<String>());
+			}
+		}
+		try {
+			for(int i=0; i<batch.size(); i++){
+				T t = batch.get(i);
+				if(!CheckAnnotationConstraints(t, (replacedElements == null) ? null : replacedElements.get(i))){
+					isAllPassed = false;
+				}
+				for(Map.Entry<Column, Set<String>> entry: batchKeys.entrySet()){
+					Column column = entry.getKey();
+					Object value = column.getGetter().get(t);
+					if(!entry.getValue().add(String.valueOf(value))){
+						errors.add(Kind.CONSTRAINT, "[Error] Duplicate entry, Field ["+column.getName()+" ("+(column.isPrimaryKey() ? "@PrimaryKey" : "@Unique")+") = "+value+"] is given twice in the batch.");
+						isAllPassed = false;
+					}
+				}
+			}
+		} catch (InvocationTargetException e) {
+			errors.add(e);
+			return false;
 		}
-		filteringRecords = new ArrayList<T>();
-		resultRecords = new ArrayList<T>();
-		
 		return isAllPassed;
 	}
 	
+	// CheckAnnotationConstraints() timed as a CONSTRAINT_CHECK
+	protected boolean checkConstraints(T t, T replacedElement){
+		long start = System.nanoTime();
+		try {
+			return CheckAnnotationConstraints(t, replacedElement);
+		} finally {
+			timed(Operation.CONSTRAINT_CHECK, start);
+		}
+	}
+	
+	protected boolean checkConstraints(List<T> batch, List<T> replacedElements){
+		long start = System.nanoTime();
+		try {
+			return CheckAnnotationConstraints(batch, replacedElements);
+		} finally {
+			timed(Operation.CONSTRAINT_CHECK, start);
+		}
+	}
+	
+	// false to skip the constraints of a column
+	protected boolean isChecked(Column column){
+		return true;
+	}
+	
+	protected boolean isDuplicate(Column column, Object value, T replacedElement){
+		for(T valueInRecords: indexes.getUniqueIndex(column.getName()).getAll(String.valueOf(value))){
+			if(valueInRecords != replacedElement){
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	public void insert(T t){
-		if(CheckAnnotationConstraints(t)){
-			records.add(t);
+		long start = System.nanoTime();
+		if(checkConstraints(t, null)){
+			addRecord(t);
+			onInsert(t);
 		} else {
-			ErrorsHelper.setErrorMessageAndPrintToConsole("[Error] Data can't be inserted.");
+			errors.add(Kind.FAILED, "[Error] Data can't be inserted.");
 		}
+		changed(Operation.INSERT, start);
 	}
 	
+	// Only the first record equal to oldElement is replaced, as ColumnarModel does: copies of newElement
+	// would share its @PrimaryKey, which the unique indexes hold once
 	public void update(T oldElement, T newElement){
-		if(CheckAnnotationConstraints(newElement)){
-			Collections.replaceAll(records, oldElement, newElement);
+		long start = System.nanoTime();
+		if(checkConstraints(newElement, findRecord(oldElement))){
+			try {
+				for(ListIterator<T> it = records.listIterator(); it.hasNext();){
+					T r = it.next();
+					if(oldElement == null ? r == null : oldElement.equals(r)){
+						indexes.replace(r, newElement);
+						it.set(newElement);
+						onUpdate(r, newElement);
+						break;
+					}
+				}
+			} catch (InvocationTargetException e) {
+				errors.add(e);
+			}
 		} else {
-			ErrorsHelper.setErrorMessageAndPrintToConsole("[Error] Data can't be updated.");
+			errors.add(Kind.FAILED, "[Error] Data can't be updated.");
 		}
+		changed(Operation.UPDATE, start);
 	}
 	
-	public void delete(){
-		records.removeAll(resultRecords);
-		filteringRecords = new ArrayList<T>();
-		resultRecords = new ArrayList<T>();
+	// Insert every record or none of them, the batch is checked before any record is added
+	public void insertAll(Collection<T> newElements){
+		long start = System.nanoTime();
+		List<T> batch = new ArrayList<T>(newElements);
+		if(checkConstraints(batch, null)){
+			for(T t: batch){
+				addRecord(t);
+				onInsert(t);
+			}
+		} else {
+			errors.add(Kind.FAILED, "[Error] Data can't be inserted.");
+		}
+		changed(Operation.INSERT, start);
 	}
 	
-	public void delete(T t){
-		records.remove(t);
-		filteringRecords = new ArrayList<T>();
-		resultRecords = new ArrayList<T>();
+	// Replace the records having the @PrimaryKey of the given ones, every one of them or none, in one pass over the records
+	public void updateAll(Collection<T> newElements){
+		long start = System.nanoTime();
+		try {
+			updateBatch(new ArrayList<T>(newElements));
+		} finally {
+			changed(Operation.UPDATE, start);
+		}
 	}
-
-	public Model<T> where(T t) {
-		if(filteringRecords.isEmpty() || orWhere){
-			filteringRecords = records;
+	
+	private void updateBatch(List<T> batch){
+		List<T> replaced = findByPrimaryKey(batch);
+		boolean isFound = replaced != null;
+		for(int i=0; replaced != null && i<batch.size(); i++){
+			if(replaced.get(i) == null){
+				reportNotFound(batch.get(i));
+				isFound = false;
+			}
 		}
-		
-		if(andWhere){
-			filteringRecords = resultRecords;
-			resultRecords = new ArrayList<T>();
+		if(!isFound || !checkConstraints(batch, replaced)){
+			errors.add(Kind.FAILED, "[Error] Data can't be updated.");
+			return;
 		}
-		if(!orWhere){
-			resultRecords = new ArrayList<T>();
+		Map<T, T> replacements = new IdentityHashMap<T, T>();
+		for(int i=0; i<batch.size(); i++){
+			replacements.put(replaced.get(i), batch.get(i));
 		}
-		
-		for(T object: filteringRecords){
-			Method[] methods = object.getClass().getDeclaredMethods();
-			int objectsCount = 0;
-			int objectEqualCount = 0; // Count not_null object of t
-			for(Method method: methods){
-				if(method.getName().contains("get")){
-					try {
-						Object tValue = t.getClass().getMethod(method.getName(), method.getParameterTypes()).invoke(t, null);
-						Object objectValue = method.invoke(object, null);
-						if(tValue != null){
-							if(tValue.equals(objectValue)){
-								objectEqualCount++;
-							}
-						} else {
-							objectEqualCount++;
-						}
-					} catch (IllegalAccessException e) {
-						ErrorsHelper.addSuppressedAndPrintStackTree(e);
-					} catch (IllegalArgumentException e) {
-						ErrorsHelper.addSuppressedAndPrintStackTree(e);
-					} catch (InvocationTargetException e) {
-						ErrorsHelper.addSuppressedAndPrintStackTree(e);
-					} catch (NoSuchMethodException e) {
-						ErrorsHelper.addSuppressedAndPrintStackTree(e);
-					} catch (SecurityException e) {
-						ErrorsHelper.addSuppressedAndPrintStackTree(e);
-					}
-					objectsCount++;
-				}
-			}
-			if(objectsCount==objectEqualCount){
-				if(!resultRecords.contains(object)){
-					resultRecords.add(object);
+		try {
+			for(ListIterator<T> it = records.listIterator(); it.hasNext();){
+				T r = it.next();
+				T newElement = replacements.get(r);
+				if(newElement != null){
+					indexes.replace(r, newElement);
+					it.set(newElement);
+					onUpdate(r, newElement);
 				}
 			}
+		} catch (InvocationTargetException e) {
+			errors.add(e);
 		}
-		
-		return this;
 	}
 	
-	public Model<T> where(String columnName, Model.Operator operator, String value) {
-		Method[] methods = entityClass.getDeclaredMethods();
-		Integer indexOfWantedMethod = null;
-		Class<?>[] parameterType = null;
-		
-		for(int i=0; i<methods.length;i++){
-			if(methods[i].getName().equalsIgnoreCase("get"+columnName)){
-				indexOfWantedMethod = i;
-				parameterType = methods[i].getParameterTypes();
+	// Delete the records having the @PrimaryKey of the given ones, in one pass over the records
+	public void deleteAll(Collection<T> elements){
+		long start = System.nanoTime();
+		List<T> found = findByPrimaryKey(new ArrayList<T>(elements));
+		if(found != null){
+			found.removeAll(Collections.singleton(null));
+			if(!found.isEmpty()){
+				deleteRecords(found);
 			}
 		}
-		if(indexOfWantedMethod != null){
-			if(filteringRecords.isEmpty()){
-				filteringRecords = records;
-			}
-			
-			if(andWhere){
-				filteringRecords = resultRecords;
-				resultRecords = new ArrayList<T>();
-			}
-			if(!orWhere){
-				resultRecords = new ArrayList<T>();
+		changed(Operation.DELETE, start);
+	}
+	
+	// Records are found by @PrimaryKey in updateAll() and deleteAll(), null if the entity has none
+	protected Column getPrimaryKey(){
+		Column primaryKey = metadata.getPrimaryKey();
+		if(primaryKey == null || primaryKey.getGetter() == null){
+			errors.add(Kind.ENTITY, "[Error] @PrimaryKey with a getter should be defined once in "+entityClass.getSimpleName()+".class to find the records.");
+			return null;
+		}
+		return primaryKey;
+	}
+	
+	// A record of updateAll() without stored record
+	protected void reportNotFound(T t){
+		try {
+			errors.add(Kind.USAGE, "[Error] Record with Field ["+metadata.getPrimaryKey().getName()+" (@PrimaryKey) = "+metadata.getPrimaryKey().getGetter().get(t)+"] not found.");
+		} catch (InvocationTargetException e) {
+			errors.add(e);
+		}
+	}
+	
+	// Stored record with the @PrimaryKey of each given one, null where there is none
+	private List<T> findByPrimaryKey(List<T> batch){
+		Column primaryKey = getPrimaryKey();
+		if(primaryKey == null){
+			return null;
+		}
+		List<T> found = new ArrayList<T>();
+		try {
+			UniqueIndex<T> index = indexes.getUniqueIndex(primaryKey.getName());
+			for(T t: batch){
+				found.add(index.get(index.keyOf(t)));
 			}
-			
-			for(T r: filteringRecords){
+		} catch (InvocationTargetException e) {
+			errors.add(e);
+			return null;
+		}
+		return found;
+	}
+	
+	// The stored record equal to t, looked up by primary key when possible
+	private T findRecord(T t){
+		if(t == null){
+			return null;
+		}
+		for(Column column: metadata.getColumns()){
+			if(column.isPrimaryKey() && column.getGetter() != null){
 				try {
-					Method method = r.getClass().getMethod(methods[indexOfWantedMethod].getName(), parameterType);
-					String valueOfInvokedMethod = String.valueOf(method.invoke(r, null));
-					
-					if(operator.equals(Operator.CONTAINS) && valueOfInvokedMethod.toLowerCase().contains(value.toLowerCase())){
-						if(!resultRecords.contains(r)){
-							resultRecords.add(r);
-						}
-					} else if(operator.equals(Operator.NOT_CONTAINS) && !valueOfInvokedMethod.toLowerCase().contains(value.toLowerCase())){
-						if(!resultRecords.contains(r) || resultRecords.isEmpty()){
-							resultRecords.add(r);
-						}
-					} else if(operator.equals(Operator.EQUALS) && valueOfInvokedMethod.equals(value)){
-						if(!resultRecords.contains(r) || resultRecords.isEmpty()){
-							resultRecords.add(r);
-						}
-					} else if(operator.equals(Operator.NOT_EQUALS) && !valueOfInvokedMethod.equals(value)){
-						if(!resultRecords.contains(r) || resultRecords.isEmpty()){
-							resultRecords.add(r);
-						}
-					}  else if(operator.equals(Operator.EQUALS_IGNORE_CASE) && valueOfInvokedMethod.toLowerCase().equals(value.toLowerCase())){
-						if(!resultRecords.contains(r) || resultRecords.isEmpty()){
-							resultRecords.add(r);
-						}
-					} else if(operator.equals(Operator.NOT_EQUALS_IGNORE_CASE) && !valueOfInvokedMethod.toLowerCase().equals(value.toLowerCase())){
-						if(!resultRecords.contains(r) || resultRecords.isEmpty()){
-							resultRecords.add(r);
-						}
-					} else if(operator.equals(Operator.BETWEEN) || operator.equals(Operator.NOT_BETWEEN)){
-						String[] values = value.toLowerCase().split("and");
-						Double value1 = Double.parseDouble(values[0].trim());
-						Double value2 = Double.parseDouble(values[1].trim());
-						Double valCompare = Double.parseDouble(valueOfInvokedMethod);
-						
-						if(operator.equals(Operator.BETWEEN) && (valCompare >= value1 && valCompare <= value2)){
-							if(!resultRecords.contains(r) || resultRecords.isEmpty()){
-								resultRecords.add(r);
-							}
-						} else if(operator.equals(Operator.NOT_BETWEEN) && (valCompare <= value1 || valCompare >= value2)) {
-							if(!resultRecords.contains(r) || resultRecords.isEmpty()){
-								resultRecords.add(r);
-							}
-						}
-					} else if(operator.equals(Operator.IN) || operator.equals(Operator.NOT_IN)){
-						String[] input = value.split(","+REGEX_ESCAPE_QUOTE);
-						if(operator.equals(Operator.IN) && Arrays.asList(input).contains(valueOfInvokedMethod)){
-							if(!resultRecords.contains(r)){
-								resultRecords.add(r);
-							}
-						} else if(operator.equals(Operator.NOT_IN) && !Arrays.asList(input).contains(valueOfInvokedMethod)){
-							if(!resultRecords.contains(r)){
-								resultRecords.add(r);
-							}
-						}
+					UniqueIndex<T> index = indexes.getUniqueIndex(column.getName());
+					T r = index.get(index.keyOf(t));
+					if(r != null && t.equals(r)){
+						return r;
 					}
-				} catch (NoSuchMethodException e) {
-					ErrorsHelper.addSuppressedAndPrintStackTree(e);
-				} catch (SecurityException e) {
-					ErrorsHelper.addSuppressedAndPrintStackTree(e);
-				} catch (IllegalAccessException e) {
-					ErrorsHelper.addSuppressedAndPrintStackTree(e);
-				} catch (IllegalArgumentException e) {
-					ErrorsHelper.addSuppressedAndPrintStackTree(e);
 				} catch (InvocationTargetException e) {
-					ErrorsHelper.addSuppressedAndPrintStackTree(e);
+					errors.add(e);
 				}
 			}
-		} else {
-			ErrorsHelper.setErrorMessageAndPrintToConsole("[Error] columName not found.");
 		}
-		return this;
+		int i = records.indexOf(t);
+		return (i < 0) ? null : records.get(i);
 	}
-
-	public Model<T> orWhere(T t) {
-		orWhere = true;
-		where(t);
-		orWhere = false;
-		return this;
+	
+	// Only a query deletes its matches, model.where(...); model.delete(); must not delete every record
+	public void delete(){
+		errors.add(Kind.USAGE, "[Error] delete() deletes the records of a query, call it after where() or use deleteAll().");
 	}
-	public Model<T> orWhere(String columnName, Model.Operator operator, String value) {
-		orWhere = true;
-		where(columnName, operator, value);
-		orWhere = false;
-		return this;
+	
+	public void delete(T t){
+		long start = System.nanoTime();
+		int i = records.indexOf(t);
+		if(i >= 0){
+			T r = records.remove(i);
+			indexes.remove(r);
+			onDelete(r);
+		}
+		changed(Operation.DELETE, start);
 	}
 	
-	public Model<T> andWhere(T t) {
-		andWhere = true;
-		where(t);
-		andWhere = false;
-		return this;
+	// Remove the given records in one pass over the records
+	protected void deleteRecords(Collection<T> deletedRecords){
+		Set<T> deleted = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+		deleted.addAll(deletedRecords);
+		if(deleted.size() == records.size()){
+			records.clear();
+			indexes.clear();
+			onDeleteAll();
+			return;
+		}
+		records.removeAll(deleted);
+		for(T r: deleted){
+			indexes.remove(r);
+			onDelete(r);
+		}
 	}
-
-	public Model<T> andWhere(String columnName, Model.Operator operator, String value) {
-		andWhere = true;
-		where(columnName, operator, value);
-		andWhere = false;
+	
+	// Delete every record matching the query
+	protected void deleteMatches(Query<T> query){
+		long start = System.nanoTime();
+		deleteRecords(select(query));
+		changed(Operation.DELETE, start);
+	}
+	
+	// Called after a record is inserted, updated or deleted, CSVModel journals them
+	protected void onInsert(T t){
+	}
+	
+	protected void onUpdate(T oldRecord, T newRecord){
+	}
+	
+	protected void onDelete(T t){
+	}
+	
+	protected void onDeleteAll(){
+	}
+	
+	// Evaluate queries without limit() on the records split across a ForkJoinPool, parallelism <= 1 turns it off
+	public GenericModel<T> parallel(int parallelism){
+		parallel((parallelism > 1) ? new ForkJoinPool(parallelism) : null);
+		isOwnPool = (pool != null);
 		return this;
 	}
-
-	public Model<T> limit(int min) {
-		limit(0, min);
+	
+	// A pool given here is left running, the caller shares and shuts it down
+	public GenericModel<T> parallel(ForkJoinPool pool){
+		if(isOwnPool && this.pool != pool){
+			this.pool.shutdown(); // queries running on it finish, snapshots still holding it scan sequentially
+		}
+		isOwnPool = false;
+		this.pool = pool;
 		return this;
 	}
-
-	public Model<T> limit(int min, int max) {
-		List<T> limitedRecord = new ArrayList<T>();
-		if(resultRecords.isEmpty()){
-			resultRecords = filteringRecords;
+	
+	// Records matching the query, in records order or in the order of its orderBy()
+	protected List<T> select(Query<T> query){
+		if(query.getOrdering() != null){
+			return selectOrdered(query);
 		}
-		if(min <= 0){
-			min = 1;
+		if(pool != null && query.getOffset() == 0 && query.getEnd() == Integer.MAX_VALUE){
+			List<T> candidates = (query.getSource() == null) ? candidates(query.getCriteria()) : select(query.getSource());
+			if(ParallelScan.isWorthIt(pool, candidates)){
+				List<T> selected = ParallelScan.select(pool, candidates, query.getCriteria(), errors);
+				metrics.rows(candidates.size(), selected.size());
+				return selected;
+			}
 		}
-		if(max < 0){
-			max = 1;
+		List<T> selected = new ArrayList<T>();
+		QueryIterator<T> it = newIterator(query);
+		while(it.hasNext()){
+			selected.add(it.next());
 		}
-		if(max > resultRecords.size()){
-			max = resultRecords.size();
+		metrics.rows(it.getScanned(), selected.size());
+		return selected;
+	}
+	
+	// A limited query ordered by a column with a sorted index reads the index in order and stops at the limit,
+	// unless another index finds the candidates. The other queries keep the best matches in a bounded heap
+	private List<T> selectOrdered(Query<T> query){
+		Ordering<T> ordering = query.getOrdering();
+		boolean isIndexOrdered = query.getSource() == null && query.getEnd() < Integer.MAX_VALUE
+				&& (query.getCriteria() == null || !QueryPlanner.isIndexed(query.getCriteria(), indexes));
+		Iterator<List<T>> buckets = isIndexOrdered ? indexes.inOrder(ordering.getColumnName(0), ordering.isDescending(0)) : null;
+		if(buckets != null){
+			metrics.index(true);
+			List<T> selected = new ArrayList<T>();
+			QueryIterator<T> it = new QueryIterator<T>(new IndexOrder<T>(buckets, records, ordering, errors), query.getCriteria(), query.getOffset(), query.getEnd(), errors);
+			while(it.hasNext()){
+				selected.add(it.next());
+			}
+			metrics.rows(it.getScanned(), selected.size());
+			return selected;
 		}
-		for(int i=min-1;i<max;i++){
-			limitedRecord.add(resultRecords.get(i));
+		List<T> matches = select(query.unordered());
+		try {
+			List<T> sorted = ordering.sort(matches, query.getEnd());
+			return new ArrayList<T>(sorted.subList(Math.min(query.getOffset(), sorted.size()), sorted.size()));
+		} catch (InvocationTargetException e) {
+			errors.add(e);
+			return new ArrayList<T>();
 		}
-		resultRecords = limitedRecord;
-		return this;
 	}
-
-	public List<T> toList() {
-		if(records.isEmpty()){
-			ErrorsHelper.setErrorMessageAndPrintToConsole("[Error] Records is Empty. Have you call startMapping() method?");
-			return null;
-		} else if(resultRecords.isEmpty() && filteringRecords.isEmpty()){
-			resultRecords = records;
+	
+	// select() served from the cache when the records didn't change since the same query
+	protected List<T> cachedSelect(Query<T> query){
+		QueryCache<T> cache = this.cache;
+		if(cache == null){
+			return select(query);
 		}
-		
-		if(resultRecords.isEmpty()){
-			return null;
-		} else {
-			return resultRecords;
+		long version = version(); // read first, a result of newer records is cached as an older one, never the other way
+		List<T> cached = cache.get(query.getKey(), version);
+		metrics.cache(cached != null);
+		if(cached != null){
+			return cached;
 		}
+		List<T> selected = select(query);
+		cache.put(query.getKey(), version, selected);
+		return selected;
 	}
-
-	public T toSingle() {
-		if(records.isEmpty()){
-			ErrorsHelper.setErrorMessageAndPrintToConsole("[Error] Records is Empty. Have you call startMapping() method?");
-			return null;
-		} else if(resultRecords.isEmpty() && filteringRecords.isEmpty()){
-			resultRecords = records;
-		}
-		
-		if(resultRecords.isEmpty()){
-			return null;
+	
+	// Lazy evaluation of the query, every condition is checked on each candidate when it is reached.
+	// An ordered query is evaluated first
+	protected Iterator<T> iterator(Query<T> query){
+		return (query.getOrdering() != null) ? select(query).iterator() : newIterator(query);
+	}
+	
+	private QueryIterator<T> newIterator(Query<T> query){
+		Iterator<T> candidates;
+		if(query.getSource() == null){
+			candidates = candidates(query.getCriteria()).iterator();
+		} else if(query.getSource().getOrdering() != null){
+			candidates = select(query.getSource()).iterator();
 		} else {
-			return resultRecords.get(0);
+			candidates = newIterator(query.getSource());
 		}
+		return new QueryIterator<T>(candidates, query.getCriteria(), query.getOffset(), query.getEnd(), errors);
 	}
-
+	
+	// Records returned by the planner, or every record
+	private List<T> candidates(Criteria<T> criteria){
+		List<T> indexed = (criteria == null) ? null : QueryPlanner.candidates(criteria, indexes);
+		if(criteria != null){
+			metrics.index(indexed != null);
+		}
+		return (indexed == null) ? records : indexed;
+	}
+	
+	public Model<T> where(T t) {
+		return new Query<T>(this).andWhere(t);
+	}
+	
+	public Model<T> where(String columnName, Model.Operator operator, String value) {
+		return new Query<T>(this).andWhere(columnName, operator, value);
+	}
+	
+	public Model<T> orWhere(T t) {
+		return where(t);
+	}
+	
+	public Model<T> orWhere(String columnName, Model.Operator operator, String value) {
+		return where(columnName, operator, value);
+	}
+	
+	public Model<T> andWhere(T t) {
+		return where(t);
+	}
+	
+	public Model<T> andWhere(String columnName, Model.Operator operator, String value) {
+		return where(columnName, operator, value);
+	}
+	
+	public Model<T> limit(int min) {
+		return new Query<T>(this).limit(min);
+	}
+	
+	public Model<T> limit(int min, int max) {
+		return new Query<T>(this).limit(min, max);
+	}
+	
+	public Model<T> orderBy(String columnName) {
+		return new Query<T>(this).orderBy(columnName);
+	}
+	
+	public Model<T> orderBy(String columnName, Model.Direction direction) {
+		return new Query<T>(this).orderBy(columnName, direction);
+	}
+	
+	public List<T> toList() {
+		return new Query<T>(this).toList();
+	}
+	
+	public T toSingle() {
+		return new Query<T>(this).toSingle();
+	}
+	
+	public Iterator<T> toIterator() {
+		return new Query<T>(this).toIterator();
+	}
+	
+	public Stream<T> toStream() {
+		return new Query<T>(this).toStream();
+	}
+	
 	// Override by CSVModel and SERModel
 	public void save() {
-		ErrorsHelper.setErrorMessageAndPrintToConsole("[Error] try call exportToCSV() or exportToSER() instead.");
+		errors.add(Kind.USAGE, "[Error] try call exportToCSV(), exportToSER() or exportToBinary() instead.");
 	}
 	
 	public void exportToCSV(String fileLocation){
+		exportToCSV(fileLocation, ",");
+	}
+	
+	protected void exportToCSV(String fileLocation, String delimiter){
+		long start = System.nanoTime();
+		this.fileLocation = fileLocation;
 		try {
-			this.fileLocation = fileLocation;
-			PrintWriter pw = new PrintWriter(new FileWriter(new File(Helper.filePath(fileLocation)+Helper.fileName(fileLocation)+((Helper.fileExtension(fileLocation) == "") ? "" : ".csv"))));
-			String line = "";
-			for(int i=0;i<columnNamesInCSV.length;i++){
-				line = line +columnNamesInCSV[i];
-				if(i!=columnNamesInCSV.length-1){
-					line = line + ",";
-				}
-			}
-			pw.println(line); //Write columnNames
+			writeCSV(new File(Helper.filePath(fileLocation)+Helper.fileName(fileLocation)+((Helper.fileExtension(fileLocation) == "") ? "" : ".csv")), delimiter, records);
+		} catch (IOException e) {
+			errors.add(Kind.FILE, "[Error] File Not Found.");
+		}
+		timed(Operation.WRITE, start);
+	}
+	
+	// Stream the records to the file, with a header
+	protected void writeCSV(File file, String delimiter, List<T> records) throws IOException {
+		CSVWriter writer = new CSVWriter(new FileWriter(file), delimiter);
+		try {
+			writer.writeRecord(getExportedColumns()); //Write columnNames
+			Accessor[] getters = getExportedGetters();
 			for(T r: records){
-				line = "";
-				for(int i=0; i<columnNames.length;i++){ // Write according to column's sorting, reflection method not consistently ordered as declared
-					for(Method m: r.getClass().getDeclaredMethods()){
-						if(m.getName().toLowerCase().equals("get"+columnNames[i])){
-							try {
-								String invokedValue = String.valueOf(m.invoke(r, null));
-								if(invokedValue.contains(",")){
-									invokedValue = "\"" + invokedValue + "\"";
-								}
-								line = line + invokedValue;
-								if(i != columnNames.length-1){
-									line = line + ",";
-								}
-							} catch (IllegalAccessException e) {
-								ErrorsHelper.addSuppressedAndPrintStackTree(e);
-							} catch (IllegalArgumentException e) {
-								ErrorsHelper.addSuppressedAndPrintStackTree(e);
-							} catch (InvocationTargetException e) {
-								ErrorsHelper.addSuppressedAndPrintStackTree(e);
-							}
-						}
-					}
+				writer.writeRecord(toRow(r, getters)); //Write Data
+			}
+		} finally {
+			writer.close();
+		}
+		metrics.bytesWritten(file.length());
+	}
+	
+	// Columns of an exported csv file: those of the mapped csv file, or else the entity fields
+	protected String[] getExportedColumns(){
+		if(columnNamesInCSV != null){
+			return columnNamesInCSV;
+		}
+		List<Column> columns = metadata.getColumns();
+		String[] header = new String[columns.size()];
+		for(int i=0; i<header.length; i++){
+			header[i] = columns.get(i).getName();
+		}
+		return header;
+	}
+	
+	// Getters of the exported columns, null for a column without getter
+	protected Accessor[] getExportedGetters(){
+		String[] names = (columnNames == null) ? getExportedColumns() : columnNames;
+		Accessor[] getters = new Accessor[names.length]; // Write according to column's sorting, reflection method not consistently ordered as declared
+		for(int i=0; i<names.length;i++){
+			getters[i] = metadata.getGetter(names[i]);
+		}
+		return getters;
+	}
+	
+	// Values of the exported columns, empty for a column without getter
+	protected String[] toRow(T r, Accessor[] getters){
+		String[] row = new String[getters.length];
+		for(int i=0; i<getters.length;i++){
+			row[i] = "";
+			if(getters[i] != null){
+				try {
+					row[i] = String.valueOf(getters[i].get(r));
+				} catch (InvocationTargetException e) {
+					errors.add(e);
 				}
-				pw.println(line); //Write Data
 			}
-			pw.flush();
-			pw.close();
-		} catch (IOException e) {
-			ErrorsHelper.setErrorMessageAndPrintToConsole("[Error] File Not Found.");
 		}
+		return row;
 	}
 	
 	public void exportToSER(String fileLocation){
+		long start = System.nanoTime();
 		this.fileLocation = fileLocation;
 		File serFile = new File(Helper.filePath(fileLocation)+Helper.fileName(fileLocation)+((Helper.fileExtension(fileLocation) == "") ? "" : ".ser"));
 		try {
@@ -453,13 +795,54 @@ public class GenericModel<T> implements Model<T> {
 			out.writeObject(records);
 			out.close();
 			fout.close();
+			metrics.bytesWritten(serFile.length());
 		} catch (NotSerializableException e){
 			serFile.delete();
-			ErrorsHelper.setErrorMessageAndPrintToConsole("[Error] " + entityClass.getName()+" is not implementing java.io.Serializable");
+			errors.add(Kind.ENTITY, "[Error] " + entityClass.getName()+" is not implementing java.io.Serializable");
 		} catch (FileNotFoundException e) {
-			ErrorsHelper.setErrorMessageAndPrintToConsole("[Error] File "+Helper.fileName(fileLocation)+".ser can't be created. Access denied.");
+			errors.add(Kind.FILE, "[Error] File "+Helper.fileName(fileLocation)+".ser can't be created. Access denied.");
+		} catch (IOException e) {
+			errors.add(Kind.FILE, "[Error] File "+Helper.fileName(fileLocation)+".ser can't be accessed.");
+		}
+		timed(Operation.WRITE, start);
+	}
+	
+	public void exportToBinary(String fileLocation){
+		exportToBinary(fileLocation, false);
+	}
+	
+	// Columnar file of every field with a getter, see BinaryModel
+	protected void exportToBinary(String fileLocation, boolean isCompressed){
+		long start = System.nanoTime();
+		this.fileLocation = fileLocation;
+		File binFile = new File(Helper.filePath(fileLocation)+Helper.fileName(fileLocation)+((Helper.fileExtension(fileLocation) == "") ? "" : ".bin"));
+		try {
+			writeBinary(binFile, isCompressed);
+		} finally {
+			timed(Operation.WRITE, start);
+		}
+	}
+	
+	private void writeBinary(File binFile, boolean isCompressed){
+		try {
+			List<ColumnBlock> blocks = new ArrayList<ColumnBlock>();
+			for(Column column: metadata.getColumns()){
+				if(column.getGetter() == null){
+					continue;
+				}
+				ColumnType type = ColumnType.of(column.getType());
+				if(type == null){
+					errors.add(Kind.ENTITY, "[Error] Field ["+column.getName()+"] of type "+column.getType().getSimpleName()+" can't be written in a binary file.");
+					return;
+				}
+				blocks.add(ColumnBlock.collect(column.getName(), type, BinaryFile.flagsOf(column), column.getGetter(), records));
+			}
+			BinaryFile.write(binFile, blocks, records.size(), isCompressed);
+			metrics.bytesWritten(binFile.length());
+		} catch (InvocationTargetException e) {
+			errors.add(e);
 		} catch (IOException e) {
-			ErrorsHelper.setErrorMessageAndPrintToConsole("[Error] File "+Helper.fileName(fileLocation)+".ser can't be accessed.");
+			errors.add(Kind.FILE, "[Error] File "+Helper.fileName(fileLocation)+".bin can't be created. Access denied.");
 		}
 	}
 }
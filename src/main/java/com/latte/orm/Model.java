@@ -2,7 +2,12 @@ package com.latte.orm;
 /**
  * @author hikmatullohhari
  */
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
+
+import com.latte.orm.helpers.Errors;
 
 public interface Model<T> {
 	public static enum Operator {
@@ -12,11 +17,19 @@ public interface Model<T> {
 	// [BETWEEN, NOT_BETWEEN] format: "value2 and value2" (values should be type Numeric)
 	// [IN, NOT_IN] format: "value1,value2,value3,value_n" (values can be String or Numeric)
 	
+	// Of orderBy(), nulls come last in both
+	public static enum Direction {
+		ASC, DESC
+	};
+	
 	public Model<T> startMapping();
 	public void insert(T t);
 	public void update(T oldElement, T newElement);
 	public void delete(T t);
 	public void delete();
+	public void insertAll(Collection<T> newElements);
+	public void updateAll(Collection<T> newElements);
+	public void deleteAll(Collection<T> elements);
 	public Model<T> where(T t);
 	public Model<T> where(String columnName, Operator Operator, String value);
 	public Model<T> orWhere(T t);
@@ -25,9 +38,15 @@ public interface Model<T> {
 	public Model<T> andWhere(String columnName, Operator Operator, String value);
 	public Model<T> limit(int min);
 	public Model<T> limit(int min, int max);
+	public Model<T> orderBy(String columnName);
+	public Model<T> orderBy(String columnName, Direction direction);
 	public List<T> toList();
 	public T toSingle();
+	public Iterator<T> toIterator();
+	public Stream<T> toStream();
 	public void save();
 	public void exportToCSV(String fileLocation);
 	public void exportToSER(String fileLocation);
+	public void exportToBinary(String fileLocation);
+	public Errors getErrors();
 }
@@ -0,0 +1,321 @@
+package com.latte.orm;
+/**
+ * @author hikmatullohhari
+ */
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.latte.orm.columnar.Bitmaps;
+import com.latte.orm.columnar.ColumnStore;
+import com.latte.orm.helpers.Accessor;
+import com.latte.orm.helpers.Errors;
+import com.latte.orm.helpers.ModelError.Kind;
+import com.latte.orm.index.Indexes;
+import com.latte.orm.metrics.Operation;
+import com.latte.orm.query.ColumnCondition;
+import com.latte.orm.query.Condition;
+import com.latte.orm.query.Criteria;
+import com.latte.orm.query.ExampleCondition;
+import com.latte.orm.query.Ordering;
+
+// Immutable result of where(), andWhere(), orWhere() and limit(): every call returns a new Query,
+// records are only read when toList(), toSingle() or delete() is called
+public class Query<T> implements Model<T> {
+	private final GenericModel<T> model;
+	private final Query<T> source; // records filtered by this query, null for every record of the model
+	private final Criteria<T> criteria;
+	private final int offset;
+	private final int end;
+	private final Ordering<T> ordering; // of the matches, before offset and end. null for records order
+	
+	Query(GenericModel<T> model){
+		this(model, null, null, 0, Integer.MAX_VALUE, null);
+	}
+	
+	private Query(GenericModel<T> model, Query<T> source, Criteria<T> criteria, int offset, int end, Ordering<T> ordering){
+		this.model = model;
+		this.source = source;
+		this.criteria = criteria;
+		this.offset = offset;
+		this.end = end;
+		this.ordering = ordering;
+	}
+	
+	Query<T> getSource(){
+		return source;
+	}
+	
+	Criteria<T> getCriteria(){
+		return criteria;
+	}
+	
+	// Number of matches skipped
+	int getOffset(){
+		return offset;
+	}
+	
+	// Number of matches after which the evaluation stops
+	int getEnd(){
+		return end;
+	}
+	
+	Ordering<T> getOrdering(){
+		return ordering;
+	}
+	
+	// The records come in the order of an orderBy() of this query or of a source query
+	boolean isOrdered(){
+		return ordering != null || (source != null && source.isOrdered());
+	}
+	
+	// Every match in records order, the matches ordering sorts
+	Query<T> unordered(){
+		return new Query<T>(model, source, criteria, 0, Integer.MAX_VALUE, null);
+	}
+	
+	// Equal for queries with the same conditions, order and limits on the same model, see QueryCache
+	Object getKey(){
+		return Arrays.<Object>asList((source == null) ? null : source.getKey(), criteria, ordering, offset, end);
+	}
+	
+	private boolean isLimited(){
+		return offset > 0 || end < Integer.MAX_VALUE;
+	}
+	
+	private Query<T> filter(Condition<T> condition, boolean or){
+		if(isLimited()){ // conditions after limit() filter the limited records
+			return new Query<T>(model, this, new Criteria<T>(condition), 0, Integer.MAX_VALUE, null);
+		}
+		Criteria<T> filtered;
+		if(criteria == null){
+			filtered = new Criteria<T>(condition);
+		} else {
+			filtered = or ? criteria.or(condition) : criteria.and(condition);
+		}
+		return new Query<T>(model, source, filtered, offset, end, ordering);
+	}
+	
+	private Condition<T> condition(T t){
+		try {
+			return new ExampleCondition<T>(t, model.metadata);
+		} catch (InvocationTargetException e) {
+			model.errors.add(e);
+			return new NoMatch<T>();
+		}
+	}
+	
+	private Condition<T> condition(String columnName, Operator operator, String value){
+		Accessor getter = model.metadata.getGetter(columnName);
+		if(getter == null){
+			model.errors.add(Kind.USAGE, "[Error] columName not found.");
+			return new NoMatch<T>();
+		}
+		if((operator == Operator.BETWEEN || operator == Operator.NOT_BETWEEN) && ColumnCondition.range(value) == null){
+			model.errors.add(Kind.USAGE, "[Error] Value ["+value+"] of "+operator+" should be two numbers joined by \"and\", as \"100 and 200\".");
+			return new NoMatch<T>();
+		}
+		return new ColumnCondition<T>(columnName, operator, value, getter);
+	}
+	
+	// Condition of an invalid where(), matches no record
+	private static class NoMatch<T> implements Condition<T> {
+		public boolean matches(T t) {
+			return false;
+		}
+		public boolean matches(ColumnStore<T> columns, int row) {
+			return false;
+		}
+		public long[] select(ColumnStore<T> columns, long[] rows) {
+			return Bitmaps.empty(columns.size());
+		}
+		public int estimate(Indexes<T> indexes) {
+			return 0;
+		}
+		public List<T> lookup(Indexes<T> indexes) {
+			return new ArrayList<T>();
+		}
+		public Collection<String> getColumnNames() {
+			return Collections.emptyList();
+		}
+		@Override
+		public boolean equals(Object o){
+			return o instanceof NoMatch;
+		}
+		@Override
+		public int hashCode(){
+			return 0;
+		}
+		@Override
+		public String toString(){
+			return "nothing";
+		}
+	}
+	
+	public Model<T> startMapping() {
+		return model.startMapping();
+	}
+	
+	public void insert(T t) {
+		model.insert(t);
+	}
+	
+	public void update(T oldElement, T newElement) {
+		model.update(oldElement, newElement);
+	}
+	
+	public void delete(T t) {
+		model.delete(t);
+	}
+	
+	public void insertAll(Collection<T> newElements) {
+		model.insertAll(newElements);
+	}
+	
+	public void updateAll(Collection<T> newElements) {
+		model.updateAll(newElements);
+	}
+	
+	public void deleteAll(Collection<T> elements) {
+		model.deleteAll(elements);
+	}
+	
+	// Delete every record matching this query
+	public void delete() {
+		model.deleteMatches(this);
+	}
+	
+	// where() starts a new query
+	public Model<T> where(T t) {
+		return model.where(t);
+	}
+	
+	public Model<T> where(String columnName, Operator operator, String value) {
+		return model.where(columnName, operator, value);
+	}
+	
+	public Model<T> orWhere(T t) {
+		return filter(condition(t), true);
+	}
+	
+	public Model<T> orWhere(String columnName, Operator operator, String value) {
+		return filter(condition(columnName, operator, value), true);
+	}
+	
+	public Model<T> andWhere(T t) {
+		return filter(condition(t), false);
+	}
+	
+	public Model<T> andWhere(String columnName, Operator operator, String value) {
+		return filter(condition(columnName, operator, value), false);
+	}
+	
+	public Model<T> limit(int min) {
+		return limit(0, min);
+	}
+	
+	public Model<T> limit(int min, int max) {
+		return limited(min, max);
+	}
+	
+	// From the min-th to the max-th match, starting from 1
+	private Query<T> limited(int min, int max) {
+		if(min <= 0){
+			min = 1;
+		}
+		if(max < 0){
+			max = 1;
+		}
+		return new Query<T>(model, source, criteria, offset + min - 1, (int) Math.min((long) offset + max, end), ordering);
+	}
+	
+	public Model<T> orderBy(String columnName) {
+		return orderBy(columnName, Direction.ASC);
+	}
+	
+	// Records with equal values are ordered by the next orderBy(), then keep the records order
+	public Model<T> orderBy(String columnName, Direction direction) {
+		Accessor getter = model.metadata.getGetter(columnName);
+		if(getter == null){
+			model.errors.add(Kind.USAGE, "[Error] columName not found.");
+			return this;
+		}
+		if(!Ordering.isOrderable(getter.getType())){
+			model.errors.add(Kind.USAGE, "[Error] Field ["+columnName+"] can't be ordered, "+getter.getType().getSimpleName()+" isn't Comparable.");
+			return this;
+		}
+		boolean isDescending = (direction == Direction.DESC);
+		if(isLimited()){ // orders the limited records
+			return new Query<T>(model, this, null, 0, Integer.MAX_VALUE, new Ordering<T>(columnName, getter, isDescending));
+		}
+		Ordering<T> then = (ordering == null) ? new Ordering<T>(columnName, getter, isDescending) : ordering.then(columnName, getter, isDescending);
+		return new Query<T>(model, source, criteria, offset, end, then);
+	}
+	
+	public List<T> toList() {
+		GenericModel<T> reader = model.reader(); // the whole query reads the same records
+		if(reader.isEmpty()){
+			model.errors.add(Kind.USAGE, "[Error] Records is Empty. Have you call startMapping() method?");
+			return null;
+		}
+		long start = System.nanoTime();
+		List<T> resultRecords = reader.cachedSelect(this);
+		model.timed(Operation.QUERY, start);
+		return resultRecords.isEmpty() ? null : resultRecords;
+	}
+	
+	public T toSingle() {
+		GenericModel<T> reader = model.reader();
+		if(reader.isEmpty()){
+			model.errors.add(Kind.USAGE, "[Error] Records is Empty. Have you call startMapping() method?");
+			return null;
+		}
+		long start = System.nanoTime();
+		List<T> resultRecords = reader.cachedSelect(limited(1, 1)); // evaluated until the first match
+		model.timed(Operation.QUERY, start);
+		return resultRecords.isEmpty() ? null : resultRecords.get(0);
+	}
+	
+	// Matches are found while iterating, the records must not be modified meanwhile
+	public Iterator<T> toIterator() {
+		return model.iterator(this);
+	}
+	
+	public Stream<T> toStream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(toIterator(), Spliterator.ORDERED), false);
+	}
+	
+	public void save() {
+		model.save();
+	}
+	
+	public void exportToCSV(String fileLocation) {
+		model.exportToCSV(fileLocation);
+	}
+	
+	public void exportToSER(String fileLocation) {
+		model.exportToSER(fileLocation);
+	}
+	
+	public void exportToBinary(String fileLocation) {
+		model.exportToBinary(fileLocation);
+	}
+	
+	public Errors getErrors() {
+		return model.getErrors();
+	}
+	
+	@Override
+	public String toString(){
+		return "Query [" + ((source == null) ? "" : source + " then ") + ((criteria == null) ? "all" : criteria)
+				+ ((ordering == null) ? "" : " order by " + ordering) + (isLimited() ? " limit " + (offset + 1) + "," + end : "") + "]";
+	}
+}
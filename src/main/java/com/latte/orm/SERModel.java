@@ -8,8 +8,9 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.util.List;
 
-import com.latte.orm.helpers.ErrorsHelper;
 import com.latte.orm.helpers.Helper;
+import com.latte.orm.helpers.ModelError.Kind;
+import com.latte.orm.metrics.Operation;
 
 public class SERModel<T> extends GenericModel<T>{
 	public SERModel(Class<?> entityClass, String fileLocation) {
@@ -19,27 +20,30 @@ public class SERModel<T> extends GenericModel<T>{
 	@SuppressWarnings("unchecked")
 	@Override
 	public Model<T> startMapping(){
+		long start = System.nanoTime();
 		File serFile = new File(Helper.filePath(fileLocation)+Helper.fileName(fileLocation)+((Helper.fileExtension(fileLocation) == "") ? "" : ".ser"));
 		try {
 			FileInputStream fin = new FileInputStream(serFile);
 			ObjectInputStream in = new ObjectInputStream(fin);
-			records = (List<T>) in.readObject();
+			setRecords((List<T>) in.readObject());
 			in.close();
 			fin.close();
+			metrics.bytesRead(serFile.length());
 		} catch (ClassNotFoundException e) {
-			ErrorsHelper.addSuppressedAndPrintStackTree(e);
+			errors.add(e);
 		} catch (IOException e) {
-			ErrorsHelper.addSuppressedAndPrintStackTree(e);
+			errors.add(e);
 		}
+		changed(Operation.MAPPING, start);
 		return this;
 	}
 	
 	@Override
 	public void save(){
-		if(!ErrorsHelper.hasErrors()){
+		if(!errors.hasErrors()){
 			exportToSER(fileLocation);
 		} else {
-			ErrorsHelper.setErrorMessageAndPrintToConsole("[Error] errors found, save failed.");
+			errors.add(Kind.FAILED, "[Error] errors found, save failed.");
 		}
 	}
 }
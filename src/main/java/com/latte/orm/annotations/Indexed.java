@@ -0,0 +1,11 @@
+package com.latte.orm.annotations;
+/**
+ * @author hikmatullohhari
+ */
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Indexed {
+
+}
@@ -0,0 +1,164 @@
+package com.latte.orm.binary;
+/**
+ * @author hikmatullohhari
+ */
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.latte.orm.helpers.EntityMetadata.Column;
+
+// Columnar file: a header with the row count and the schema (name, type and flags of every column),
+// then one block per column, deflated when asked and smaller that way
+public class BinaryFile {
+	private static final int MAGIC = 0x4C415442; // "LATB"
+	private static final byte VERSION = 1;
+	private static final byte RAW = 0;
+	private static final byte DEFLATED = 1;
+	
+	public static final int PRIMARY_KEY = 1;
+	public static final int UNIQUE = 2;
+	public static final int NOT_NULL = 4;
+	public static final int INDEXED = 8;
+	
+	// Flags stored for a field
+	public static int flagsOf(Column column){
+		return (column.isPrimaryKey() ? PRIMARY_KEY : 0) | (column.isUnique() ? UNIQUE : 0)
+				| (column.isNotNull() ? NOT_NULL : 0) | (column.isIndexed() ? INDEXED : 0);
+	}
+	
+	public static void write(File file, List<ColumnBlock> blocks, int rowCount, boolean isCompressed) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+		try {
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			out.writeInt(rowCount);
+			out.writeShort(blocks.size());
+			for(ColumnBlock block: blocks){
+				byte[] name = block.getName().getBytes("UTF-8");
+				out.writeShort(name.length);
+				out.write(name);
+				out.writeByte(block.getType().ordinal());
+				out.writeByte(block.getFlags());
+			}
+			for(ColumnBlock block: blocks){
+				byte[] raw = block.encode();
+				byte[] deflated = isCompressed ? deflate(raw) : null;
+				boolean isDeflated = deflated != null && deflated.length < raw.length;
+				out.writeByte(isDeflated ? DEFLATED : RAW);
+				out.writeInt(raw.length);
+				out.writeInt(isDeflated ? deflated.length : raw.length);
+				out.write(isDeflated ? deflated : raw);
+			}
+		} finally {
+			out.close();
+		}
+	}
+	
+	// A truncated or corrupt file throws an IOException, whatever value of the header is wrong
+	public static List<ColumnBlock> read(File file) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+		if(buffer.remaining() < 11 || buffer.getInt() != MAGIC || buffer.get() != VERSION){
+			throw new IOException("not a binary file of this version");
+		}
+		try {
+			return read(buffer);
+		} catch (BufferUnderflowException e) {
+			throw new IOException("truncated", e);
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException("corrupt, "+e.getMessage(), e);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("corrupt, "+e.getMessage(), e);
+		}
+	}
+	
+	private static List<ColumnBlock> read(ByteBuffer buffer) throws IOException {
+		int rowCount = buffer.getInt();
+		if(rowCount < 0){
+			throw new IOException("negative row count " + rowCount);
+		}
+		int columnCount = buffer.getShort() & 0xFFFF;
+		String[] names = new String[columnCount];
+		ColumnType[] types = new ColumnType[columnCount];
+		int[] flags = new int[columnCount];
+		for(int i=0; i<columnCount; i++){
+			int length = buffer.getShort() & 0xFFFF;
+			if(length > buffer.remaining()){
+				throw new BufferUnderflowException();
+			}
+			names[i] = new String(buffer.array(), buffer.position(), length, "UTF-8");
+			buffer.position(buffer.position() + length);
+			int type = buffer.get() & 0xFF;
+			if(type >= ColumnType.values().length){
+				throw new IOException("unknown type " + type + " of column " + names[i]);
+			}
+			types[i] = ColumnType.values()[type];
+			flags[i] = buffer.get();
+		}
+		List<ColumnBlock> blocks = new ArrayList<ColumnBlock>();
+		for(int i=0; i<columnCount; i++){
+			byte encoding = buffer.get();
+			int rawLength = buffer.getInt();
+			int storedLength = buffer.getInt();
+			// Every row takes at least one byte and deflate doesn't shrink data more than 1032 times
+			if(storedLength < 0 || storedLength > buffer.remaining() || rawLength < rowCount
+					|| rawLength > ((encoding == DEFLATED) ? storedLength * 1032L + 64 : storedLength)){
+				throw new IOException("invalid length of column " + names[i]);
+			}
+			ByteBuffer block;
+			if(encoding == DEFLATED){
+				block = ByteBuffer.wrap(inflate(buffer.array(), buffer.position(), storedLength, rawLength));
+			} else {
+				block = ByteBuffer.wrap(buffer.array(), buffer.position(), storedLength).slice();
+			}
+			buffer.position(buffer.position() + storedLength);
+			blocks.add(ColumnBlock.decode(names[i], types[i], flags[i], rowCount, block));
+		}
+		return blocks;
+	}
+	
+	private static byte[] deflate(byte[] raw){
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		deflater.setInput(raw);
+		deflater.finish();
+		ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 64);
+		byte[] chunk = new byte[65536];
+		while(!deflater.finished()){
+			out.write(chunk, 0, deflater.deflate(chunk));
+		}
+		deflater.end();
+		return out.toByteArray();
+	}
+	
+	private static byte[] inflate(byte[] stored, int offset, int length, int rawLength) throws IOException {
+		Inflater inflater = new Inflater();
+		inflater.setInput(stored, offset, length);
+		byte[] raw = new byte[rawLength];
+		try {
+			int inflated = 0;
+			while(inflated < rawLength && !inflater.finished()){
+				int n = inflater.inflate(raw, inflated, rawLength - inflated);
+				if(n == 0 && (inflater.needsInput() || inflater.needsDictionary())){
+					throw new IOException("truncated block");
+				}
+				inflated += n;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException(e);
+		} finally {
+			inflater.end();
+		}
+		return raw;
+	}
+}
@@ -0,0 +1,308 @@
+package com.latte.orm.binary;
+/**
+ * @author hikmatullohhari
+ */
+import java.lang.reflect.InvocationTargetException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.latte.orm.helpers.Accessor;
+
+// Values of one column in a primitive array: int[] for boolean, byte, short, char and int, long[] for long,
+// double[] for float and double. Strings are dictionary encoded, each row keeps the code of its value
+public class ColumnBlock {
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	private final String name;
+	private final ColumnType type;
+	private final int flags;
+	private final int size;
+	private boolean[] nulls; // null if no value is null
+	private int[] ints;
+	private long[] longs;
+	private double[] doubles;
+	private String[] dictionary;
+	private int[] codes;
+	
+	private ColumnBlock(String name, ColumnType type, int flags, int size){
+		this.name = name;
+		this.type = type;
+		this.flags = flags;
+		this.size = size;
+	}
+	
+	// Read the values of a column from the records through its getter
+	public static ColumnBlock collect(String name, ColumnType type, int flags, Accessor getter, List<?> records) throws InvocationTargetException {
+		ColumnBlock block = new ColumnBlock(name, type, flags, records.size());
+		Map<String, Integer> codesByValue = null;
+		List<String> dictionary = null;
+		if(type.isIntegral()){
+			block.ints = new int[block.size];
+		} else if(type == ColumnType.LONG){
+			block.longs = new long[block.size];
+		} else if(type.isDecimal()){
+			block.doubles = new double[block.size];
+		} else {
+			block.codes = new int[block.size];
+			codesByValue = new HashMap<String, Integer>();
+			dictionary = new ArrayList<String>();
+		}
+		for(int row=0; row<block.size; row++){
+			Object value = getter.get(records.get(row));
+			if(value == null){
+				if(block.nulls == null){
+					block.nulls = new boolean[block.size];
+				}
+				block.nulls[row] = true;
+			} else if(type == ColumnType.BOOLEAN){
+				block.ints[row] = ((Boolean) value) ? 1 : 0;
+			} else if(type == ColumnType.CHAR){
+				block.ints[row] = (Character) value;
+			} else if(type.isIntegral()){
+				block.ints[row] = ((Number) value).intValue();
+			} else if(type == ColumnType.LONG){
+				block.longs[row] = (Long) value;
+			} else if(type.isDecimal()){
+				block.doubles[row] = ((Number) value).doubleValue();
+			} else {
+				Integer code = codesByValue.get(value);
+				if(code == null){
+					code = dictionary.size();
+					codesByValue.put((String) value, code);
+					dictionary.add((String) value);
+				}
+				block.codes[row] = code;
+			}
+		}
+		if(dictionary != null){
+			block.dictionary = dictionary.toArray(new String[dictionary.size()]);
+		}
+		return block;
+	}
+	
+	// Block of values already stored in arrays of exactly size values, the arrays aren't copied.
+	// The dictionary must hold distinct values in the order of their first row
+	public static ColumnBlock of(String name, ColumnType type, int flags, int size, boolean[] nulls, int[] ints, long[] longs, double[] doubles, String[] dictionary, int[] codes){
+		ColumnBlock block = new ColumnBlock(name, type, flags, size);
+		block.nulls = nulls;
+		block.ints = ints;
+		block.longs = longs;
+		block.doubles = doubles;
+		block.dictionary = dictionary;
+		block.codes = codes;
+		return block;
+	}
+	
+	public String getName(){
+		return name;
+	}
+	
+	public ColumnType getType(){
+		return type;
+	}
+	
+	// BinaryFile.PRIMARY_KEY, UNIQUE, NOT_NULL and INDEXED of the field
+	public int getFlags(){
+		return flags;
+	}
+	
+	public int size(){
+		return size;
+	}
+	
+	public boolean isNull(int row){
+		return nulls != null && nulls[row];
+	}
+	
+	// Boxed in the wrapper of the field type
+	public Object get(int row){
+		if(isNull(row)){
+			return null;
+		}
+		switch(type){
+			case BOOLEAN: return ints[row] != 0;
+			case BYTE: return (byte) ints[row];
+			case SHORT: return (short) ints[row];
+			case CHAR: return (char) ints[row];
+			case INT: return ints[row];
+			case LONG: return longs[row];
+			case FLOAT: return (float) doubles[row];
+			case DOUBLE: return doubles[row];
+			default: return dictionary[codes[row]];
+		}
+	}
+	
+	// Arrays holding the values, null for those the type doesn't use. They are shared, not copied
+	public boolean[] getNulls(){
+		return nulls;
+	}
+	
+	public int[] getInts(){
+		return ints;
+	}
+	
+	public long[] getLongs(){
+		return longs;
+	}
+	
+	public double[] getDoubles(){
+		return doubles;
+	}
+	
+	public String[] getDictionary(){
+		return dictionary;
+	}
+	
+	public int[] getCodes(){
+		return codes;
+	}
+	
+	// Null flags, then the values. Strings: dictionary size, each value as varint length and UTF-8 bytes,
+	// then the width of a code (1, 2 or 4 bytes) and the code of every row. Width 0 when every value is
+	// distinct, the dictionary then holds the values in rows order
+	byte[] encode(){
+		byte[][] encodedDictionary = null;
+		int length = 1 + ((nulls == null) ? 0 : size);
+		if(ints != null){
+			length += 4 * size;
+		} else if(longs != null || doubles != null){
+			length += 8 * size;
+		} else {
+			encodedDictionary = new byte[dictionary.length][];
+			length += 4 + 1 + codeWidth() * size;
+			for(int i=0; i<dictionary.length; i++){
+				encodedDictionary[i] = dictionary[i].getBytes(UTF_8);
+				length += 5 + encodedDictionary[i].length;
+			}
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		buffer.put((byte) ((nulls == null) ? 0 : 1));
+		if(nulls != null){
+			for(boolean isNull: nulls){
+				buffer.put((byte) (isNull ? 1 : 0));
+			}
+		}
+		if(ints != null){
+			buffer.asIntBuffer().put(ints);
+			buffer.position(buffer.position() + 4 * size);
+		} else if(longs != null){
+			buffer.asLongBuffer().put(longs);
+			buffer.position(buffer.position() + 8 * size);
+		} else if(doubles != null){
+			buffer.asDoubleBuffer().put(doubles);
+			buffer.position(buffer.position() + 8 * size);
+		} else {
+			buffer.putInt(dictionary.length);
+			for(byte[] value: encodedDictionary){
+				putVarint(buffer, value.length);
+				buffer.put(value);
+			}
+			int width = codeWidth();
+			buffer.put((byte) width);
+			for(int code: (width == 0) ? new int[0] : codes){
+				if(width == 1){
+					buffer.put((byte) code);
+				} else if(width == 2){
+					buffer.putShort((short) code);
+				} else {
+					buffer.putInt(code);
+				}
+			}
+		}
+		return Arrays.copyOf(buffer.array(), buffer.position());
+	}
+	
+	private int codeWidth(){
+		if(dictionary.length == size - nullCount()){
+			return 0;
+		}
+		return (dictionary.length <= 256) ? 1 : (dictionary.length <= 65536) ? 2 : 4;
+	}
+	
+	private int nullCount(){
+		int count = 0;
+		for(int row=0; nulls != null && row<size; row++){
+			if(nulls[row]){
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	private static void putVarint(ByteBuffer buffer, int value){
+		while((value & ~0x7F) != 0){
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+	
+	private static int getVarint(ByteBuffer buffer){
+		int value = 0;
+		for(int shift=0; ; shift+=7){
+			byte b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			if(b >= 0){
+				return value;
+			}
+		}
+	}
+	
+	// A buffer too short or holding a code outside the dictionary throws BufferUnderflowException or IndexOutOfBoundsException
+	static ColumnBlock decode(String name, ColumnType type, int flags, int size, ByteBuffer buffer){
+		ColumnBlock block = new ColumnBlock(name, type, flags, size);
+		if(buffer.get() != 0){
+			block.nulls = new boolean[size];
+			for(int row=0; row<size; row++){
+				block.nulls[row] = buffer.get() != 0;
+			}
+		}
+		if(type.isIntegral()){
+			block.ints = new int[size];
+			buffer.asIntBuffer().get(block.ints);
+			buffer.position(buffer.position() + 4 * size);
+		} else if(type == ColumnType.LONG){
+			block.longs = new long[size];
+			buffer.asLongBuffer().get(block.longs);
+			buffer.position(buffer.position() + 8 * size);
+		} else if(type.isDecimal()){
+			block.doubles = new double[size];
+			buffer.asDoubleBuffer().get(block.doubles);
+			buffer.position(buffer.position() + 8 * size);
+		} else {
+			int dictionarySize = buffer.getInt();
+			if(dictionarySize < 0 || dictionarySize > buffer.remaining()){ // each value takes at least a byte
+				throw new BufferUnderflowException();
+			}
+			block.dictionary = new String[dictionarySize];
+			for(int i=0; i<block.dictionary.length; i++){
+				int length = getVarint(buffer);
+				block.dictionary[i] = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF_8);
+				buffer.position(buffer.position() + length);
+			}
+			int width = buffer.get();
+			block.codes = new int[size];
+			for(int row=0, code=0; row<size; row++){
+				if(width == 0){
+					block.codes[row] = block.isNull(row) ? 0 : code++;
+				} else if(width == 1){
+					block.codes[row] = buffer.get() & 0xFF;
+				} else if(width == 2){
+					block.codes[row] = buffer.getShort() & 0xFFFF;
+				} else {
+					block.codes[row] = buffer.getInt();
+				}
+				if((block.codes[row] < 0 || block.codes[row] >= block.dictionary.length) && !block.isNull(row)){
+					throw new IndexOutOfBoundsException("code " + block.codes[row] + " of row " + row);
+				}
+			}
+		}
+		return block;
+	}
+}
@@ -0,0 +1,42 @@
+package com.latte.orm.binary;
+/**
+ * @author hikmatullohhari
+ */
+// Types of the fields a binary file can store, primitives and their wrappers share a type
+public enum ColumnType {
+	BOOLEAN, BYTE, SHORT, CHAR, INT, LONG, FLOAT, DOUBLE, STRING;
+	
+	// null if the type can't be stored
+	public static ColumnType of(Class<?> type){
+		if(type == boolean.class || type == Boolean.class){
+			return BOOLEAN;
+		} else if(type == byte.class || type == Byte.class){
+			return BYTE;
+		} else if(type == short.class || type == Short.class){
+			return SHORT;
+		} else if(type == char.class || type == Character.class){
+			return CHAR;
+		} else if(type == int.class || type == Integer.class){
+			return INT;
+		} else if(type == long.class || type == Long.class){
+			return LONG;
+		} else if(type == float.class || type == Float.class){
+			return FLOAT;
+		} else if(type == double.class || type == Double.class){
+			return DOUBLE;
+		} else if(type == String.class){
+			return STRING;
+		}
+		return null;
+	}
+	
+	// Stored in an int[]
+	public boolean isIntegral(){
+		return this == BOOLEAN || this == BYTE || this == SHORT || this == CHAR || this == INT;
+	}
+	
+	// Stored in a double[]
+	public boolean isDecimal(){
+		return this == FLOAT || this == DOUBLE;
+	}
+}
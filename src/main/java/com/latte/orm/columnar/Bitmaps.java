@@ -0,0 +1,118 @@
+package com.latte.orm.columnar;
+/**
+ * @author hikmatullohhari
+ */
+// Sets of rows as long[] words, bit i of word w is row 64 * w + i. Bits after the last row are always clear
+public class Bitmaps {
+	public static long[] empty(int size){
+		return new long[(size + 63) >>> 6];
+	}
+	
+	public static long[] all(int size){
+		long[] bits = empty(size);
+		for(int w=0; w<bits.length; w++){
+			bits[w] = -1L;
+		}
+		clearTail(bits, size);
+		return bits;
+	}
+	
+	private static void clearTail(long[] bits, int size){
+		if((size & 63) != 0){
+			bits[bits.length - 1] &= (1L << size) - 1; // shift is taken modulo 64
+		}
+	}
+	
+	// Rows from fromRow to toRow (excluded)
+	public static long[] range(int size, int fromRow, int toRow){
+		long[] bits = empty(size);
+		for(int row=fromRow; row<toRow && (row & 63) != 0; row++){
+			set(bits, row, true);
+		}
+		for(int w=(fromRow + 63) >>> 6; w<(toRow >>> 6); w++){
+			bits[w] = -1L;
+		}
+		for(int row=Math.max(fromRow, toRow & ~63); row<toRow; row++){
+			set(bits, row, true);
+		}
+		return bits;
+	}
+	
+	public static boolean get(long[] bits, int row){
+		return (bits[row >>> 6] & (1L << row)) != 0;
+	}
+	
+	public static void set(long[] bits, int row, boolean value){
+		if(value){
+			bits[row >>> 6] |= 1L << row;
+		} else {
+			bits[row >>> 6] &= ~(1L << row);
+		}
+	}
+	
+	// Result in bits
+	public static void and(long[] bits, long[] other){
+		for(int w=0; w<bits.length; w++){
+			bits[w] &= other[w];
+		}
+	}
+	
+	public static void or(long[] bits, long[] other){
+		for(int w=0; w<bits.length; w++){
+			bits[w] |= other[w];
+		}
+	}
+	
+	public static void not(long[] bits, int size){
+		for(int w=0; w<bits.length; w++){
+			bits[w] = ~bits[w];
+		}
+		if(bits.length > 0){
+			clearTail(bits, size);
+		}
+	}
+	
+	// Set the rows of mask to value, mask may be null for no row
+	public static void assign(long[] bits, long[] mask, boolean value){
+		if(mask == null){
+			return;
+		}
+		for(int w=0; w<bits.length; w++){
+			bits[w] = value ? bits[w] | mask[w] : bits[w] & ~mask[w];
+		}
+	}
+	
+	// First set row from the given one, -1 if there is none
+	public static int nextSetBit(long[] bits, int from){
+		int w = from >>> 6;
+		if(w >= bits.length){
+			return -1;
+		}
+		long word = bits[w] & (-1L << from);
+		while(word == 0){
+			if(++w == bits.length){
+				return -1;
+			}
+			word = bits[w];
+		}
+		return (w << 6) + Long.numberOfTrailingZeros(word);
+	}
+	
+	// Last set row, -1 if there is none
+	public static int lastSetBit(long[] bits){
+		for(int w=bits.length-1; w>=0; w--){
+			if(bits[w] != 0){
+				return (w << 6) + 63 - Long.numberOfLeadingZeros(bits[w]);
+			}
+		}
+		return -1;
+	}
+	
+	public static int cardinality(long[] bits){
+		int count = 0;
+		for(long word: bits){
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+}
@@ -0,0 +1,286 @@
+package com.latte.orm.columnar;
+/**
+ * @author hikmatullohhari
+ */
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.latte.orm.binary.BinaryFile;
+import com.latte.orm.binary.ColumnBlock;
+import com.latte.orm.binary.ColumnType;
+import com.latte.orm.helpers.EntityMetadata;
+import com.latte.orm.helpers.EntityMetadata.Column;
+
+// Records of a model stored column by column, one vector per field with a setter and a type of ColumnType.
+// An object is only created by get(row), records are compared by value
+public class ColumnStore<T> {
+	private final EntityMetadata metadata;
+	private final List<Column> columns = new ArrayList<Column>();
+	private final List<ColumnVector> vectors = new ArrayList<ColumnVector>();
+	private final Map<String, Integer> positions = new HashMap<String, Integer>(); // keyed by the lower-cased field name
+	private Map<Integer, KeyRows> keyRows; // of the @PrimaryKey and @Unique vectors by position, null until the first lookup
+	private int[] ids; // id of each row while keyRows is kept, ascending as rows are only appended or removed
+	private int nextId;
+	private int size = 0;
+	
+	// Ids of the rows holding each value of a @PrimaryKey or @Unique vector, an id stays the same when the rows
+	// before are removed. Rows bypassing the constraints (a model of a list) can share a value, the first
+	// id is kept in ids and the others aside
+	private static class KeyRows {
+		private final Map<Object, Integer> ids = new HashMap<Object, Integer>();
+		private final Map<Object, List<Integer>> others = new HashMap<Object, List<Integer>>();
+		
+		void add(Object value, int id){
+			if(!ids.containsKey(value)){
+				ids.put(value, id);
+				return;
+			}
+			List<Integer> valueIds = others.get(value);
+			if(valueIds == null){
+				valueIds = new ArrayList<Integer>(1);
+				others.put(value, valueIds);
+			}
+			valueIds.add(id);
+		}
+		
+		void remove(Object value, int id){
+			List<Integer> valueIds = others.get(value);
+			Integer first = ids.get(value);
+			if(first != null && first == id){
+				if(valueIds == null){
+					ids.remove(value);
+					return;
+				}
+				ids.put(value, valueIds.remove(0));
+			} else if(valueIds != null){
+				valueIds.remove(Integer.valueOf(id));
+			}
+			if(valueIds != null && valueIds.isEmpty()){
+				others.remove(value);
+			}
+		}
+		
+		int[] get(Object value){
+			Integer first = ids.get(value);
+			if(first == null){
+				return new int[0];
+			}
+			List<Integer> valueIds = others.get(value);
+			int[] all = new int[(valueIds == null) ? 1 : valueIds.size() + 1];
+			all[0] = first;
+			for(int i=1; i<all.length; i++){
+				all[i] = valueIds.get(i - 1);
+			}
+			return all;
+		}
+	}
+	
+	public ColumnStore(EntityMetadata metadata){
+		this.metadata = metadata;
+		for(Column column: metadata.getColumns()){
+			ColumnType type = ColumnType.of(column.getType());
+			if(column.getSetter() == null || type == null){
+				continue;
+			}
+			positions.put(column.getName().toLowerCase(), columns.size());
+			columns.add(column);
+			vectors.add(new ColumnVector(type));
+		}
+	}
+	
+	private ColumnStore(ColumnStore<T> store){
+		this.metadata = store.metadata;
+		columns.addAll(store.columns);
+		for(ColumnVector vector: store.vectors){
+			vectors.add(vector.copy());
+		}
+		positions.putAll(store.positions);
+		size = store.size;
+	}
+	
+	// Independent copy of the rows
+	public ColumnStore<T> copy(){
+		return new ColumnStore<T>(this);
+	}
+	
+	public int size(){
+		return size;
+	}
+	
+	// Stored fields, in declaration order
+	public List<Column> getColumns(){
+		return Collections.unmodifiableList(columns);
+	}
+	
+	// Vector of a field, null if the field isn't stored
+	public ColumnVector getVector(String columnName){
+		Integer position = positions.get(columnName.toLowerCase());
+		return (position == null) ? null : vectors.get(position);
+	}
+	
+	// New instance with the values of the row
+	public T get(int row) throws InvocationTargetException {
+		try {
+			@SuppressWarnings("unchecked")
+			T newEntityClassInstance = (T) metadata.newInstance();
+			for(int i=0; i<columns.size(); i++){
+				Object value = vectors.get(i).get(row);
+				if(value != null || !columns.get(i).getType().isPrimitive()){
+					columns.get(i).getSetter().set(newEntityClassInstance, value);
+				}
+			}
+			return newEntityClassInstance;
+		} catch (InstantiationException e) {
+			throw new InvocationTargetException(e);
+		} catch (IllegalAccessException e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+	
+	// Value of a stored field through its getter, null for a field without getter
+	private Object valueOf(int i, T t) throws InvocationTargetException {
+		return (columns.get(i).getGetter() == null) ? null : columns.get(i).getGetter().get(t);
+	}
+	
+	public void add(T t) throws InvocationTargetException {
+		Object[] values = new Object[columns.size()];
+		for(int i=0; i<values.length; i++){
+			values[i] = valueOf(i, t); // read every value before adding any, a failing getter leaves the store unchanged
+		}
+		for(int i=0; i<values.length; i++){
+			vectors.get(i).add(values[i]);
+		}
+		if(keyRows != null){
+			if(size == ids.length){
+				ids = Arrays.copyOf(ids, Math.max(16, size * 2));
+			}
+			ids[size] = nextId++;
+			for(Map.Entry<Integer, KeyRows> entry: keyRows.entrySet()){
+				entry.getValue().add(vectors.get(entry.getKey()).get(size), ids[size]);
+			}
+		}
+		size++;
+	}
+	
+	public void set(int row, T t) throws InvocationTargetException {
+		Object[] values = new Object[columns.size()];
+		for(int i=0; i<values.length; i++){
+			values[i] = valueOf(i, t);
+		}
+		if(keyRows != null){
+			for(Map.Entry<Integer, KeyRows> entry: keyRows.entrySet()){
+				entry.getValue().remove(vectors.get(entry.getKey()).get(row), ids[row]);
+			}
+		}
+		for(int i=0; i<values.length; i++){
+			vectors.get(i).set(row, values[i]);
+		}
+		if(keyRows != null){
+			for(Map.Entry<Integer, KeyRows> entry: keyRows.entrySet()){
+				entry.getValue().add(vectors.get(entry.getKey()).get(row), ids[row]);
+			}
+		}
+	}
+	
+	// Rows whose @PrimaryKey or @Unique field equals value, in rows order. null if the field isn't one of them
+	public int[] rowsWith(String columnName, Object value){
+		Integer position = positions.get(columnName.toLowerCase());
+		if(position == null || !(columns.get(position).isPrimaryKey() || columns.get(position).isUnique())){
+			return null;
+		}
+		if(keyRows == null){
+			keyRows = new HashMap<Integer, KeyRows>();
+			ids = new int[Math.max(16, size)];
+			for(int row=0; row<size; row++){
+				ids[row] = row;
+			}
+			nextId = size;
+			for(int i=0; i<columns.size(); i++){
+				if(columns.get(i).isPrimaryKey() || columns.get(i).isUnique()){
+					KeyRows valueRows = new KeyRows();
+					for(int row=0; row<size; row++){
+						valueRows.add(vectors.get(i).get(row), row);
+					}
+					keyRows.put(i, valueRows);
+				}
+			}
+		}
+		int[] rows = keyRows.get(position).get(value);
+		for(int i=0; i<rows.length; i++){
+			rows[i] = Arrays.binarySearch(ids, 0, size, rows[i]);
+		}
+		Arrays.sort(rows);
+		return rows;
+	}
+	
+	// Every stored field of the row equals the one of t
+	public boolean isEqual(int row, T t) throws InvocationTargetException {
+		for(int i=0; i<columns.size(); i++){
+			if(columns.get(i).getGetter() != null && !vectors.get(i).isEqual(row, valueOf(i, t))){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	// Drop the given rows, the next rows move up
+	public void remove(BitSet rows){
+		if(keyRows != null){
+			int kept = 0;
+			for(int row=0; row<size; row++){
+				if(!rows.get(row)){
+					ids[kept++] = ids[row];
+					continue;
+				}
+				for(Map.Entry<Integer, KeyRows> entry: keyRows.entrySet()){
+					entry.getValue().remove(vectors.get(entry.getKey()).get(row), ids[row]);
+				}
+			}
+		}
+		for(ColumnVector vector: vectors){
+			vector.remove(rows);
+		}
+		size = vectors.isEmpty() ? size - rows.cardinality() : vectors.get(0).size();
+	}
+	
+	public void clear(){
+		for(ColumnVector vector: vectors){
+			vector.clear();
+		}
+		keyRows = null;
+		size = 0;
+	}
+	
+	// Replace the rows with the blocks of a binary file, types must match the stored fields.
+	// A stored field without block is null, or the default value of a primitive
+	public void load(List<ColumnBlock> blocks, int rowCount){
+		for(int i=0; i<columns.size(); i++){
+			vectors.set(i, new ColumnVector(vectors.get(i).getType()));
+			for(ColumnBlock block: blocks){
+				if(block.getName().equalsIgnoreCase(columns.get(i).getName())){
+					vectors.set(i, ColumnVector.of(block));
+				}
+			}
+			for(int row=vectors.get(i).size(); row<rowCount; row++){
+				vectors.get(i).add(null);
+			}
+		}
+		keyRows = null;
+		size = rowCount;
+	}
+	
+	// Blocks of every stored field, to write a binary file
+	public List<ColumnBlock> toBlocks(){
+		List<ColumnBlock> blocks = new ArrayList<ColumnBlock>();
+		for(int i=0; i<columns.size(); i++){
+			blocks.add(vectors.get(i).toBlock(columns.get(i).getName(), BinaryFile.flagsOf(columns.get(i))));
+		}
+		return blocks;
+	}
+}
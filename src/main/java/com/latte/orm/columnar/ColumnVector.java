@@ -0,0 +1,452 @@
+package com.latte.orm.columnar;
+/**
+ * @author hikmatullohhari
+ */
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import com.latte.orm.binary.ColumnBlock;
+import com.latte.orm.binary.ColumnType;
+
+// Values of one column in a growable primitive array: int[] for boolean, byte, short, char and int, long[] for long,
+// double[] for float and double. Strings are dictionary encoded, each row keeps the code of its value
+public class ColumnVector {
+	private static final int INITIAL_CAPACITY = 16;
+	
+	private final ColumnType type;
+	private int size = 0;
+	private boolean[] nulls; // null until a value is null
+	private int[] ints;
+	private long[] longs;
+	private double[] doubles;
+	private int[] codes;
+	private String[] dictionary; // values no row uses anymore are only dropped by toBlock()
+	private int dictionarySize = 0;
+	private Map<String, Integer> codesByValue; // built by the first lookup after of()
+	
+	public ColumnVector(ColumnType type){
+		this.type = type;
+		if(type.isIntegral()){
+			ints = new int[INITIAL_CAPACITY];
+		} else if(type == ColumnType.LONG){
+			longs = new long[INITIAL_CAPACITY];
+		} else if(type.isDecimal()){
+			doubles = new double[INITIAL_CAPACITY];
+		} else {
+			codes = new int[INITIAL_CAPACITY];
+			dictionary = new String[INITIAL_CAPACITY];
+			codesByValue = new HashMap<String, Integer>();
+		}
+	}
+	
+	// Vector sharing the arrays of a block read from a binary file
+	public static ColumnVector of(ColumnBlock block){
+		ColumnVector vector = new ColumnVector(block.getType());
+		vector.size = block.size();
+		vector.nulls = block.getNulls();
+		if(block.getInts() != null){
+			vector.ints = block.getInts();
+		} else if(block.getLongs() != null){
+			vector.longs = block.getLongs();
+		} else if(block.getDoubles() != null){
+			vector.doubles = block.getDoubles();
+		} else {
+			vector.codes = block.getCodes();
+			vector.dictionary = block.getDictionary();
+			vector.dictionarySize = vector.dictionary.length;
+			vector.codesByValue = null;
+		}
+		return vector;
+	}
+	
+	// Independent copy, the string lookups are built here so reading the copy from several threads never writes to it
+	public ColumnVector copy(){
+		ColumnVector copy = new ColumnVector(type);
+		copy.size = size;
+		copy.nulls = (nulls == null) ? null : nulls.clone();
+		if(ints != null){
+			copy.ints = ints.clone();
+		} else if(longs != null){
+			copy.longs = longs.clone();
+		} else if(doubles != null){
+			copy.doubles = doubles.clone();
+		} else {
+			copy.codes = codes.clone();
+			copy.dictionary = dictionary.clone();
+			copy.dictionarySize = dictionarySize;
+			copy.codesByValue = null;
+			copy.codesByValue();
+		}
+		return copy;
+	}
+	
+	public ColumnType getType(){
+		return type;
+	}
+	
+	public int size(){
+		return size;
+	}
+	
+	public boolean isNull(int row){
+		return nulls != null && nulls[row];
+	}
+	
+	// Boxed in the wrapper of the field type
+	public Object get(int row){
+		if(isNull(row)){
+			return null;
+		}
+		switch(type){
+			case BOOLEAN: return ints[row] != 0;
+			case BYTE: return (byte) ints[row];
+			case SHORT: return (short) ints[row];
+			case CHAR: return (char) ints[row];
+			case INT: return ints[row];
+			case LONG: return longs[row];
+			case FLOAT: return (float) doubles[row];
+			case DOUBLE: return doubles[row];
+			default: return dictionary[codes[row]];
+		}
+	}
+	
+	// value is a wrapper of the field type, or null
+	public void add(Object value){
+		ensureCapacity(size + 1);
+		size++;
+		set(size - 1, value);
+	}
+	
+	public void set(int row, Object value){
+		if(value == null){
+			if(nulls == null){
+				nulls = new boolean[capacity()];
+			}
+			nulls[row] = true;
+			return;
+		}
+		if(nulls != null){
+			nulls[row] = false;
+		}
+		if(type == ColumnType.BOOLEAN){
+			ints[row] = ((Boolean) value) ? 1 : 0;
+		} else if(type == ColumnType.CHAR){
+			ints[row] = (Character) value;
+		} else if(type.isIntegral()){
+			ints[row] = ((Number) value).intValue();
+		} else if(type == ColumnType.LONG){
+			longs[row] = ((Number) value).longValue();
+		} else if(type.isDecimal()){
+			doubles[row] = ((Number) value).doubleValue();
+		} else {
+			codes[row] = codeOf((String) value);
+		}
+	}
+	
+	private Map<String, Integer> codesByValue(){
+		if(codesByValue == null){
+			codesByValue = new HashMap<String, Integer>();
+			for(int code=0; code<dictionarySize; code++){
+				codesByValue.put(dictionary[code], code);
+			}
+		}
+		return codesByValue;
+	}
+	
+	private int codeOf(String value){
+		Integer code = codesByValue().get(value);
+		if(code == null){
+			if(dictionarySize == dictionary.length){
+				dictionary = Arrays.copyOf(dictionary, Math.max(INITIAL_CAPACITY, dictionarySize + (dictionarySize >> 1)));
+			}
+			code = dictionarySize++;
+			dictionary[code] = value;
+			codesByValue.put(value, code);
+		}
+		return code;
+	}
+	
+	// Same value as get(row), value is a wrapper of the field type or null
+	public boolean isEqual(int row, Object value){
+		if(value == null || isNull(row)){
+			return value == null && isNull(row);
+		}
+		return value.equals(get(row));
+	}
+	
+	// First row from the given one holding value, -1 if there is none
+	public int indexOf(Object value, int from){
+		for(int row=from; row<size; row++){
+			if(isEqual(row, value)){
+				return row;
+			}
+		}
+		return -1;
+	}
+	
+	// Kernels below select the rows from fromRow to toRow (excluded) whose value satisfies a comparison,
+	// as a bitmap of Bitmaps. Null rows are never selected, nulls() gives them
+	
+	// Null rows, null if there is none
+	public long[] nulls(int fromRow, int toRow){
+		if(nulls == null){
+			return null;
+		}
+		long[] bits = Bitmaps.empty(size);
+		for(int row=fromRow; row<toRow; row++){
+			bits[row >>> 6] |= (nulls[row] ? 1L : 0L) << row;
+		}
+		return bits;
+	}
+	
+	private long[] withoutNulls(long[] bits, int fromRow, int toRow){
+		Bitmaps.assign(bits, nulls(fromRow, toRow), false);
+		return bits;
+	}
+	
+	// value is an instance of the wrapper get() returns
+	private boolean isOfType(Object value){
+		switch(type){
+			case BOOLEAN: return value instanceof Boolean;
+			case BYTE: return value instanceof Byte;
+			case SHORT: return value instanceof Short;
+			case CHAR: return value instanceof Character;
+			case INT: return value instanceof Integer;
+			case LONG: return value instanceof Long;
+			case FLOAT: return value instanceof Float;
+			case DOUBLE: return value instanceof Double;
+			default: return value instanceof String;
+		}
+	}
+	
+	// Stored form of a value of the field type: the int of ints, the long of longs, the bits of a double
+	// as Double.equals() compares them, the bits of a float, or the string code (-1 if no row has it)
+	private long keyOf(Object value){
+		switch(type){
+			case BOOLEAN: return ((Boolean) value) ? 1 : 0;
+			case CHAR: return (Character) value;
+			case BYTE: case SHORT: case INT: case LONG: return ((Number) value).longValue();
+			case FLOAT: return Float.floatToIntBits((Float) value);
+			case DOUBLE: return Double.doubleToLongBits((Double) value);
+			default: return findCode((String) value);
+		}
+	}
+	
+	private int findCode(String value){
+		Integer code = codesByValue().get(value);
+		return (code == null) ? -1 : code;
+	}
+	
+	// Rows whose value equals value, as equals() on the value get() returns
+	public long[] equalTo(Object value, int fromRow, int toRow){
+		long[] bits = Bitmaps.empty(size);
+		if(!isOfType(value)){
+			return bits;
+		}
+		long key = keyOf(value);
+		if(type == ColumnType.FLOAT){
+			for(int row=fromRow; row<toRow; row++){
+				bits[row >>> 6] |= (Float.floatToIntBits((float) doubles[row]) == key ? 1L : 0L) << row;
+			}
+		} else if(type == ColumnType.DOUBLE){
+			for(int row=fromRow; row<toRow; row++){
+				bits[row >>> 6] |= (Double.doubleToLongBits(doubles[row]) == key ? 1L : 0L) << row;
+			}
+		} else if(longs != null){
+			for(int row=fromRow; row<toRow; row++){
+				bits[row >>> 6] |= (longs[row] == key ? 1L : 0L) << row;
+			}
+		} else {
+			int[] values = (ints != null) ? ints : codes;
+			int intKey = (int) key;
+			for(int row=fromRow; row<toRow; row++){
+				bits[row >>> 6] |= (values[row] == intKey ? 1L : 0L) << row;
+			}
+		}
+		return withoutNulls(bits, fromRow, toRow);
+	}
+	
+	// Rows whose value equals one of values
+	public long[] in(Collection<?> values, int fromRow, int toRow){
+		long[] keys = new long[values.size()];
+		int count = 0;
+		for(Object value: values){
+			if(value != null && isOfType(value)){
+				keys[count++] = keyOf(value);
+			}
+		}
+		keys = Arrays.copyOf(keys, count);
+		Arrays.sort(keys);
+		long[] bits = Bitmaps.empty(size);
+		for(int row=fromRow; row<toRow; row++){
+			long key;
+			if(type == ColumnType.FLOAT){
+				key = Float.floatToIntBits((float) doubles[row]);
+			} else if(type == ColumnType.DOUBLE){
+				key = Double.doubleToLongBits(doubles[row]);
+			} else if(longs != null){
+				key = longs[row];
+			} else {
+				key = (ints != null) ? ints[row] : codes[row];
+			}
+			bits[row >>> 6] |= (Arrays.binarySearch(keys, key) >= 0 ? 1L : 0L) << row;
+		}
+		return withoutNulls(bits, fromRow, toRow);
+	}
+	
+	// Rows whose value low <= value <= high, numbers only
+	public long[] between(double low, double high, int fromRow, int toRow){
+		long[] bits = Bitmaps.empty(size);
+		if(ints != null){
+			for(int row=fromRow; row<toRow; row++){
+				double value = ints[row];
+				bits[row >>> 6] |= (value >= low && value <= high ? 1L : 0L) << row;
+			}
+		} else if(longs != null){
+			for(int row=fromRow; row<toRow; row++){
+				double value = longs[row];
+				bits[row >>> 6] |= (value >= low && value <= high ? 1L : 0L) << row;
+			}
+		} else {
+			for(int row=fromRow; row<toRow; row++){
+				double value = doubles[row];
+				bits[row >>> 6] |= (value >= low && value <= high ? 1L : 0L) << row;
+			}
+		}
+		return withoutNulls(bits, fromRow, toRow);
+	}
+	
+	// Rows whose value <= low or value >= high, numbers only
+	public long[] notBetween(double low, double high, int fromRow, int toRow){
+		long[] bits = Bitmaps.empty(size);
+		if(ints != null){
+			for(int row=fromRow; row<toRow; row++){
+				double value = ints[row];
+				bits[row >>> 6] |= (value <= low || value >= high ? 1L : 0L) << row;
+			}
+		} else if(longs != null){
+			for(int row=fromRow; row<toRow; row++){
+				double value = longs[row];
+				bits[row >>> 6] |= (value <= low || value >= high ? 1L : 0L) << row;
+			}
+		} else {
+			for(int row=fromRow; row<toRow; row++){
+				double value = doubles[row];
+				bits[row >>> 6] |= (value <= low || value >= high ? 1L : 0L) << row;
+			}
+		}
+		return withoutNulls(bits, fromRow, toRow);
+	}
+	
+	// Rows of the rows bitmap whose value is accepted, strings only.
+	// The predicate is called once per distinct value of those rows, in rows order
+	public long[] matching(long[] rows, Predicate<Object> predicate){
+		byte[] states = new byte[dictionarySize]; // 0 not tested yet, 1 accepted, 2 rejected
+		long[] bits = Bitmaps.empty(size);
+		for(int row=Bitmaps.nextSetBit(rows, 0); row>=0 && row<size; row=Bitmaps.nextSetBit(rows, row + 1)){
+			if(isNull(row)){
+				continue;
+			}
+			int code = codes[row];
+			if(states[code] == 0){
+				states[code] = (byte) (predicate.test(dictionary[code]) ? 1 : 2);
+			}
+			bits[row >>> 6] |= (states[code] == 1 ? 1L : 0L) << row;
+		}
+		return bits;
+	}
+	
+	private int capacity(){
+		if(ints != null){
+			return ints.length;
+		} else if(longs != null){
+			return longs.length;
+		} else if(doubles != null){
+			return doubles.length;
+		}
+		return codes.length;
+	}
+	
+	private void ensureCapacity(int capacity){
+		if(capacity <= capacity()){
+			return;
+		}
+		int grown = Math.max(capacity, capacity() + (capacity() >> 1) + 1);
+		if(nulls != null){
+			nulls = Arrays.copyOf(nulls, grown);
+		}
+		if(ints != null){
+			ints = Arrays.copyOf(ints, grown);
+		} else if(longs != null){
+			longs = Arrays.copyOf(longs, grown);
+		} else if(doubles != null){
+			doubles = Arrays.copyOf(doubles, grown);
+		} else {
+			codes = Arrays.copyOf(codes, grown);
+		}
+	}
+	
+	// Drop the given rows, the next rows move up
+	public void remove(BitSet rows){
+		int kept = 0;
+		for(int row=0; row<size; row++){
+			if(rows.get(row)){
+				continue;
+			}
+			if(nulls != null){
+				nulls[kept] = nulls[row];
+			}
+			if(ints != null){
+				ints[kept] = ints[row];
+			} else if(longs != null){
+				longs[kept] = longs[row];
+			} else if(doubles != null){
+				doubles[kept] = doubles[row];
+			} else {
+				codes[kept] = codes[row];
+			}
+			kept++;
+		}
+		size = kept;
+	}
+	
+	public void clear(){
+		size = 0;
+		nulls = null;
+		if(codes != null){
+			dictionary = new String[INITIAL_CAPACITY];
+			dictionarySize = 0;
+			codesByValue = new HashMap<String, Integer>();
+		}
+	}
+	
+	// Copy of the values as a block of a binary file, the dictionary only keeps the values still used
+	public ColumnBlock toBlock(String name, int flags){
+		boolean[] blockNulls = (nulls == null) ? null : Arrays.copyOf(nulls, size);
+		if(codes == null){
+			return ColumnBlock.of(name, type, flags, size, blockNulls, (ints == null) ? null : Arrays.copyOf(ints, size),
+					(longs == null) ? null : Arrays.copyOf(longs, size), (doubles == null) ? null : Arrays.copyOf(doubles, size), null, null);
+		}
+		int[] newCodes = new int[dictionarySize];
+		Arrays.fill(newCodes, -1);
+		String[] blockDictionary = new String[dictionarySize];
+		int[] blockCodes = new int[size];
+		int used = 0;
+		for(int row=0; row<size; row++){
+			if(isNull(row)){
+				continue;
+			}
+			int code = codes[row];
+			if(newCodes[code] < 0){
+				newCodes[code] = used;
+				blockDictionary[used++] = dictionary[code];
+			}
+			blockCodes[row] = newCodes[code];
+		}
+		return ColumnBlock.of(name, type, flags, size, blockNulls, null, null, null, Arrays.copyOf(blockDictionary, used), blockCodes);
+	}
+}
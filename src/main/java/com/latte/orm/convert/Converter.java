@@ -0,0 +1,9 @@
+package com.latte.orm.convert;
+/**
+ * @author hikmatullohhari
+ */
+// Value of a field type from the text of a csv field, see Converters.register()
+public interface Converter<V> {
+	// text is only valid during the call, toString() it to keep it. A RuntimeException rejects the row
+	public V convert(CharSequence text);
+}
@@ -0,0 +1,246 @@
+package com.latte.orm.convert;
+/**
+ * @author hikmatullohhari
+ */
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Converters of csv text to the type of a field: the primitives and their wrappers, String, BigDecimal, BigInteger,
+// enums by name, LocalDate, LocalTime, LocalDateTime and Instant in ISO-8601, and the types given to register().
+// An empty field, or "null" as written by the exports, is null for a wrapper and the other types but String
+public class Converters {
+	private static final Map<Class<?>, Converter<?>> builtIn = new HashMap<Class<?>, Converter<?>>();
+	private static final Map<Class<?>, Converter<?>> registered = new ConcurrentHashMap<Class<?>, Converter<?>>();
+	
+	// Built-in converter, tryConvert() returns INVALID for text that isn't a value of its type so a dirty field costs
+	// no exception. convert() throws an IllegalArgumentException then, as the other converters
+	abstract static class Checked<V> implements Converter<V> {
+		static final Object INVALID = new Object();
+		
+		abstract Object tryConvert(CharSequence text);
+		
+		@SuppressWarnings("unchecked")
+		public V convert(CharSequence text){
+			Object value = tryConvert(text);
+			if(value == INVALID){
+				throw new IllegalArgumentException("Can't convert \""+text+"\"");
+			}
+			return (V) value;
+		}
+	}
+	
+	// Date or time in an ISO-8601 format, the syntax and the range of each field are checked before parse()
+	private abstract static class Temporal<V> extends Checked<V> {
+		private final DateTimeFormatter format;
+		
+		Temporal(DateTimeFormatter format){
+			this.format = format;
+		}
+		
+		abstract V parse(CharSequence text);
+		
+		Object tryConvert(CharSequence text){
+			ParsePosition position = new ParsePosition(0);
+			TemporalAccessor fields = format.parseUnresolved(text, position);
+			if(fields == null || position.getIndex() != text.length()){
+				return INVALID;
+			}
+			for(ChronoField field: ChronoField.values()){
+				if(fields.isSupported(field) && !field.range().isValidValue(fields.getLong(field))){
+					return INVALID;
+				}
+			}
+			try {
+				return parse(text);
+			} catch (DateTimeException e) { // a day out of its month is only found when the fields are resolved
+				return INVALID;
+			}
+		}
+	}
+	
+	private static final Checked<String> STRING = new Checked<String>() {
+		Object tryConvert(CharSequence text){
+			return text.toString();
+		}
+	};
+	
+	static {
+		builtIn.put(String.class, STRING);
+		add(int.class, Integer.class, new Checked<Integer>() {
+			Object tryConvert(CharSequence text){
+				int value = NumberParser.parseInt(text, Integer.MIN_VALUE);
+				return (value == Integer.MIN_VALUE && !NumberParser.isInt(text)) ? INVALID : value;
+			}
+		});
+		add(long.class, Long.class, new Checked<Long>() {
+			Object tryConvert(CharSequence text){
+				long value = NumberParser.parseLong(text, Long.MIN_VALUE);
+				return (value == Long.MIN_VALUE && !NumberParser.isLong(text)) ? INVALID : value;
+			}
+		});
+		add(float.class, Float.class, new Checked<Float>() {
+			Object tryConvert(CharSequence text){
+				float value = NumberParser.parseFloat(text, Float.NaN);
+				return (Float.isNaN(value) && !NumberParser.isDecimal(text)) ? INVALID : value;
+			}
+		});
+		add(double.class, Double.class, new Checked<Double>() {
+			Object tryConvert(CharSequence text){
+				double value = NumberParser.parseDouble(text, Double.NaN);
+				return (Double.isNaN(value) && !NumberParser.isDecimal(text)) ? INVALID : value;
+			}
+		});
+		add(short.class, Short.class, new Checked<Short>() {
+			Object tryConvert(CharSequence text){
+				int value = NumberParser.parseInt(text, Integer.MIN_VALUE); // out of range as an invalid text
+				return (value < Short.MIN_VALUE || value > Short.MAX_VALUE) ? INVALID : (short) value;
+			}
+		});
+		add(byte.class, Byte.class, new Checked<Byte>() {
+			Object tryConvert(CharSequence text){
+				int value = NumberParser.parseInt(text, Integer.MIN_VALUE);
+				return (value < Byte.MIN_VALUE || value > Byte.MAX_VALUE) ? INVALID : (byte) value;
+			}
+		});
+		add(boolean.class, Boolean.class, new Checked<Boolean>() { // stricter than Boolean.parseBoolean(), a typo isn't false
+			Object tryConvert(CharSequence text){
+				if(equalsIgnoreCase(text, "true")){
+					return Boolean.TRUE;
+				} else if(equalsIgnoreCase(text, "false")){
+					return Boolean.FALSE;
+				}
+				return INVALID;
+			}
+		});
+		add(char.class, Character.class, new Checked<Character>() {
+			Object tryConvert(CharSequence text){
+				return (text.length() == 1) ? text.charAt(0) : INVALID;
+			}
+		});
+		add(null, BigDecimal.class, new Checked<BigDecimal>() {
+			Object tryConvert(CharSequence text){
+				if(!NumberParser.isBigDecimal(text)){
+					return INVALID;
+				}
+				try {
+					return new BigDecimal(text.toString());
+				} catch (NumberFormatException e) { // a scale out of the int range
+					return INVALID;
+				}
+			}
+		});
+		add(null, BigInteger.class, new Checked<BigInteger>() {
+			Object tryConvert(CharSequence text){
+				return NumberParser.isBigInteger(text) ? new BigInteger(text.toString()) : INVALID;
+			}
+		});
+		add(null, LocalDate.class, new Temporal<LocalDate>(DateTimeFormatter.ISO_LOCAL_DATE) {
+			LocalDate parse(CharSequence text){
+				return LocalDate.parse(text);
+			}
+		});
+		add(null, LocalTime.class, new Temporal<LocalTime>(DateTimeFormatter.ISO_LOCAL_TIME) {
+			LocalTime parse(CharSequence text){
+				return LocalTime.parse(text);
+			}
+		});
+		add(null, LocalDateTime.class, new Temporal<LocalDateTime>(DateTimeFormatter.ISO_LOCAL_DATE_TIME) {
+			LocalDateTime parse(CharSequence text){
+				return LocalDateTime.parse(text);
+			}
+		});
+		add(null, Instant.class, new Temporal<Instant>(DateTimeFormatter.ISO_INSTANT) {
+			Instant parse(CharSequence text){
+				return Instant.parse(text);
+			}
+		});
+	}
+	
+	// The primitive gets converter, the object type a converter giving null for a missing value. primitive may be null
+	private static void add(Class<?> primitive, Class<?> type, Checked<?> converter){
+		if(primitive != null){
+			builtIn.put(primitive, converter);
+		}
+		builtIn.put(type, nullable(converter));
+	}
+	
+	private static <V> Checked<V> nullable(final Checked<V> converter){
+		return new Checked<V>() {
+			Object tryConvert(CharSequence text){
+				return isNull(text) ? null : converter.tryConvert(text);
+			}
+		};
+	}
+	
+	private static boolean isNull(CharSequence text){
+		return text.length() == 0 || (text.length() == 4 && equalsIgnoreCase(text, "null"));
+	}
+	
+	private static boolean equalsIgnoreCase(CharSequence text, String value){
+		if(text.length() != value.length()){
+			return false;
+		}
+		for(int i=0; i<value.length(); i++){
+			if(Character.toLowerCase(text.charAt(i)) != value.charAt(i)){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	// Used for type instead of the built-in converter, by the mappings started after it. Not for subclasses of type
+	public static <V> void register(Class<V> type, Converter<? extends V> converter){
+		registered.put(type, converter);
+	}
+	
+	public static void unregister(Class<?> type){
+		registered.remove(type);
+	}
+	
+	static boolean isRegistered(Class<?> type){
+		return registered.containsKey(type);
+	}
+	
+	// null if no converter gives a value of type
+	public static Converter<?> of(final Class<?> type){
+		Converter<?> converter = registered.get(type);
+		if(converter == null){
+			converter = builtIn.get(type);
+		}
+		if(converter == null && type.isEnum()){
+			converter = nullable(new Checked<Object>() {
+				private final Map<String, Object> constants = constants(type);
+				
+				Object tryConvert(CharSequence text){
+					Object constant = constants.get(text.toString());
+					return (constant == null) ? INVALID : constant;
+				}
+			});
+		}
+		if(converter == null && type.isAssignableFrom(String.class)){ // Object, CharSequence, Comparable...
+			converter = STRING;
+		}
+		return converter;
+	}
+	
+	// Constants of an enum by name, as Enum.valueOf() finds them
+	private static Map<String, Object> constants(Class<?> type){
+		Map<String, Object> constants = new HashMap<String, Object>();
+		for(Object constant: type.getEnumConstants()){
+			constants.put(((Enum<?>) constant).name(), constant);
+		}
+		return constants;
+	}
+}
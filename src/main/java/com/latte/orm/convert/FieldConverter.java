@@ -0,0 +1,102 @@
+package com.latte.orm.convert;
+/**
+ * @author hikmatullohhari
+ */
+import java.lang.reflect.InvocationTargetException;
+
+import com.latte.orm.helpers.Accessor;
+
+// Sets one field from the text of a csv field, resolved once for each setter a mapping binds.
+// int, long, float and double are parsed from the chars of the field and set without boxing
+public abstract class FieldConverter {
+	protected final Accessor setter;
+	
+	private FieldConverter(Accessor setter){
+		this.setter = setter;
+	}
+	
+	// false if text can't be converted to the field type, the field is then unchanged. Nothing is thrown for it
+	public abstract boolean set(Object target, CharSequence text) throws InvocationTargetException;
+	
+	public Class<?> getType(){
+		return setter.getType();
+	}
+	
+	// null if Converters has no converter for the type of the setter
+	public static FieldConverter of(Accessor setter){
+		Class<?> type = setter.getType();
+		Converter<?> converter = Converters.of(type);
+		if(converter == null){
+			return null;
+		} else if(Converters.isRegistered(type)){
+			return converted(setter, converter);
+		} else if(type == int.class){
+			return new FieldConverter(setter) {
+				public boolean set(Object target, CharSequence text) throws InvocationTargetException {
+					int value = NumberParser.parseInt(text, Integer.MIN_VALUE);
+					if(value == Integer.MIN_VALUE && !NumberParser.isInt(text)){
+						return false;
+					}
+					setter.setInt(target, value);
+					return true;
+				}
+			};
+		} else if(type == long.class){
+			return new FieldConverter(setter) {
+				public boolean set(Object target, CharSequence text) throws InvocationTargetException {
+					long value = NumberParser.parseLong(text, Long.MIN_VALUE);
+					if(value == Long.MIN_VALUE && !NumberParser.isLong(text)){
+						return false;
+					}
+					setter.setLong(target, value);
+					return true;
+				}
+			};
+		} else if(type == float.class){
+			return new FieldConverter(setter) {
+				public boolean set(Object target, CharSequence text) throws InvocationTargetException {
+					float value = NumberParser.parseFloat(text, Float.NaN);
+					if(Float.isNaN(value) && !NumberParser.isDecimal(text)){
+						return false;
+					}
+					setter.setFloat(target, value);
+					return true;
+				}
+			};
+		} else if(type == double.class){
+			return new FieldConverter(setter) {
+				public boolean set(Object target, CharSequence text) throws InvocationTargetException {
+					double value = NumberParser.parseDouble(text, Double.NaN);
+					if(Double.isNaN(value) && !NumberParser.isDecimal(text)){
+						return false;
+					}
+					setter.setDouble(target, value);
+					return true;
+				}
+			};
+		}
+		return converted(setter, converter);
+	}
+	
+	private static FieldConverter converted(Accessor setter, final Converter<?> converter){
+		return new FieldConverter(setter) {
+			public boolean set(Object target, CharSequence text) throws InvocationTargetException {
+				Object value;
+				if(converter instanceof Converters.Checked){
+					value = ((Converters.Checked<?>) converter).tryConvert(text);
+				} else {
+					try {
+						value = converter.convert(text);
+					} catch (RuntimeException e) { // a registered converter rejects the row
+						return false;
+					}
+				}
+				if(value == Converters.Checked.INVALID || (value == null && getType().isPrimitive())){
+					return false;
+				}
+				this.setter.set(target, value);
+				return true;
+			}
+		};
+	}
+}
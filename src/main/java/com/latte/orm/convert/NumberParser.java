@@ -0,0 +1,265 @@
+package com.latte.orm.convert;
+/**
+ * @author hikmatullohhari
+ */
+// Numbers from the text of a field without creating a String. Plain decimal text is parsed here, anything else
+// (exponents, whitespace, NaN, non ASCII digits, too many digits...) by the JDK parsers, so the result is the same.
+// Nothing is thrown for text that isn't a number, the parsers return the given invalid value instead. As invalid may
+// also be the value of the text, isInt() and the others tell them apart when it is returned
+public class NumberParser {
+	private static final long NOT_PLAIN = Long.MIN_VALUE; // never the value of 18 digits
+	private static final int MAX_LONG_DIGITS = 18;
+	private static final int MAX_DOUBLE_DIGITS = 15; // below 2^53, exact in a double
+	private static final int MAX_FLOAT_DIGITS = 7; // below 2^24, exact in a float
+	private static final double[] POWERS = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 // the powers of ten exact in a double
+	};
+	private static final float[] FLOAT_POWERS = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+	
+	public static int parseInt(CharSequence text, int invalid){
+		long value = parsePlain(text);
+		if(value == NOT_PLAIN || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE){
+			return isInt(text) ? Integer.parseInt(text.toString()) : invalid;
+		}
+		return (int) value;
+	}
+	
+	public static long parseLong(CharSequence text, long invalid){
+		long value = parsePlain(text);
+		if(value == NOT_PLAIN){
+			return isLong(text) ? Long.parseLong(text.toString()) : invalid;
+		}
+		return value;
+	}
+	
+	public static boolean isInt(CharSequence text){
+		return isInteger(text, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+	
+	public static boolean isLong(CharSequence text){
+		return isInteger(text, Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+	
+	// Whether Long.parseLong() accepts text and its value is between min and max, checked the same way
+	private static boolean isInteger(CharSequence text, long min, long max){
+		int length = text.length();
+		boolean isNegative = length > 0 && text.charAt(0) == '-';
+		int i = (length > 0 && (isNegative || text.charAt(0) == '+')) ? 1 : 0;
+		if(i == length){
+			return false;
+		}
+		long limit = isNegative ? min : -max;
+		long multiplyLimit = limit / 10;
+		long value = 0; // accumulated negatively, so min fits
+		for(; i<length; i++){
+			int digit = Character.digit(text.charAt(i), 10);
+			if(digit < 0 || value < multiplyLimit){
+				return false;
+			}
+			value *= 10;
+			if(value < limit + digit){
+				return false;
+			}
+			value -= digit;
+		}
+		return true;
+	}
+	
+	// Whether text is an optional sign and digits of any count, as new BigInteger() accepts it
+	public static boolean isBigInteger(CharSequence text){
+		int length = text.length();
+		int i = (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) ? 1 : 0;
+		if(i == length){
+			return false;
+		}
+		for(; i<length; i++){
+			if(Character.digit(text.charAt(i), 10) < 0){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	// Value of an optional sign and 1 to 18 digits, NOT_PLAIN for any other text
+	private static long parsePlain(CharSequence text){
+		int length = text.length();
+		int i = (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) ? 1 : 0;
+		if(i == length || length - i > MAX_LONG_DIGITS){
+			return NOT_PLAIN;
+		}
+		long value = 0;
+		for(int j=i; j<length; j++){
+			char c = text.charAt(j);
+			if(c < '0' || c > '9'){
+				return NOT_PLAIN;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return (text.charAt(0) == '-') ? -value : value;
+	}
+	
+	// Both operands of the division are exact, IEEE division rounds the quotient correctly like Double.parseDouble()
+	public static double parseDouble(CharSequence text, double invalid){
+		long mantissa = parseMantissa(text, MAX_DOUBLE_DIGITS);
+		int scale = scale(text);
+		if(mantissa == NOT_PLAIN || scale >= POWERS.length){
+			if(!isDecimal(text)){
+				return invalid;
+			}
+			try {
+				return Double.parseDouble(text.toString());
+			} catch (NumberFormatException e) { // only if isDecimal() missed a rule of the JDK
+				return invalid;
+			}
+		}
+		double value = mantissa / POWERS[scale];
+		return (text.charAt(0) == '-') ? -value : value;
+	}
+	
+	public static float parseFloat(CharSequence text, float invalid){
+		long mantissa = parseMantissa(text, MAX_FLOAT_DIGITS);
+		int scale = scale(text);
+		if(mantissa == NOT_PLAIN || scale >= FLOAT_POWERS.length){
+			if(!isDecimal(text)){
+				return invalid;
+			}
+			try {
+				return Float.parseFloat(text.toString());
+			} catch (NumberFormatException e) {
+				return invalid;
+			}
+		}
+		float value = mantissa / FLOAT_POWERS[scale];
+		return (text.charAt(0) == '-') ? -value : value;
+	}
+	
+	// Whether Double.parseDouble() and Float.parseFloat() accept text, after the grammar of Double.valueOf(): blanks
+	// around, a sign, then NaN, Infinity, decimal digits with an exponent or hex digits with a binary one, and an
+	// optional f, F, d or D
+	public static boolean isDecimal(CharSequence text){
+		int start = 0, end = text.length();
+		while(start < end && text.charAt(start) <= ' '){
+			start++;
+		}
+		while(end > start && text.charAt(end - 1) <= ' '){
+			end--;
+		}
+		if(start < end && (text.charAt(start) == '-' || text.charAt(start) == '+')){
+			start++;
+		}
+		if(isWord(text, start, end, "NaN") || isWord(text, start, end, "Infinity")){
+			return true;
+		}
+		if(end > start && "fFdD".indexOf(text.charAt(end - 1)) >= 0){
+			end--;
+		}
+		boolean isHex = end - start > 2 && text.charAt(start) == '0' && (text.charAt(start + 1) == 'x' || text.charAt(start + 1) == 'X');
+		int i = isHex ? start + 2 : start;
+		int digits = 0;
+		boolean isDot = false;
+		for(; i<end; i++){
+			char c = text.charAt(i);
+			if((c >= '0' && c <= '9') || (isHex && ((c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F')))){
+				digits++;
+			} else if(c == '.' && !isDot){
+				isDot = true;
+			} else {
+				break;
+			}
+		}
+		if(digits == 0){
+			return false;
+		} else if(i == end){
+			return !isHex; // the binary exponent is required
+		}
+		char exponent = text.charAt(i++);
+		if(isHex ? (exponent != 'p' && exponent != 'P') : (exponent != 'e' && exponent != 'E')){
+			return false;
+		}
+		if(i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')){
+			i++;
+		}
+		if(i == end){
+			return false;
+		}
+		for(; i<end; i++){
+			if(text.charAt(i) < '0' || text.charAt(i) > '9'){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	// Whether text is an optional sign, digits with at most one dot and an optional exponent, as new BigDecimal()
+	// accepts it
+	public static boolean isBigDecimal(CharSequence text){
+		int length = text.length();
+		int i = (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) ? 1 : 0;
+		int digits = 0;
+		boolean isDot = false;
+		for(; i<length; i++){
+			char c = text.charAt(i);
+			if(Character.digit(c, 10) >= 0){
+				digits++;
+			} else if(c == '.' && !isDot){
+				isDot = true;
+			} else {
+				break;
+			}
+		}
+		if(digits == 0){
+			return false;
+		} else if(i == length){
+			return true;
+		} else if(text.charAt(i) != 'e' && text.charAt(i) != 'E'){
+			return false;
+		}
+		return isInt(text.subSequence(i + 1, length)); // the exponent fits an int
+	}
+	
+	private static boolean isWord(CharSequence text, int start, int end, String word){
+		if(end - start != word.length()){
+			return false;
+		}
+		for(int i=0; i<word.length(); i++){
+			if(text.charAt(start + i) != word.charAt(i)){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	// Digits of an optional sign, digits and one dot as an unsigned integer, NOT_PLAIN for any other text or more digits
+	private static long parseMantissa(CharSequence text, int maxDigits){
+		int length = text.length();
+		int i = (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) ? 1 : 0;
+		long mantissa = 0;
+		int digits = 0;
+		boolean isDot = false;
+		for(; i<length; i++){
+			char c = text.charAt(i);
+			if(c >= '0' && c <= '9'){
+				if(++digits > maxDigits){
+					return NOT_PLAIN;
+				}
+				mantissa = mantissa * 10 + (c - '0');
+			} else if(c == '.' && !isDot){
+				isDot = true;
+			} else {
+				return NOT_PLAIN;
+			}
+		}
+		return (digits == 0) ? NOT_PLAIN : mantissa;
+	}
+	
+	// Digits after the dot
+	private static int scale(CharSequence text){
+		for(int i=text.length()-1; i>=0; i--){
+			if(text.charAt(i) == '.'){
+				return text.length() - 1 - i;
+			}
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,232 @@
+package com.latte.orm.csv;
+/**
+ * @author hikmatullohhari
+ */
+import java.io.IOException;
+import java.io.Reader;
+
+// Single pass RFC 4180 tokenizer: quoted fields, "" escaped quotes and line breaks inside quotes.
+// Fields of the current record are kept in one reused char buffer, a String is only created by getField()
+public class CSVTokenizer implements RecordReader {
+	private static final int START = 0;
+	private static final int UNQUOTED = 1;
+	private static final int QUOTED = 2;
+	private static final int QUOTE_IN_QUOTED = 3;
+	
+	private final Reader reader;
+	private final char[] delimiter;
+	private char[] buffer = new char[65536];
+	private int position = 0;
+	private int limit = 0;
+	private boolean isEndOfInput = false;
+	
+	private char[] chars = new char[1024];
+	private int length = 0;
+	private int[] fieldStarts = new int[64];
+	private int[] fieldEnds = new int[64];
+	private int fieldCount = 0;
+	private boolean isQuoted = false;
+	private long lines = 0;
+	private long lineNumber = 0;
+	private final FieldText text = new FieldText();
+	
+	public CSVTokenizer(Reader reader, String delimiter){
+		if(delimiter == null || delimiter.isEmpty()){
+			throw new IllegalArgumentException("delimiter can't be empty");
+		}
+		this.reader = reader;
+		this.delimiter = delimiter.toCharArray();
+	}
+	
+	public boolean next() throws IOException {
+		do {
+			if(!readRecord()){
+				return false;
+			}
+		} while(fieldCount == 1 && fieldStarts[0] == fieldEnds[0] && !isQuoted);
+		return true;
+	}
+	
+	private boolean readRecord() throws IOException {
+		length = 0;
+		fieldCount = 0;
+		isQuoted = false;
+		int state = START;
+		int fieldStart = 0;
+		if(!ensure(1)){
+			return false;
+		}
+		lineNumber = ++lines;
+		while(ensure(1)){
+			char c = buffer[position];
+			if(state == QUOTED){
+				position++;
+				if(c == '"'){
+					state = QUOTE_IN_QUOTED;
+				} else {
+					if(c == '\n'){
+						lines++;
+					}
+					append(c);
+				}
+				continue;
+			}
+			if(state == QUOTE_IN_QUOTED && c == '"'){
+				position++;
+				append('"');
+				state = QUOTED;
+				continue;
+			}
+			if(c == '\n' || c == '\r'){
+				position++;
+				if(c == '\r' && ensure(1) && buffer[position] == '\n'){
+					position++;
+				}
+				endField(fieldStart);
+				return true;
+			}
+			if(c == delimiter[0] && isDelimiter()){
+				position += delimiter.length;
+				endField(fieldStart);
+				fieldStart = length;
+				state = START;
+				continue;
+			}
+			position++;
+			if(state == START && c == '"'){
+				state = QUOTED;
+				isQuoted = true;
+			} else {
+				append(c); // text after a closing quote is kept as it is
+				state = UNQUOTED;
+			}
+		}
+		endField(fieldStart);
+		return true;
+	}
+	
+	private boolean isDelimiter() throws IOException {
+		if(delimiter.length == 1){
+			return true;
+		}
+		if(!ensure(delimiter.length)){
+			return false;
+		}
+		for(int i=1; i<delimiter.length; i++){
+			if(buffer[position+i] != delimiter[i]){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	// Make sure at least n chars are available from position, false if the input ends before
+	private boolean ensure(int n) throws IOException {
+		while(limit - position < n){
+			if(isEndOfInput){
+				return false;
+			}
+			if(position > 0){
+				System.arraycopy(buffer, position, buffer, 0, limit - position);
+				limit -= position;
+				position = 0;
+			}
+			int read = reader.read(buffer, limit, buffer.length - limit);
+			if(read < 0){
+				isEndOfInput = true;
+			} else {
+				limit += read;
+			}
+		}
+		return true;
+	}
+	
+	private void append(char c){
+		if(length == chars.length){
+			char[] grown = new char[chars.length * 2];
+			System.arraycopy(chars, 0, grown, 0, length);
+			chars = grown;
+		}
+		chars[length++] = c;
+	}
+	
+	private void endField(int fieldStart){
+		if(fieldCount == fieldStarts.length){
+			int[] starts = new int[fieldCount * 2];
+			int[] ends = new int[fieldCount * 2];
+			System.arraycopy(fieldStarts, 0, starts, 0, fieldCount);
+			System.arraycopy(fieldEnds, 0, ends, 0, fieldCount);
+			fieldStarts = starts;
+			fieldEnds = ends;
+		}
+		fieldStarts[fieldCount] = fieldStart;
+		fieldEnds[fieldCount] = length;
+		fieldCount++;
+	}
+	
+	public int getFieldCount(){
+		return fieldCount;
+	}
+	
+	public String getField(int i){
+		return new String(chars, fieldStarts[i], fieldEnds[i] - fieldStarts[i]);
+	}
+	
+	public CharSequence getText(int i){
+		text.start = fieldStarts[i];
+		text.end = fieldEnds[i];
+		return text;
+	}
+	
+	// Chars of one field of the current record
+	private class FieldText implements CharSequence {
+		private int start;
+		private int end;
+		
+		public int length(){
+			return end - start;
+		}
+		
+		public char charAt(int index){
+			return chars[start + index];
+		}
+		
+		public CharSequence subSequence(int from, int to){
+			return toString().substring(from, to);
+		}
+		
+		@Override
+		public String toString(){
+			return new String(chars, start, end - start);
+		}
+	}
+	
+	public String[] getFields(){
+		String[] fields = new String[fieldCount];
+		for(int i=0; i<fieldCount; i++){
+			fields[i] = getField(i);
+		}
+		return fields;
+	}
+	
+	// Unescaped chars of the current record, field i is chars[getStart(i)] to chars[getEnd(i) - 1]
+	public char[] getChars(){
+		return chars;
+	}
+	
+	public int getStart(int i){
+		return fieldStarts[i];
+	}
+	
+	public int getEnd(int i){
+		return fieldEnds[i];
+	}
+	
+	public long getLineNumber(){
+		return lineNumber;
+	}
+	
+	public void close() throws IOException {
+		reader.close();
+	}
+}
@@ -0,0 +1,92 @@
+package com.latte.orm.csv;
+/**
+ * @author hikmatullohhari
+ */
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+// Writes records read back the same by CSVTokenizer: a field containing the delimiter, a double quote
+// or a line break is enclosed in double quotes and its double quotes are written twice. So is a field whose end
+// would run into the delimiter and a record of one empty field
+public class CSVWriter {
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+	
+	private final Writer writer;
+	private final String delimiter;
+	private final char firstDelimiterChar;
+	private boolean isFirstField = true;
+	private boolean isEmptyRecord = true; // the record is one empty field so far
+	
+	public CSVWriter(Writer writer, String delimiter){
+		if(delimiter == null || delimiter.isEmpty()){
+			throw new IllegalArgumentException("delimiter can't be empty");
+		}
+		this.writer = (writer instanceof BufferedWriter) ? writer : new BufferedWriter(writer, 65536);
+		this.delimiter = delimiter;
+		this.firstDelimiterChar = delimiter.charAt(0);
+	}
+	
+	public void writeField(String value) throws IOException {
+		if(!isFirstField){
+			writer.write(delimiter);
+		}
+		isEmptyRecord = isFirstField && value.isEmpty();
+		isFirstField = false;
+		if(!isQuotingNeeded(value)){
+			writer.write(value);
+			return;
+		}
+		writer.write('"');
+		int start = 0;
+		for(int i=0; i<value.length(); i++){
+			if(value.charAt(i) == '"'){
+				writer.write(value, start, i + 1 - start);
+				writer.write('"');
+				start = i + 1;
+			}
+		}
+		writer.write(value, start, value.length() - start);
+		writer.write('"');
+	}
+	
+	private boolean isQuotingNeeded(String value){
+		for(int i=0; i<value.length(); i++){
+			char c = value.charAt(i);
+			if(c == '"' || c == '\n' || c == '\r' || (c == firstDelimiterChar && value.startsWith(delimiter, i))){
+				return true;
+			}
+		}
+		return delimiter.length() > 1 && isDelimiterOverlapping(value);
+	}
+	
+	// The end of the value followed by the delimiter holds the delimiter earlier, as "a:" followed by "::"
+	private boolean isDelimiterOverlapping(String value){
+		String end = value.substring(Math.max(0, value.length() - delimiter.length() + 1));
+		return (end + delimiter).indexOf(delimiter) < end.length();
+	}
+	
+	public void endRecord() throws IOException {
+		if(isEmptyRecord && !isFirstField){ // a blank line is skipped by CSVTokenizer
+			writer.write("\"\"");
+		}
+		writer.write(LINE_SEPARATOR);
+		isFirstField = true;
+		isEmptyRecord = true;
+	}
+	
+	public void writeRecord(String[] fields) throws IOException {
+		for(String field: fields){
+			writeField(field);
+		}
+		endRecord();
+	}
+	
+	public void flush() throws IOException {
+		writer.flush();
+	}
+	
+	public void close() throws IOException {
+		writer.close();
+	}
+}
@@ -0,0 +1,124 @@
+package com.latte.orm.csv;
+/**
+ * @author hikmatullohhari
+ */
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+// Append-only log of csv entries. Entries are kept in memory until commit(), threads committing at the same time
+// share one write and one fsync. Each entry ends with an END field, an entry without it was torn by a crash
+public class Journal {
+	public static final String END = ".";
+	
+	private final File file;
+	private final String delimiter;
+	private final boolean isSynced;
+	private final Charset charset = Charset.defaultCharset(); // same charset as FileReader
+	private final Object commitLock = new Object();
+	private StringWriter pending = new StringWriter();
+	private CSVWriter writer;
+	private FileChannel channel;
+	private long appended = 0;
+	private long committed = 0;
+	
+	// isSynced forces every commit to the disk before returning
+	public Journal(File file, String delimiter, boolean isSynced){
+		this.file = file;
+		this.delimiter = delimiter;
+		this.isSynced = isSynced;
+		this.writer = new CSVWriter(pending, delimiter);
+	}
+	
+	public synchronized void append(String operation, String key, String[] row) throws IOException {
+		writer.writeField(operation);
+		writer.writeField(key);
+		if(row != null){
+			for(String field: row){
+				writer.writeField(field);
+			}
+		}
+		writer.writeField(END);
+		writer.endRecord();
+		appended++;
+	}
+	
+	// Write the entries appended so far, false if there is nothing to write
+	public boolean commit() throws IOException {
+		long target;
+		synchronized(this){
+			target = appended;
+		}
+		synchronized(commitLock){
+			if(committed >= target){ // written by the commit of another thread
+				return false;
+			}
+			String batch;
+			long upTo;
+			synchronized(this){
+				writer.flush();
+				batch = pending.toString();
+				pending = new StringWriter();
+				writer = new CSVWriter(pending, delimiter);
+				upTo = appended;
+			}
+			if(channel == null){
+				channel = new FileOutputStream(file, true).getChannel();
+			}
+			ByteBuffer bytes = charset.encode(batch);
+			while(bytes.hasRemaining()){
+				channel.write(bytes);
+			}
+			if(isSynced){
+				channel.force(false);
+			}
+			committed = upTo;
+			return true;
+		}
+	}
+	
+	// Size of the journal on the disk
+	public long size(){
+		return file.length();
+	}
+	
+	// Commit, then move the journal to target and start a new one, target is returned
+	public File rotate(File target) throws IOException {
+		synchronized(commitLock){
+			commit();
+			close();
+			if(!file.renameTo(target)){
+				throw new IOException("can't rename " + file + " to " + target);
+			}
+			return target;
+		}
+	}
+	
+	// Drop the journal on the disk and every entry not committed yet
+	public void clear() throws IOException {
+		synchronized(commitLock){
+			synchronized(this){
+				pending = new StringWriter();
+				writer = new CSVWriter(pending, delimiter);
+				committed = appended;
+			}
+			close();
+			if(file.exists() && !file.delete()){
+				throw new IOException("can't delete " + file);
+			}
+		}
+	}
+	
+	public void close() throws IOException {
+		synchronized(commitLock){
+			if(channel != null){
+				channel.close();
+				channel = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,403 @@
+package com.latte.orm.csv;
+/**
+ * @author hikmatullohhari
+ */
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+// Same records as CSVTokenizer, read from a memory-mapped file: delimiters are found on the bytes
+// and only the fields asked with getField() are decoded. The charset must write
+// the delimiter, quotes and line breaks as single ASCII bytes (UTF-8, ISO-8859-*, windows-125*)
+public class MappedCSVReader implements RecordReader {
+	private static final int WINDOW_SIZE = 256 << 20;
+	private static final int LOOK_AHEAD = 64 << 10; // bytes read by split() to guess each bound
+	private static final byte QUOTE = '"';
+	private static final byte LF = '\n';
+	private static final byte CR = '\r';
+	
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final long end;
+	private long stop; // no record starting at or after it is read
+	private final byte[] delimiter;
+	private final Charset charset;
+	private MappedByteBuffer buffer;
+	private long base; // file offset of buffer[0]
+	private int position = 0;
+	private int windowSize = WINDOW_SIZE;
+	
+	private int[] fieldStarts = new int[64];
+	private int[] fieldEnds = new int[64];
+	private boolean[] fieldQuoted = new boolean[64];
+	private int fieldCount = 0;
+	private byte[] scratch = new byte[256];
+	private final FieldText text = new FieldText();
+	private long lines = 0;
+	private long lineNumber = 0;
+	
+	public MappedCSVReader(File source, String delimiter, Charset charset) throws IOException {
+		this(source, delimiter, charset, 0, -1);
+	}
+	
+	// Records starting from byte offset from, up to byte offset to (-1 for the end of the file)
+	public MappedCSVReader(File source, String delimiter, Charset charset, long from, long to) throws IOException {
+		if(delimiter == null || delimiter.isEmpty()){
+			throw new IllegalArgumentException("delimiter can't be empty");
+		}
+		this.file = new RandomAccessFile(source, "r");
+		this.channel = file.getChannel();
+		this.end = (to < 0) ? channel.size() : Math.min(to, channel.size());
+		this.stop = end;
+		this.delimiter = delimiter.getBytes(charset);
+		this.charset = charset;
+		map(from);
+	}
+	
+	// count + 1 offsets splitting the bytes from byte offset from to byte offset to in ranges of about the same size.
+	// Each bound is found near an even split without reading the bytes before it, see recordStart(), so it is only a
+	// guess. A reader started on the bound before, with stopAt() the next bound, reads its last record to its end and
+	// tells with getOffset() where the next one really starts
+	public static long[] split(File source, String delimiter, Charset charset, long from, long to, int count) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(source, "r");
+		byte[] delimiterBytes = delimiter.getBytes(charset);
+		long[] bounds = new long[count + 1];
+		try {
+			bounds[0] = from;
+			for(int i=1; i<count; i++){
+				bounds[i] = Math.max(bounds[i - 1], recordStart(file, delimiterBytes, from + (to - from) * i / count, to));
+			}
+			bounds[count] = to;
+		} finally {
+			file.close();
+		}
+		return bounds;
+	}
+	
+	// Likely start of the first record at or after offset, from the LOOK_AHEAD bytes after it. A line start is inside
+	// a quoted field when the quotes before the first one whose role is certain say so: a quote after a delimiter or a
+	// line break and before anything else opens a field, one before them and after anything else closes it
+	private static long recordStart(RandomAccessFile file, byte[] delimiter, long offset, long to) throws IOException {
+		long base = offset - 1; // the byte before offset may end a line
+		byte[] bytes = new byte[(int) Math.min(LOOK_AHEAD, to - base)];
+		file.seek(base);
+		file.readFully(bytes);
+		int lineStart = nextLineStart(bytes, 1, base, to);
+		if(lineStart < 0){
+			return (base + bytes.length >= to) ? to : recordStart(file, delimiter, base + bytes.length, to);
+		}
+		int quotes = 0;
+		for(int i=lineStart; i<bytes.length; i++){
+			if(bytes[i] != QUOTE){
+				continue;
+			} else if(i + 1 < bytes.length && bytes[i + 1] == QUOTE){ // an escaped quote or an empty field
+				quotes += 2;
+				i++;
+				continue;
+			}
+			boolean isAfterBound = i == lineStart || isLineBreak(bytes[i - 1]) || endsWith(bytes, i, delimiter);
+			boolean isBeforeBound = (i + 1 == bytes.length) ? base + bytes.length >= to : isLineBreak(bytes[i + 1]) || startsWith(bytes, i + 1, delimiter);
+			if(isAfterBound != isBeforeBound){
+				boolean isQuotedBefore = isBeforeBound; // a closing quote ends a quoted field
+				boolean isQuoted = isQuotedBefore ^ (quotes % 2 == 1);
+				return base + (isQuoted ? unquotedLineStart(bytes, lineStart, base, to) : lineStart);
+			}
+			quotes++;
+		}
+		return base + lineStart;
+	}
+	
+	// Index of the first line start after a line break ending at or after from, -1 if there is none in bytes
+	private static int nextLineStart(byte[] bytes, int from, long base, long to){
+		for(int i=from-1; i<bytes.length; i++){
+			if(bytes[i] == LF || (bytes[i] == CR && ((i + 1 < bytes.length) ? bytes[i + 1] != LF : base + i + 1 >= to))){
+				return i + 1;
+			}
+		}
+		return -1;
+	}
+	
+	// Index of the first line start after the quoted field going on at from, from if it isn't found in bytes
+	private static int unquotedLineStart(byte[] bytes, int from, long base, long to){
+		boolean isInQuotes = true;
+		for(int i=from; i<bytes.length; i++){
+			if(bytes[i] == QUOTE){
+				isInQuotes = !isInQuotes;
+			} else if(!isInQuotes && isLineBreak(bytes[i])){
+				int lineStart = nextLineStart(bytes, i + 1, base, to);
+				return (lineStart < 0) ? from : lineStart;
+			}
+		}
+		return from;
+	}
+	
+	private static boolean isLineBreak(byte b){
+		return b == LF || b == CR;
+	}
+	
+	private static boolean endsWith(byte[] bytes, int end, byte[] suffix){
+		return end >= suffix.length && startsWith(bytes, end - suffix.length, suffix);
+	}
+	
+	private static boolean startsWith(byte[] bytes, int start, byte[] prefix){
+		if(start + prefix.length > bytes.length){
+			return false;
+		}
+		for(int i=0; i<prefix.length; i++){
+			if(bytes[start + i] != prefix[i]){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	// Records starting at or after offset aren't read, the one before it is read to its end even past offset
+	public void stopAt(long offset){
+		stop = Math.min(offset, end);
+	}
+	
+	public static boolean isSupported(Charset charset){
+		return charset.newEncoder().maxBytesPerChar() == 1 || charset.name().equals("UTF-8");
+	}
+	
+	private void map(long offset) throws IOException {
+		base = offset;
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(windowSize, end - offset));
+		position = 0;
+	}
+	
+	public boolean next() throws IOException {
+		do {
+			if(!readRecord()){
+				return false;
+			}
+		} while(fieldCount == 1 && fieldStarts[0] == fieldEnds[0] && !fieldQuoted[0]);
+		return true;
+	}
+	
+	// Byte offset in the file where the next record starts
+	public long getOffset(){
+		return base + position;
+	}
+	
+	// Byte offset where the records end
+	public long getEnd(){
+		return end;
+	}
+	
+	private boolean readRecord() throws IOException {
+		if(base + position >= stop){
+			return false;
+		}
+		while(!scanRecord()){ // the record goes past the mapped window, map again from its start
+			long recordStart = base + position;
+			if(recordStart == base){
+				windowSize = (int) Math.min(Integer.MAX_VALUE, 2L * windowSize);
+			}
+			map(recordStart);
+		}
+		return true;
+	}
+	
+	// false if the window ends before the record does
+	private boolean scanRecord(){
+		int limit = buffer.limit();
+		boolean isLastWindow = base + limit >= end;
+		int i = position;
+		int fieldStart = i;
+		boolean isQuoted = false;
+		boolean isInQuotes = false;
+		int newLines = 0;
+		fieldCount = 0;
+		while(true){
+			if(i >= limit){
+				if(!isLastWindow){
+					return false;
+				}
+				endField(fieldStart, i, isQuoted);
+				position = i;
+				break;
+			}
+			byte b = buffer.get(i);
+			if(isInQuotes){
+				if(b == QUOTE){
+					if(i + 1 >= limit && !isLastWindow){
+						return false;
+					}
+					if(i + 1 < limit && buffer.get(i + 1) == QUOTE){
+						i += 2;
+						continue;
+					}
+					isInQuotes = false;
+				} else if(b == LF){
+					newLines++;
+				}
+				i++;
+				continue;
+			}
+			if(b == LF || b == CR){
+				endField(fieldStart, i, isQuoted);
+				i++;
+				if(b == CR){
+					if(i >= limit && !isLastWindow){
+						return false;
+					}
+					if(i < limit && buffer.get(i) == LF){
+						i++;
+					}
+				}
+				position = i;
+				break;
+			}
+			if(b == delimiter[0]){
+				int match = matchDelimiter(i, limit);
+				if(match < 0 && !isLastWindow){
+					return false;
+				}
+				if(match > 0){
+					endField(fieldStart, i, isQuoted);
+					i += delimiter.length;
+					fieldStart = i;
+					isQuoted = false;
+					continue;
+				}
+			}
+			if(b == QUOTE && i == fieldStart){
+				isQuoted = true;
+				isInQuotes = true;
+			}
+			i++;
+		}
+		lineNumber = ++lines;
+		lines += newLines;
+		return true;
+	}
+	
+	// 1 if the delimiter starts at i, 0 if not, -1 if the window ends before it can be told
+	private int matchDelimiter(int i, int limit){
+		for(int j=1; j<delimiter.length; j++){
+			if(i + j >= limit){
+				return -1;
+			}
+			if(buffer.get(i + j) != delimiter[j]){
+				return 0;
+			}
+		}
+		return 1;
+	}
+	
+	private void endField(int start, int fieldEnd, boolean isQuoted){
+		if(fieldCount == fieldStarts.length){
+			int[] starts = new int[fieldCount * 2];
+			int[] ends = new int[fieldCount * 2];
+			boolean[] quoted = new boolean[fieldCount * 2];
+			System.arraycopy(fieldStarts, 0, starts, 0, fieldCount);
+			System.arraycopy(fieldEnds, 0, ends, 0, fieldCount);
+			System.arraycopy(fieldQuoted, 0, quoted, 0, fieldCount);
+			fieldStarts = starts;
+			fieldEnds = ends;
+			fieldQuoted = quoted;
+		}
+		fieldStarts[fieldCount] = start;
+		fieldEnds[fieldCount] = fieldEnd;
+		fieldQuoted[fieldCount] = isQuoted;
+		fieldCount++;
+	}
+	
+	public int getFieldCount(){
+		return fieldCount;
+	}
+	
+	public String getField(int i){
+		int length = fieldEnds[i] - fieldStarts[i];
+		if(scratch.length < length){
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		}
+		ByteBuffer field = buffer.duplicate();
+		field.position(fieldStarts[i]);
+		field.get(scratch, 0, length);
+		if(fieldQuoted[i]){
+			length = unescape(length);
+		}
+		return new String(scratch, 0, length, charset);
+	}
+	
+	// A String for a quoted field or one with bytes outside ASCII, the bytes of the others are their chars
+	public CharSequence getText(int i){
+		if(fieldQuoted[i]){
+			return getField(i);
+		}
+		for(int j=fieldStarts[i]; j<fieldEnds[i]; j++){
+			if(buffer.get(j) < 0){
+				return getField(i);
+			}
+		}
+		text.field = i;
+		return text;
+	}
+	
+	// ASCII bytes of one unquoted field of the current record
+	private class FieldText implements CharSequence {
+		private int field;
+		
+		public int length(){
+			return fieldEnds[field] - fieldStarts[field];
+		}
+		
+		public char charAt(int index){
+			return (char) buffer.get(fieldStarts[field] + index);
+		}
+		
+		public CharSequence subSequence(int from, int to){
+			return toString().substring(from, to);
+		}
+		
+		@Override
+		public String toString(){
+			return getField(field);
+		}
+	}
+	
+	// Remove the enclosing quotes and "" escapes in place, text after the closing quote is kept as it is
+	private int unescape(int length){
+		int written = 0;
+		int i = 1;
+		while(i < length){
+			byte b = scratch[i++];
+			if(b == QUOTE){
+				if(i < length && scratch[i] == QUOTE){
+					i++;
+				} else {
+					break;
+				}
+			}
+			scratch[written++] = b;
+		}
+		while(i < length){
+			scratch[written++] = scratch[i++];
+		}
+		return written;
+	}
+	
+	public String[] getFields(){
+		String[] fields = new String[fieldCount];
+		for(int i=0; i<fieldCount; i++){
+			fields[i] = getField(i);
+		}
+		return fields;
+	}
+	
+	public long getLineNumber(){
+		return lineNumber;
+	}
+	
+	public void close() throws IOException {
+		buffer = null;
+		channel.close();
+		file.close();
+	}
+}
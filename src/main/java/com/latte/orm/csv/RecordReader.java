@@ -0,0 +1,19 @@
+package com.latte.orm.csv;
+/**
+ * @author hikmatullohhari
+ */
+import java.io.IOException;
+
+// Reads a csv source one record at a time
+public interface RecordReader {
+	// Read the next record, false at the end of the input. Blank lines are skipped
+	public boolean next() throws IOException;
+	public int getFieldCount();
+	public String getField(int i);
+	// Field i without creating a String when the reader can, only valid until the next call
+	public CharSequence getText(int i);
+	public String[] getFields();
+	// Line of the input where the current record starts, from 1
+	public long getLineNumber();
+	public void close() throws IOException;
+}
@@ -0,0 +1,153 @@
+package com.latte.orm.helpers;
+/**
+ * @author hikmatullohhari
+ */
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+// Getter or setter of an entity, resolved once and invoked through a MethodHandle
+public class Accessor {
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	private final Method method;
+	private final Class<?> type;
+	private final MethodHandle handle;
+	private final MethodHandle primitiveHandle; // of a setter of a primitive, takes the value unboxed
+
+	Accessor(Method method, boolean setter){
+		this.method = method;
+		this.type = setter ? method.getParameterTypes()[0] : method.getReturnType();
+		MethodHandle mh = null;
+		try {
+			method.setAccessible(true);
+			mh = MethodHandles.lookup().unreflect(method).asType(setter ? SETTER_TYPE : GETTER_TYPE);
+		} catch (IllegalAccessException e) {
+			mh = null; // fall back to Method.invoke
+		} catch (SecurityException e) {
+			mh = null;
+		}
+		this.handle = mh;
+		MethodHandle primitive = null;
+		if(mh != null && setter && type.isPrimitive()){
+			try {
+				primitive = MethodHandles.lookup().unreflect(method).asType(MethodType.methodType(void.class, Object.class, type));
+			} catch (IllegalAccessException e) {
+				primitive = null;
+			}
+		}
+		this.primitiveHandle = primitive;
+	}
+
+	public Object get(Object target) throws InvocationTargetException {
+		try {
+			if(handle == null){
+				return method.invoke(target);
+			}
+			return (Object) handle.invokeExact(target);
+		} catch (InvocationTargetException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	public void set(Object target, Object value) throws InvocationTargetException {
+		try {
+			if(handle == null){
+				method.invoke(target, value);
+			} else {
+				handle.invokeExact(target, value);
+			}
+		} catch (InvocationTargetException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	// Setters of a primitive of that exact type, the value isn't boxed
+	public void setInt(Object target, int value) throws InvocationTargetException {
+		try {
+			if(primitiveHandle == null){
+				set(target, value);
+			} else {
+				primitiveHandle.invokeExact(target, value);
+			}
+		} catch (InvocationTargetException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	public void setLong(Object target, long value) throws InvocationTargetException {
+		try {
+			if(primitiveHandle == null){
+				set(target, value);
+			} else {
+				primitiveHandle.invokeExact(target, value);
+			}
+		} catch (InvocationTargetException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	public void setFloat(Object target, float value) throws InvocationTargetException {
+		try {
+			if(primitiveHandle == null){
+				set(target, value);
+			} else {
+				primitiveHandle.invokeExact(target, value);
+			}
+		} catch (InvocationTargetException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	public void setDouble(Object target, double value) throws InvocationTargetException {
+		try {
+			if(primitiveHandle == null){
+				set(target, value);
+			} else {
+				primitiveHandle.invokeExact(target, value);
+			}
+		} catch (InvocationTargetException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	public Method getMethod(){
+		return method;
+	}
+
+	public String getName(){
+		return method.getName();
+	}
+
+	// Return type for getters, parameter type for setters
+	public Class<?> getType(){
+		return type;
+	}
+}
@@ -0,0 +1,212 @@
+package com.latte.orm.helpers;
+/**
+ * @author hikmatullohhari
+ */
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// List of records split in chunks of at most CHUNK_SIZE which copies share. copy() only copies the chunk references,
+// then the first change of a chunk on either side copies that chunk, so a snapshot of a big model costs a few
+// thousand references instead of every record. Serialized as an ArrayList
+public class ChunkedList<T> extends AbstractList<T> implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private static final int CHUNK_SIZE = 1024;
+	
+	private Object[][] chunks = new Object[0][];
+	private int[] counts = new int[0];
+	private int[] starts = new int[0]; // index of the first element of each chunk
+	private Object[] owners = new Object[0]; // owner of each chunk, this list can only change the chunks it owns
+	private Object owner = new Object();
+	private int chunkCount = 0;
+	private int lastChunk = 0; // only a hint, a reader seeing another thread's value checks it anyway
+	private int size = 0;
+	
+	public ChunkedList(){
+	}
+	
+	public ChunkedList(Collection<? extends T> records){
+		addAll(records);
+	}
+	
+	// Same records, later changes of one don't affect the other
+	public ChunkedList<T> copy(){
+		owner = new Object(); // the chunks are shared from now on
+		ChunkedList<T> copy = new ChunkedList<T>();
+		copy.chunks = Arrays.copyOf(chunks, chunkCount);
+		copy.counts = Arrays.copyOf(counts, chunkCount);
+		copy.starts = Arrays.copyOf(starts, chunkCount);
+		copy.owners = new Object[chunkCount];
+		copy.chunkCount = chunkCount;
+		copy.size = size;
+		return copy;
+	}
+	
+	// Chunk holding the index, the last one found is tried first as the records are mostly read in order
+	private int chunkOf(int index){
+		if(index < 0 || index >= size){
+			throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+		}
+		int chunk = lastChunk;
+		if(chunk < chunkCount && starts[chunk] <= index && index < starts[chunk] + counts[chunk]){
+			return chunk;
+		}
+		chunk = Arrays.binarySearch(starts, 0, chunkCount, index);
+		chunk = (chunk >= 0) ? chunk : -chunk - 2;
+		lastChunk = chunk;
+		return chunk;
+	}
+	
+	private Object[] owned(int chunk){
+		if(owners[chunk] != owner){
+			chunks[chunk] = Arrays.copyOf(chunks[chunk], CHUNK_SIZE);
+			owners[chunk] = owner;
+		}
+		return chunks[chunk];
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public T get(int index){
+		int chunk = chunkOf(index);
+		return (T) chunks[chunk][index - starts[chunk]];
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public T set(int index, T t){
+		int chunk = chunkOf(index);
+		Object[] values = owned(chunk);
+		T previous = (T) values[index - starts[chunk]];
+		values[index - starts[chunk]] = t;
+		return previous;
+	}
+	
+	@Override
+	public boolean add(T t){
+		if(chunkCount == 0 || counts[chunkCount - 1] == CHUNK_SIZE){
+			if(chunkCount == chunks.length){
+				int capacity = Math.max(8, chunkCount * 2);
+				chunks = Arrays.copyOf(chunks, capacity);
+				counts = Arrays.copyOf(counts, capacity);
+				starts = Arrays.copyOf(starts, capacity);
+				owners = Arrays.copyOf(owners, capacity);
+			}
+			chunks[chunkCount] = new Object[CHUNK_SIZE];
+			counts[chunkCount] = 0;
+			starts[chunkCount] = size;
+			owners[chunkCount] = owner;
+			chunkCount++;
+		}
+		int last = chunkCount - 1;
+		owned(last)[counts[last]++] = t;
+		size++;
+		modCount++;
+		return true;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public T remove(int index){
+		int chunk = chunkOf(index);
+		Object[] values = owned(chunk);
+		int i = index - starts[chunk];
+		T previous = (T) values[i];
+		System.arraycopy(values, i + 1, values, i, counts[chunk] - i - 1);
+		values[--counts[chunk]] = null;
+		if(counts[chunk] == 0){ // dropped, a chunk is never empty
+			System.arraycopy(chunks, chunk + 1, chunks, chunk, chunkCount - chunk - 1);
+			System.arraycopy(counts, chunk + 1, counts, chunk, chunkCount - chunk - 1);
+			System.arraycopy(owners, chunk + 1, owners, chunk, chunkCount - chunk - 1);
+			chunkCount--;
+			chunks[chunkCount] = null;
+		}
+		for(int c=chunk; c<chunkCount; c++){
+			starts[c] = (c == 0) ? 0 : starts[c - 1] + counts[c - 1];
+		}
+		size--;
+		modCount++;
+		return previous;
+	}
+	
+	// In one pass, the kept records are packed in new chunks
+	@Override
+	public boolean removeAll(Collection<?> removed){
+		List<T> kept = new ArrayList<T>(size);
+		for(T t: this){
+			if(!removed.contains(t)){
+				kept.add(t);
+			}
+		}
+		if(kept.size() == size){
+			return false;
+		}
+		clear();
+		addAll(kept);
+		return true;
+	}
+	
+	@Override
+	public void clear(){
+		chunks = new Object[0][];
+		counts = new int[0];
+		starts = new int[0];
+		owners = new Object[0];
+		chunkCount = 0;
+		size = 0;
+		modCount++;
+	}
+	
+	@Override
+	public int size(){
+		return size;
+	}
+	
+	// Reads the chunks in turn instead of looking up each index
+	@Override
+	public Iterator<T> iterator(){
+		return new Iterator<T>() {
+			private int chunk = 0;
+			private int i = 0;
+			private int index = 0; // of the next record
+			private int last = -1; // index returned by the last next()
+			
+			public boolean hasNext() {
+				return index < size;
+			}
+			
+			@SuppressWarnings("unchecked")
+			public T next() {
+				if(index >= size){
+					throw new NoSuchElementException();
+				}
+				while(i >= counts[chunk]){
+					chunk++;
+					i = 0;
+				}
+				last = index++;
+				return (T) chunks[chunk][i++];
+			}
+			
+			public void remove() {
+				if(last < 0){
+					throw new IllegalStateException();
+				}
+				ChunkedList.this.remove(last);
+				index = last;
+				last = -1;
+				chunk = (index < size) ? chunkOf(index) : chunkCount;
+				i = (index < size) ? index - starts[chunk] : 0;
+			}
+		};
+	}
+	
+	private Object writeReplace(){
+		return new ArrayList<T>(this);
+	}
+}
@@ -0,0 +1,200 @@
+package com.latte.orm.helpers;
+/**
+ * @author hikmatullohhari
+ */
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.latte.orm.annotations.Indexed;
+import com.latte.orm.annotations.NotNull;
+import com.latte.orm.annotations.OnMapping;
+import com.latte.orm.annotations.PrimaryKey;
+import com.latte.orm.annotations.Unique;
+
+// Reflection data of an entity class, built once per class and shared by every model
+public class EntityMetadata {
+	private static final ClassValue<EntityMetadata> registry = new ClassValue<EntityMetadata>() {
+		@Override
+		protected EntityMetadata computeValue(Class<?> entityClass) {
+			return new EntityMetadata(entityClass);
+		}
+	};
+
+	private final Class<?> entityClass;
+	private final Constructor<?> constructor; // the empty one, null if there is none
+	private final List<Column> columns = new ArrayList<Column>();
+	private final Map<String, Column> columnsByName = new HashMap<String, Column>();
+	private final Map<String, Accessor> getters = new LinkedHashMap<String, Accessor>();
+	private final Map<String, Accessor> setters = new LinkedHashMap<String, Accessor>();
+	private final boolean checkOnMapping;
+	private int primaryKeyCount = 0;
+
+	public static EntityMetadata of(Class<?> entityClass){
+		return registry.get(entityClass);
+	}
+
+	private EntityMetadata(Class<?> entityClass){
+		this.entityClass = entityClass;
+		Constructor<?> empty;
+		try {
+			empty = entityClass.getDeclaredConstructor();
+		} catch (NoSuchMethodException e) {
+			empty = null;
+		}
+		this.constructor = empty;
+		for(Method method: entityClass.getDeclaredMethods()){
+			String name = method.getName();
+			if(method.isSynthetic() || Modifier.isStatic(method.getModifiers()) || name.length() <= 3){
+				continue;
+			}
+			if(name.startsWith("get") && method.getParameterTypes().length == 0){
+				getters.put(name.substring(3).toLowerCase(), new Accessor(method, false));
+			} else if(name.startsWith("set") && method.getParameterTypes().length == 1){
+				setters.put(name.substring(3).toLowerCase(), new Accessor(method, true));
+			}
+		}
+		for(Field field: entityClass.getDeclaredFields()){
+			if(field.isSynthetic() || Modifier.isStatic(field.getModifiers())){
+				continue;
+			}
+			String key = field.getName().toLowerCase();
+			Column column = new Column(field, getters.get(key), setters.get(key));
+			if(column.isPrimaryKey()){
+				primaryKeyCount++;
+			}
+			columns.add(column);
+			columnsByName.put(key, column);
+		}
+		OnMapping onMapping = entityClass.getAnnotation(OnMapping.class);
+		checkOnMapping = (onMapping == null) ? true : onMapping.check(); //if not declared, set check() true
+	}
+
+	public Class<?> getEntityClass(){
+		return entityClass;
+	}
+
+	// New instance from the empty constructor, InstantiationException if the class has none
+	public Object newInstance() throws InstantiationException, IllegalAccessException, InvocationTargetException {
+		if(constructor == null){
+			throw new InstantiationException(entityClass.getName()+" has no empty constructor");
+		}
+		return constructor.newInstance();
+	}
+
+	// Fields in declaration order
+	public List<Column> getColumns(){
+		return Collections.unmodifiableList(columns);
+	}
+
+	public Column getColumn(String name){
+		return columnsByName.get(name.toLowerCase());
+	}
+
+	public Accessor getGetter(String name){
+		return getters.get(name.toLowerCase());
+	}
+
+	public Accessor getSetter(String name){
+		return setters.get(name.toLowerCase());
+	}
+
+	public Collection<Accessor> getGetters(){
+		return Collections.unmodifiableCollection(getters.values());
+	}
+
+	// Keyed by the lower-cased property name (method name without "set")
+	public Map<String, Accessor> getSetters(){
+		return Collections.unmodifiableMap(setters);
+	}
+
+	public int getPrimaryKeyCount(){
+		return primaryKeyCount;
+	}
+
+	// The @PrimaryKey field, null unless it is defined once
+	public Column getPrimaryKey(){
+		for(Column column: columns){
+			if(column.isPrimaryKey() && primaryKeyCount == 1){
+				return column;
+			}
+		}
+		return null;
+	}
+
+	public boolean isCheckOnMapping(){
+		return checkOnMapping;
+	}
+
+	public static class Column {
+		private final Field field;
+		private final Accessor getter;
+		private final Accessor setter;
+		private final boolean primaryKey;
+		private final boolean unique;
+		private final boolean notNull;
+		private final boolean indexed;
+		private final int constraintCount;
+
+		Column(Field field, Accessor getter, Accessor setter){
+			this.field = field;
+			this.getter = getter;
+			this.setter = setter;
+			this.primaryKey = field.isAnnotationPresent(PrimaryKey.class);
+			this.unique = field.isAnnotationPresent(Unique.class);
+			this.notNull = field.isAnnotationPresent(NotNull.class);
+			this.indexed = field.isAnnotationPresent(Indexed.class);
+			this.constraintCount = (primaryKey ? 1 : 0) + (unique ? 1 : 0) + (notNull ? 1 : 0);
+		}
+
+		public String getName(){
+			return field.getName();
+		}
+
+		public Field getField(){
+			return field;
+		}
+
+		public Class<?> getType(){
+			return field.getType();
+		}
+
+		public Accessor getGetter(){
+			return getter;
+		}
+
+		public Accessor getSetter(){
+			return setter;
+		}
+
+		public boolean isPrimaryKey(){
+			return primaryKey;
+		}
+
+		public boolean isUnique(){
+			return unique;
+		}
+
+		public boolean isNotNull(){
+			return notNull;
+		}
+
+		public boolean isIndexed(){
+			return indexed;
+		}
+
+		// Number of @PrimaryKey, @Unique and @NotNull on the field
+		public int getConstraintCount(){
+			return constraintCount;
+		}
+	}
+}
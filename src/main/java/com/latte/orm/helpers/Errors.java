@@ -0,0 +1,98 @@
+package com.latte.orm.helpers;
+/**
+ * @author hikmatullohhari
+ */
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.latte.orm.helpers.ModelError.Kind;
+
+// Errors of one model. The first ones are kept and printed to System.err, the next ones are only counted,
+// so a file full of bad rows costs a counter per row. save() refuses to write while the model has errors
+public class Errors {
+	public static final int DEFAULT_CAPACITY = 100;
+	
+	private final List<ModelError> errors = new ArrayList<ModelError>();
+	private final int[] counts = new int[Kind.values().length];
+	private int count = 0;
+	private int capacity = DEFAULT_CAPACITY;
+	private boolean isPrinted = true;
+	
+	// Number of errors kept, the next ones are only counted
+	public synchronized Errors capacity(int capacity){
+		this.capacity = Math.max(0, capacity);
+		return this;
+	}
+	
+	public synchronized Errors printed(boolean isPrinted){
+		this.isPrinted = isPrinted;
+		return this;
+	}
+	
+	public void add(Kind kind, String message){
+		add(new ModelError(kind, message, 0, null, null));
+	}
+	
+	public void add(Kind kind, String message, int row, String column){
+		add(new ModelError(kind, message, row, column, null));
+	}
+	
+	// Exception thrown by the entity or the file system, kept as the cause of the error
+	public void add(Exception e){
+		Throwable cause = (e instanceof InvocationTargetException && e.getCause() != null) ? e.getCause() : e;
+		add(new ModelError(Kind.EXCEPTION, "[Error] "+cause, 0, null, cause));
+	}
+	
+	public synchronized void add(ModelError error){
+		count++;
+		counts[error.getKind().ordinal()]++;
+		if(errors.size() < capacity){
+			errors.add(error);
+			print(error.getMessage());
+		} else if(count == capacity + 1){
+			print("[Error] More than "+capacity+" errors, the next ones are only counted.");
+		}
+	}
+	
+	private void print(String message){
+		if(isPrinted){
+			System.err.println(message);
+		}
+	}
+	
+	public synchronized boolean hasErrors(){
+		return count > 0;
+	}
+	
+	// Every error since the last clear(), kept or not
+	public synchronized int count(){
+		return count;
+	}
+	
+	public synchronized int count(Kind kind){
+		return counts[kind.ordinal()];
+	}
+	
+	// The kept errors, oldest first
+	public synchronized List<ModelError> getErrors(){
+		return Collections.unmodifiableList(new ArrayList<ModelError>(errors));
+	}
+	
+	// Messages of the kept errors, one per line
+	public synchronized String getMessages(){
+		StringBuilder messages = new StringBuilder();
+		for(ModelError error: errors){
+			messages.append(error.getMessage()).append('\n');
+		}
+		return messages.toString();
+	}
+	
+	public synchronized void clear(){
+		errors.clear();
+		Arrays.fill(counts, 0);
+		count = 0;
+	}
+}
@@ -2,6 +2,8 @@ package com.latte.orm.helpers;
 /**
  * @author hikmatullohhari
  */
+// Errors are kept by each model since they are bounded and typed, see Model.getErrors(). Nothing is recorded here anymore
+@Deprecated
 public class ErrorsHelper {
 	public static String errorMessages = "";
 	public static boolean hasErrors = false;
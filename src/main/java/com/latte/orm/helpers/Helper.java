@@ -3,6 +3,9 @@ package com.latte.orm.helpers;
  * @author hikmatullohhari
  */
 public class Helper {
+	// Lookahead matching only outside double quotes, split(","+REGEX_ESCAPE_QUOTE) keeps quoted commas
+	public static final String REGEX_ESCAPE_QUOTE = "(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)";
+	
 	public static String filePath(String fileLocation){
 		String[] pwd = fileLocation.split("/");
 		String path = "";
@@ -0,0 +1,58 @@
+package com.latte.orm.helpers;
+/**
+ * @author hikmatullohhari
+ */
+// One error of a model, with the number and column of the row for an error of a mapped file
+public class ModelError {
+	public static enum Kind {
+		ROW, // a row of a file can't be mapped
+		CONSTRAINT, // a record breaks @PrimaryKey, @Unique or @NotNull
+		ENTITY, // the entity class lacks a getter, a setter, an empty constructor...
+		FILE, // a file can't be read or written
+		USAGE, // a method called with invalid arguments or before startMapping()
+		FAILED, // an operation gave up because of the errors before it
+		EXCEPTION // thrown by a getter, a setter or the file system
+	};
+	
+	private final Kind kind;
+	private final String message;
+	private final int row;
+	private final String column;
+	private final Throwable cause;
+	
+	public ModelError(Kind kind, String message, int row, String column, Throwable cause){
+		this.kind = kind;
+		this.message = message;
+		this.row = row;
+		this.column = column;
+		this.cause = cause;
+	}
+	
+	public Kind getKind(){
+		return kind;
+	}
+	
+	public String getMessage(){
+		return message;
+	}
+	
+	// Row of the file starting from 1 after the header, 0 for an error that isn't about a row
+	public int getRow(){
+		return row;
+	}
+	
+	// Column of the row, null if it isn't about one column
+	public String getColumn(){
+		return column;
+	}
+	
+	// Exception of an EXCEPTION error, null for the others
+	public Throwable getCause(){
+		return cause;
+	}
+	
+	@Override
+	public String toString(){
+		return message;
+	}
+}
@@ -4,29 +4,21 @@ package com.latte.orm.helpers;
  */
 import java.lang.reflect.Method;
 
+import com.latte.orm.convert.Converter;
+import com.latte.orm.convert.Converters;
+
 public class ReflectionHelper {
 	//Auto cast the type of value gotten from method
 	public static Object autocast(Method method, Object rawValue){
-		Class<?> p = method.getParameterTypes()[0];
-		Object value = null;
-		if(p.isPrimitive()){
-			if(p.getName().equals("int")){
-				value = Integer.parseInt((String) rawValue);
-			} else if (p.getName().equals("float")) {
-				value = Float.parseFloat((String) rawValue);
-			} else if (p.getName().equals("double")) {
-				value = Double.parseDouble((String) rawValue);
-			}
-		} else {
-			String cl = method.getParameterTypes()[0].getName();
-			Class<?> theClass;
-			try {
-				theClass = Class.forName(cl);
-				value = theClass.cast(rawValue);
-			} catch (ClassNotFoundException e) {
-				ErrorsHelper.setErrorMessageAndPrintToConsole("[Error] "+ e.getMessage());
-			}
+		return autocast(method.getParameterTypes()[0], rawValue);
+	}
+	
+	//Auto cast the raw value into the given parameter type with its Converter, a RuntimeException if it can't be
+	public static Object autocast(Class<?> p, Object rawValue){
+		Converter<?> converter = (rawValue instanceof String) ? Converters.of(p) : null;
+		if(converter != null){
+			return converter.convert((String) rawValue);
 		}
-		return value;
+		return p.isPrimitive() ? null : p.cast(rawValue);
 	}
 }
@@ -0,0 +1,50 @@
+package com.latte.orm.index;
+/**
+ * @author hikmatullohhari
+ */
+import java.util.Collection;
+
+// Records of one value of a HashIndex or SortedIndex, a set by identity. It belongs to the index which created it,
+// a copy of the index makes its own bucket before changing one
+class Bucket<T> {
+	private final CowMap<T, Boolean> records;
+	private final Object owner;
+	
+	Bucket(Object owner){
+		this(owner, new CowMap<T, Boolean>(true));
+	}
+	
+	private Bucket(Object owner, CowMap<T, Boolean> records){
+		this.owner = owner;
+		this.records = records;
+	}
+	
+	// Same records for another index
+	Bucket<T> copy(Object owner){
+		return new Bucket<T>(owner, records.copy());
+	}
+	
+	boolean isOwnedBy(Object owner){
+		return this.owner == owner;
+	}
+	
+	void add(T t){
+		records.put(t, Boolean.TRUE);
+	}
+	
+	void remove(T t){
+		records.remove(t);
+	}
+	
+	int size(){
+		return records.size();
+	}
+	
+	boolean isEmpty(){
+		return records.isEmpty();
+	}
+	
+	Collection<T> records(){
+		return records.keys();
+	}
+}
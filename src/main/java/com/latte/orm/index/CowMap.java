@@ -0,0 +1,141 @@
+package com.latte.orm.index;
+/**
+ * @author hikmatullohhari
+ */
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Hash map split in segments of at most SEGMENT_SIZE keys which copies share. copy() only copies the segment
+// references, then the first change of a segment on either side copies that segment, so a snapshot of a big index
+// costs a few thousand references instead of every entry. Keys are compared by identity or by equals()
+public class CowMap<K, V> {
+	private static final int SEGMENT_SIZE = 1024;
+	
+	private final boolean isIdentity;
+	private Map<K, V>[] segments;
+	private Object[] owners; // owner of each segment, this map can only change the segments it owns
+	private Object owner = new Object();
+	private int shift; // 32 - log2(segments.length), the high bits of the hash pick the segment
+	private int size = 0;
+	
+	public CowMap(boolean isIdentity){
+		this.isIdentity = isIdentity;
+		clear();
+	}
+	
+	private CowMap(CowMap<K, V> map){
+		this.isIdentity = map.isIdentity;
+		this.segments = map.segments.clone();
+		this.owners = new Object[segments.length];
+		this.shift = map.shift;
+		this.size = map.size;
+	}
+	
+	// Same entries, later changes of one don't affect the other
+	public CowMap<K, V> copy(){
+		owner = new Object(); // the segments are shared from now on
+		return new CowMap<K, V>(this);
+	}
+	
+	private int segmentOf(Object key){
+		int hash = isIdentity ? System.identityHashCode(key) : ((key == null) ? 0 : key.hashCode());
+		return (segments.length == 1) ? 0 : (hash * 0x9E3779B9) >>> shift; // the maps use the low bits
+	}
+	
+	private Map<K, V> newSegment(int expectedSize){
+		return isIdentity ? new IdentityHashMap<K, V>(expectedSize) : new HashMap<K, V>(Math.max(4, expectedSize * 4 / 3 + 1));
+	}
+	
+	private Map<K, V> owned(int i){
+		if(owners[i] != owner){
+			Map<K, V> segment = newSegment(segments[i].size());
+			segment.putAll(segments[i]);
+			segments[i] = segment;
+			owners[i] = owner;
+		}
+		return segments[i];
+	}
+	
+	public V get(Object key){
+		return segments[segmentOf(key)].get(key);
+	}
+	
+	public boolean containsKey(Object key){
+		return segments[segmentOf(key)].containsKey(key);
+	}
+	
+	public V put(K key, V value){
+		int i = segmentOf(key);
+		Map<K, V> segment = owned(i);
+		int before = segment.size();
+		V previous = segment.put(key, value);
+		size += segment.size() - before;
+		if(segment.size() > SEGMENT_SIZE && size > segments.length * (SEGMENT_SIZE / 2)){ // not for a few colliding keys
+			resize(segments.length * 2);
+		}
+		return previous;
+	}
+	
+	public V remove(Object key){
+		int i = segmentOf(key);
+		if(!segments[i].containsKey(key)){
+			return null;
+		}
+		size--;
+		return owned(i).remove(key);
+	}
+	
+	// Every entry moves to a segment of its own, as a HashMap resize
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private void resize(int segmentCount){
+		Map<K, V>[] old = segments;
+		segments = new Map[segmentCount];
+		owners = new Object[segmentCount];
+		shift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+		for(int i=0; i<segmentCount; i++){
+			segments[i] = newSegment(SEGMENT_SIZE / 2);
+			owners[i] = owner;
+		}
+		for(Map<K, V> segment: old){
+			for(Map.Entry<K, V> entry: segment.entrySet()){
+				segments[segmentOf(entry.getKey())].put(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+	
+	public int size(){
+		return size;
+	}
+	
+	public boolean isEmpty(){
+		return size == 0;
+	}
+	
+	public Collection<V> values(){
+		List<V> values = new ArrayList<V>(size);
+		for(Map<K, V> segment: segments){
+			values.addAll(segment.values());
+		}
+		return values;
+	}
+	
+	public Collection<K> keys(){
+		List<K> keys = new ArrayList<K>(size);
+		for(Map<K, V> segment: segments){
+			keys.addAll(segment.keySet());
+		}
+		return keys;
+	}
+	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void clear(){
+		segments = new Map[] { newSegment(4) };
+		owners = new Object[] { owner };
+		shift = 32;
+		size = 0;
+	}
+}
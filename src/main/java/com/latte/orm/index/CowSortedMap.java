@@ -0,0 +1,151 @@
+package com.latte.orm.index;
+/**
+ * @author hikmatullohhari
+ */
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+// Sorted map split in chunks of consecutive keys which copies share, as CowMap. A chunk is split in two once it holds
+// more than CHUNK_SIZE keys and dropped once it is empty
+public class CowSortedMap<K extends Comparable<K>, V> {
+	private static final int CHUNK_SIZE = 1024;
+	
+	private final List<TreeMap<K, V>> chunks;
+	private final List<Object> owners; // owner of each chunk, this map can only change the chunks it owns
+	private Object owner = new Object();
+	
+	public CowSortedMap(){
+		this.chunks = new ArrayList<TreeMap<K, V>>();
+		this.owners = new ArrayList<Object>();
+	}
+	
+	private CowSortedMap(CowSortedMap<K, V> map){
+		this.chunks = new ArrayList<TreeMap<K, V>>(map.chunks);
+		this.owners = new ArrayList<Object>(Collections.nCopies(chunks.size(), null));
+	}
+	
+	// Same entries, later changes of one don't affect the other
+	public CowSortedMap<K, V> copy(){
+		owner = new Object(); // the chunks are shared from now on
+		return new CowSortedMap<K, V>(this);
+	}
+	
+	// Last chunk whose first key is <= key, or the first chunk
+	private int chunkOf(K key){
+		int low = 0, high = chunks.size() - 1;
+		while(low < high){
+			int middle = (low + high + 1) >>> 1;
+			if(chunks.get(middle).firstKey().compareTo(key) <= 0){
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+	
+	private TreeMap<K, V> owned(int i){
+		if(owners.get(i) != owner){
+			chunks.set(i, new TreeMap<K, V>(chunks.get(i)));
+			owners.set(i, owner);
+		}
+		return chunks.get(i);
+	}
+	
+	public V get(K key){
+		return chunks.isEmpty() ? null : chunks.get(chunkOf(key)).get(key);
+	}
+	
+	public V put(K key, V value){
+		if(chunks.isEmpty()){
+			chunks.add(new TreeMap<K, V>());
+			owners.add(owner);
+		}
+		int i = chunkOf(key);
+		TreeMap<K, V> chunk = owned(i);
+		V previous = chunk.put(key, value);
+		if(chunk.size() > CHUNK_SIZE){
+			K middle = new ArrayList<K>(chunk.keySet()).get(chunk.size() / 2);
+			chunks.set(i, new TreeMap<K, V>(chunk.headMap(middle, false)));
+			chunks.add(i + 1, new TreeMap<K, V>(chunk.tailMap(middle, true)));
+			owners.add(i + 1, owner);
+		}
+		return previous;
+	}
+	
+	public V remove(K key){
+		if(chunks.isEmpty()){
+			return null;
+		}
+		int i = chunkOf(key);
+		if(!chunks.get(i).containsKey(key)){
+			return null;
+		}
+		TreeMap<K, V> chunk = owned(i);
+		V previous = chunk.remove(key);
+		if(chunk.isEmpty()){
+			chunks.remove(i);
+			owners.remove(i);
+		}
+		return previous;
+	}
+	
+	// Values of the keys from from to to, both included, a null bound is open
+	public List<V> values(K from, K to){
+		List<V> values = new ArrayList<V>();
+		for(int i=(from == null || chunks.isEmpty()) ? 0 : chunkOf(from); i<chunks.size(); i++){
+			TreeMap<K, V> chunk = chunks.get(i);
+			if(to != null && chunk.firstKey().compareTo(to) > 0){
+				break;
+			}
+			if(from == null && to == null){
+				values.addAll(chunk.values());
+			} else if(from == null){
+				values.addAll(chunk.headMap(to, true).values());
+			} else if(to == null){
+				values.addAll(chunk.tailMap(from, true).values());
+			} else if(from.compareTo(to) <= 0){
+				values.addAll(chunk.subMap(from, true, to, true).values());
+			}
+		}
+		return values;
+	}
+	
+	// Values in the order of their keys, read one chunk at a time
+	public Iterator<V> iterator(final boolean isDescending){
+		final List<TreeMap<K, V>> chunks = new ArrayList<TreeMap<K, V>>(this.chunks); // the chunks may change meanwhile
+		return new Iterator<V>() {
+			private int next = 0;
+			private Iterator<V> chunk = Collections.<V>emptyList().iterator();
+			
+			public boolean hasNext() {
+				while(!chunk.hasNext() && next < chunks.size()){
+					TreeMap<K, V> values = chunks.get(isDescending ? chunks.size() - 1 - next : next);
+					chunk = (isDescending ? values.descendingMap() : values).values().iterator();
+					next++;
+				}
+				return chunk.hasNext();
+			}
+			
+			public V next() {
+				if(!hasNext()){
+					throw new NoSuchElementException();
+				}
+				return chunk.next();
+			}
+			
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+	
+	public void clear(){
+		chunks.clear();
+		owners.clear();
+	}
+}
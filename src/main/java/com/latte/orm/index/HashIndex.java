@@ -0,0 +1,78 @@
+package com.latte.orm.index;
+/**
+ * @author hikmatullohhari
+ */
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.Collections;
+
+import com.latte.orm.helpers.Accessor;
+
+// Hash index of an @Indexed column for EQUALS and IN, keyed by String.valueOf(value)
+public class HashIndex<T> {
+	private final Accessor getter;
+	private final CowMap<String, Bucket<T>> records;
+	private final CowMap<T, String> keys;
+	private Object owner = new Object(); // of the buckets this index can change
+	
+	public HashIndex(Accessor getter){
+		this(getter, new CowMap<String, Bucket<T>>(false), new CowMap<T, String>(true));
+	}
+	
+	private HashIndex(Accessor getter, CowMap<String, Bucket<T>> records, CowMap<T, String> keys){
+		this.getter = getter;
+		this.records = records;
+		this.keys = keys;
+	}
+	
+	public Collection<T> get(String key){
+		Bucket<T> bucket = records.get(key);
+		return (bucket == null) ? Collections.<T>emptySet() : bucket.records();
+	}
+	
+	public int count(String key){
+		Bucket<T> bucket = records.get(key);
+		return (bucket == null) ? 0 : bucket.size();
+	}
+	
+	public void add(T t) throws InvocationTargetException {
+		String key = String.valueOf(getter.get(t));
+		Bucket<T> bucket = records.get(key);
+		if(bucket == null){
+			bucket = new Bucket<T>(owner);
+			records.put(key, bucket);
+		} else if(!bucket.isOwnedBy(owner)){
+			bucket = bucket.copy(owner);
+			records.put(key, bucket);
+		}
+		bucket.add(t);
+		keys.put(t, key);
+	}
+	
+	public void remove(T t){
+		String key = keys.remove(t);
+		Bucket<T> bucket = (key == null) ? null : records.get(key);
+		if(bucket != null){
+			if(bucket.size() == 1){
+				records.remove(key);
+				return;
+			}
+			if(!bucket.isOwnedBy(owner)){
+				bucket = bucket.copy(owner);
+				records.put(key, bucket);
+			}
+			bucket.remove(t);
+		}
+	}
+	
+	// Shares the buckets until one side changes them, see CowMap
+	public HashIndex<T> copy(){
+		owner = new Object();
+		return new HashIndex<T>(getter, records.copy(), keys.copy());
+	}
+	
+	public void clear(){
+		records.clear();
+		keys.clear();
+	}
+}
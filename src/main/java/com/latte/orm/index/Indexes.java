@@ -0,0 +1,232 @@
+package com.latte.orm.index;
+/**
+ * @author hikmatullohhari
+ */
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.latte.orm.helpers.EntityMetadata;
+import com.latte.orm.helpers.EntityMetadata.Column;
+
+// Every index of a model, kept in sync with its records by insert, update, delete and startMapping
+public class Indexes<T> {
+	private final Map<String, UniqueIndex<T>> uniqueIndexes = new LinkedHashMap<String, UniqueIndex<T>>();
+	private final Map<String, HashIndex<T>> hashIndexes = new LinkedHashMap<String, HashIndex<T>>();
+	private final Map<String, SortedIndex<T>> sortedIndexes = new LinkedHashMap<String, SortedIndex<T>>();
+	private final CowMap<T, Long> positions; // order of the records, index lookups are returned in that order
+	private long nextPosition = 0;
+	
+	private final Comparator<T> byPosition = new Comparator<T>() {
+		public int compare(T o1, T o2) {
+			return positions.get(o1).compareTo(positions.get(o2));
+		}
+	};
+	
+	public Indexes(EntityMetadata metadata){
+		this.positions = new CowMap<T, Long>(true);
+		for(Column column: metadata.getColumns()){
+			if(column.getGetter() == null){
+				continue;
+			}
+			String name = column.getName().toLowerCase();
+			if(column.isPrimaryKey() || column.isUnique()){
+				uniqueIndexes.put(name, new UniqueIndex<T>(column.getGetter()));
+			} else if(column.isIndexed()){
+				hashIndexes.put(name, new HashIndex<T>(column.getGetter()));
+			}
+			if(column.isIndexed() && SortedIndex.isSortable(column.getType())){
+				sortedIndexes.put(name, new SortedIndex<T>(column.getGetter()));
+			}
+		}
+	}
+	
+	private Indexes(CowMap<T, Long> positions){
+		this.positions = positions;
+	}
+	
+	// Copy of every index for a snapshot of the records, the indexes share their entries until they change
+	public Indexes<T> copy(){
+		Indexes<T> copy = new Indexes<T>(positions.copy());
+		for(Map.Entry<String, UniqueIndex<T>> entry: uniqueIndexes.entrySet()){
+			copy.uniqueIndexes.put(entry.getKey(), entry.getValue().copy());
+		}
+		for(Map.Entry<String, HashIndex<T>> entry: hashIndexes.entrySet()){
+			copy.hashIndexes.put(entry.getKey(), entry.getValue().copy());
+		}
+		for(Map.Entry<String, SortedIndex<T>> entry: sortedIndexes.entrySet()){
+			copy.sortedIndexes.put(entry.getKey(), entry.getValue().copy());
+		}
+		copy.nextPosition = nextPosition;
+		return copy;
+	}
+	
+	public UniqueIndex<T> getUniqueIndex(String columnName){
+		return uniqueIndexes.get(columnName.toLowerCase());
+	}
+	
+	// Records whose column equals key, or null if the column isn't indexed
+	public List<T> equalTo(String columnName, String key){
+		return in(columnName, Collections.singleton(key));
+	}
+	
+	public List<T> in(String columnName, Collection<String> keys){
+		String name = columnName.toLowerCase();
+		Set<T> result = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+		if(uniqueIndexes.containsKey(name)){
+			for(String key: keys){
+				result.addAll(uniqueIndexes.get(name).getAll(key));
+			}
+		} else if(hashIndexes.containsKey(name)){
+			for(String key: keys){
+				result.addAll(hashIndexes.get(name).get(key));
+			}
+		} else {
+			return null;
+		}
+		return inRecordsOrder(result);
+	}
+	
+	// Number of records in(columnName, keys) would return, or -1 if the column isn't indexed
+	public int countIn(String columnName, Collection<String> keys){
+		String name = columnName.toLowerCase();
+		int count = 0;
+		if(uniqueIndexes.containsKey(name)){
+			for(String key: new HashSet<String>(keys)){
+				count += uniqueIndexes.get(name).count(key);
+			}
+		} else if(hashIndexes.containsKey(name)){
+			for(String key: new HashSet<String>(keys)){
+				count += hashIndexes.get(name).count(key);
+			}
+		} else {
+			return -1;
+		}
+		return count;
+	}
+	
+	public int countBetween(String columnName, double from, double to){
+		SortedIndex<T> index = sortedIndexes.get(columnName.toLowerCase());
+		return (index == null) ? -1 : index.countBetween(from, to);
+	}
+	
+	public int countNotBetween(String columnName, double from, double to){
+		SortedIndex<T> index = sortedIndexes.get(columnName.toLowerCase());
+		return (index == null) ? -1 : index.countNotBetween(from, to);
+	}
+	
+	public List<T> between(String columnName, double from, double to){
+		SortedIndex<T> index = sortedIndexes.get(columnName.toLowerCase());
+		if(index == null){
+			return null;
+		}
+		Set<T> result = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+		index.between(from, to, result);
+		return inRecordsOrder(result);
+	}
+	
+	public List<T> notBetween(String columnName, double from, double to){
+		SortedIndex<T> index = sortedIndexes.get(columnName.toLowerCase());
+		if(index == null){
+			return null;
+		}
+		Set<T> result = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+		index.notBetween(from, to, result);
+		return inRecordsOrder(result);
+	}
+	
+	// Records of each value of the column in its order, each in records order. null if the column has no sorted index
+	public Iterator<List<T>> inOrder(String columnName, boolean isDescending){
+		SortedIndex<T> index = sortedIndexes.get(columnName.toLowerCase());
+		if(index == null){
+			return null;
+		}
+		final Iterator<Collection<T>> buckets = index.buckets(isDescending);
+		return new Iterator<List<T>>() {
+			public boolean hasNext() {
+				return buckets.hasNext();
+			}
+			
+			public List<T> next() {
+				return inRecordsOrder(buckets.next());
+			}
+			
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+	
+	private List<T> inRecordsOrder(Collection<T> result){
+		List<T> ordered = new ArrayList<T>(result);
+		Collections.sort(ordered, byPosition);
+		return ordered;
+	}
+	
+	public void add(T t) throws InvocationTargetException {
+		add(t, nextPosition++);
+	}
+	
+	private void add(T t, long position) throws InvocationTargetException {
+		for(UniqueIndex<T> index: uniqueIndexes.values()){
+			index.add(t);
+		}
+		for(HashIndex<T> index: hashIndexes.values()){
+			index.add(t);
+		}
+		for(SortedIndex<T> index: sortedIndexes.values()){
+			index.add(t);
+		}
+		positions.put(t, position);
+	}
+	
+	// newElement takes the place of oldElement in the records order
+	public void replace(T oldElement, T newElement) throws InvocationTargetException {
+		Long position = positions.get(oldElement);
+		remove(oldElement);
+		add(newElement, (position == null) ? nextPosition++ : position);
+	}
+	
+	public void remove(T t){
+		for(UniqueIndex<T> index: uniqueIndexes.values()){
+			index.remove(t);
+		}
+		for(HashIndex<T> index: hashIndexes.values()){
+			index.remove(t);
+		}
+		for(SortedIndex<T> index: sortedIndexes.values()){
+			index.remove(t);
+		}
+		positions.remove(t);
+	}
+	
+	public void rebuild(Collection<T> records) throws InvocationTargetException {
+		clear();
+		for(T t: records){
+			add(t);
+		}
+	}
+	
+	public void clear(){
+		for(UniqueIndex<T> index: uniqueIndexes.values()){
+			index.clear();
+		}
+		for(HashIndex<T> index: hashIndexes.values()){
+			index.clear();
+		}
+		for(SortedIndex<T> index: sortedIndexes.values()){
+			index.clear();
+		}
+		positions.clear();
+		nextPosition = 0;
+	}
+}
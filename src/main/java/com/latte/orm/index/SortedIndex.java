@@ -0,0 +1,137 @@
+package com.latte.orm.index;
+/**
+ * @author hikmatullohhari
+ */
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import com.latte.orm.helpers.Accessor;
+
+// Sorted index of a numeric @Indexed column for BETWEEN and NOT_BETWEEN
+public class SortedIndex<T> {
+	private final Accessor getter;
+	private final CowSortedMap<Double, Bucket<T>> records;
+	private final CowMap<T, Double> keys;
+	private Object owner = new Object(); // of the buckets this index can change
+	
+	public SortedIndex(Accessor getter){
+		this(getter, new CowSortedMap<Double, Bucket<T>>(), new CowMap<T, Double>(true));
+	}
+	
+	private SortedIndex(Accessor getter, CowSortedMap<Double, Bucket<T>> records, CowMap<T, Double> keys){
+		this.getter = getter;
+		this.records = records;
+		this.keys = keys;
+	}
+	
+	public static boolean isSortable(Class<?> type){
+		return type == int.class || type == long.class || type == short.class || type == byte.class
+				|| type == float.class || type == double.class || Number.class.isAssignableFrom(type);
+	}
+	
+	// Same conversion as BETWEEN does on String.valueOf(value), -0.0 folded into 0.0
+	static double key(Object value){
+		return Double.parseDouble(String.valueOf(value)) + 0.0;
+	}
+	
+	// Records whose value is >= from and <= to
+	public void between(double from, double to, Collection<T> result){
+		if(from <= to){
+			addAll(records.values(from + 0.0, to + 0.0), result);
+		}
+	}
+	
+	// Records whose value is <= from or >= to
+	public void notBetween(double from, double to, Collection<T> result){
+		addAll(records.values(null, from + 0.0), result);
+		addAll(records.values(to + 0.0, null), result);
+	}
+	
+	// Records of each value, from the smallest or from the largest
+	public Iterator<Collection<T>> buckets(boolean isDescending){
+		final Iterator<Bucket<T>> buckets = records.iterator(isDescending);
+		return new Iterator<Collection<T>>() {
+			public boolean hasNext() {
+				return buckets.hasNext();
+			}
+			
+			public Collection<T> next() {
+				return buckets.next().records();
+			}
+			
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+	
+	public int countBetween(double from, double to){
+		return (from <= to) ? count(records.values(from + 0.0, to + 0.0)) : 0;
+	}
+	
+	// Upper bound, ranges overlap when from > to
+	public int countNotBetween(double from, double to){
+		return count(records.values(null, from + 0.0)) + count(records.values(to + 0.0, null));
+	}
+	
+	private int count(List<Bucket<T>> range){
+		int count = 0;
+		for(Bucket<T> bucket: range){
+			count += bucket.size();
+		}
+		return count;
+	}
+	
+	private void addAll(List<Bucket<T>> range, Collection<T> result){
+		for(Bucket<T> bucket: range){
+			result.addAll(bucket.records());
+		}
+	}
+	
+	public void add(T t) throws InvocationTargetException {
+		Object value = getter.get(t);
+		if(value == null){
+			return;
+		}
+		Double key = key(value);
+		Bucket<T> bucket = records.get(key);
+		if(bucket == null){
+			bucket = new Bucket<T>(owner);
+			records.put(key, bucket);
+		} else if(!bucket.isOwnedBy(owner)){
+			bucket = bucket.copy(owner);
+			records.put(key, bucket);
+		}
+		bucket.add(t);
+		keys.put(t, key);
+	}
+	
+	public void remove(T t){
+		Double key = keys.remove(t);
+		Bucket<T> bucket = (key == null) ? null : records.get(key);
+		if(bucket != null){
+			if(bucket.size() == 1){
+				records.remove(key);
+				return;
+			}
+			if(!bucket.isOwnedBy(owner)){
+				bucket = bucket.copy(owner);
+				records.put(key, bucket);
+			}
+			bucket.remove(t);
+		}
+	}
+	
+	// Shares the buckets until one side changes them, see CowMap
+	public SortedIndex<T> copy(){
+		owner = new Object();
+		return new SortedIndex<T>(getter, records.copy(), keys.copy());
+	}
+	
+	public void clear(){
+		records.clear();
+		keys.clear();
+	}
+}
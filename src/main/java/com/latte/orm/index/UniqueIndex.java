@@ -0,0 +1,124 @@
+package com.latte.orm.index;
+/**
+ * @author hikmatullohhari
+ */
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.latte.orm.helpers.Accessor;
+
+// Hash index of a @PrimaryKey or @Unique column, keyed by String.valueOf(value) like where(column, EQUALS, value).
+// Records bypassing the constraints (@OnMapping(check=false), a model of a list, a .ser file) can share a key,
+// the first one added is kept in records and the others aside
+public class UniqueIndex<T> {
+	private final Accessor getter;
+	private final CowMap<String, T> records;
+	private final CowMap<String, List<T>> duplicates; // other records of the keys held more than once, a list is replaced instead of changed
+	private final CowMap<T, String> keys; // key of each indexed record, to unindex it after it has been modified
+	
+	public UniqueIndex(Accessor getter){
+		this(getter, new CowMap<String, T>(false), new CowMap<String, List<T>>(false), new CowMap<T, String>(true));
+	}
+	
+	private UniqueIndex(Accessor getter, CowMap<String, T> records, CowMap<String, List<T>> duplicates, CowMap<T, String> keys){
+		this.getter = getter;
+		this.records = records;
+		this.duplicates = duplicates;
+		this.keys = keys;
+	}
+	
+	// First record of the key
+	public T get(String key){
+		return records.get(key);
+	}
+	
+	// Every record of the key
+	public Collection<T> getAll(String key){
+		T t = records.get(key);
+		if(t == null){
+			return Collections.<T>emptyList();
+		}
+		List<T> others = duplicates.get(key);
+		if(others == null){
+			return Collections.singletonList(t);
+		}
+		List<T> all = new ArrayList<T>(others.size() + 1);
+		all.add(t);
+		all.addAll(others);
+		return all;
+	}
+	
+	public int count(String key){
+		List<T> others = duplicates.get(key);
+		return records.containsKey(key) ? ((others == null) ? 1 : others.size() + 1) : 0;
+	}
+	
+	public boolean containsKey(String key){
+		return records.containsKey(key);
+	}
+	
+	public String keyOf(T t) throws InvocationTargetException {
+		return String.valueOf(getter.get(t));
+	}
+	
+	public void add(T t) throws InvocationTargetException {
+		String key = keyOf(t);
+		keys.put(t, key);
+		if(!records.containsKey(key)){
+			records.put(key, t);
+		} else {
+			List<T> others = duplicates.get(key);
+			others = (others == null) ? new ArrayList<T>(1) : new ArrayList<T>(others);
+			others.add(t);
+			duplicates.put(key, others);
+		}
+	}
+	
+	public void remove(T t){
+		String key = keys.remove(t);
+		if(key == null){
+			return;
+		}
+		List<T> others = duplicates.get(key);
+		if(others == null){
+			if(records.get(key) == t){
+				records.remove(key);
+			}
+			return;
+		}
+		others = new ArrayList<T>(others);
+		if(records.get(key) == t){
+			records.put(key, others.remove(0)); // the next record of the key takes its place
+		} else {
+			for(int i=0; i<others.size(); i++){
+				if(others.get(i) == t){
+					others.remove(i);
+					break;
+				}
+			}
+		}
+		if(others.isEmpty()){
+			duplicates.remove(key);
+		} else {
+			duplicates.put(key, others);
+		}
+	}
+	
+	// Later changes of one don't affect the other, see CowMap
+	public UniqueIndex<T> copy(){
+		return new UniqueIndex<T>(getter, records.copy(), duplicates.copy(), keys.copy());
+	}
+	
+	public void clear(){
+		records.clear();
+		duplicates.clear();
+		keys.clear();
+	}
+	
+	public int size(){
+		return records.size();
+	}
+}
@@ -0,0 +1,92 @@
+package com.latte.orm.metrics;
+/**
+ * @author hikmatullohhari
+ */
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Latencies counted in buckets of nanoseconds, each power of two is split in 8 buckets of the same width.
+// Recording is lock free, percentiles are the upper bound of their bucket so they are at most 12.5% above the real value
+public class Histogram {
+	private static final int SUB_BUCKETS = 8; // values under 8 have a bucket each
+	private static final int BUCKETS = SUB_BUCKETS * 61;
+	
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+	
+	public void record(long nanos){
+		if(nanos < 0){
+			nanos = 0;
+		}
+		counts.incrementAndGet(bucketOf(nanos));
+		count.incrementAndGet();
+		total.addAndGet(nanos);
+		for(long current = max.get(); nanos > current && !max.compareAndSet(current, nanos); current = max.get()){
+		}
+	}
+	
+	private static int bucketOf(long nanos){
+		if(nanos < SUB_BUCKETS){
+			return (int) nanos;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos); // 3 or more
+		return (exponent - 2) * SUB_BUCKETS + (int) ((nanos >>> (exponent - 3)) & (SUB_BUCKETS - 1));
+	}
+	
+	// Largest value of the bucket
+	private static long upperBound(int bucket){
+		if(bucket < SUB_BUCKETS){
+			return bucket;
+		}
+		int exponent = bucket / SUB_BUCKETS + 2;
+		long next = (SUB_BUCKETS + bucket % SUB_BUCKETS + 1L) << (exponent - 3);
+		return (next < 0) ? Long.MAX_VALUE : next - 1;
+	}
+	
+	public long getCount(){
+		return count.get();
+	}
+	
+	public long getTotalNanos(){
+		return total.get();
+	}
+	
+	public long getMaxNanos(){
+		return max.get();
+	}
+	
+	public long getMeanNanos(){
+		long n = count.get();
+		return (n == 0) ? 0 : total.get() / n;
+	}
+	
+	// Latency under which the given fraction of the operations took, 0.99 for the 99th percentile
+	public long getPercentileNanos(double fraction){
+		long n = 0;
+		long[] snapshot = new long[BUCKETS];
+		for(int i=0; i<BUCKETS; i++){
+			snapshot[i] = counts.get(i);
+			n += snapshot[i];
+		}
+		long rank = (long) Math.ceil(fraction * n);
+		long seen = 0;
+		for(int i=0; i<BUCKETS; i++){
+			seen += snapshot[i];
+			if(seen >= rank && snapshot[i] > 0){
+				return Math.min(upperBound(i), max.get());
+			}
+		}
+		return 0;
+	}
+	
+	public void reset(){
+		for(int i=0; i<BUCKETS; i++){
+			counts.set(i, 0);
+		}
+		count.set(0);
+		total.set(0);
+		max.set(0);
+	}
+}
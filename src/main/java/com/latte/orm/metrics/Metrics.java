@@ -0,0 +1,38 @@
+package com.latte.orm.metrics;
+/**
+ * @author hikmatullohhari
+ */
+// Receives the measures of a model, set with GenericModel.metrics(). Called on the thread of the operation,
+// from many threads for a ConcurrentModel or a parallel() model, so it must be thread safe and fast
+public interface Metrics {
+	// Records nothing, the default of every model
+	public static final Metrics NONE = new Metrics() {
+		public void timed(Operation operation, long nanos) {
+		}
+		
+		public void rows(long scanned, long returned) {
+		}
+		
+		public void index(boolean isHit) {
+		}
+		
+		public void cache(boolean isHit) {
+		}
+		
+		public void bytesRead(long bytes) {
+		}
+		
+		public void bytesWritten(long bytes) {
+		}
+	};
+	
+	public void timed(Operation operation, long nanos);
+	// Rows evaluated by a query and rows it returned
+	public void rows(long scanned, long returned);
+	// A query whose candidates came from an index (hit) or from every record
+	public void index(boolean isHit);
+	// A query of a model with a QueryCache, served from it (hit) or evaluated
+	public void cache(boolean isHit);
+	public void bytesRead(long bytes);
+	public void bytesWritten(long bytes);
+}
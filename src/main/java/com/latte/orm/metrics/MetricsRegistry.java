@@ -0,0 +1,96 @@
+package com.latte.orm.metrics;
+/**
+ * @author hikmatullohhari
+ */
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Measures of the models by name, in this process. With exposeJmx() each one is an MXBean named
+// com.latte.orm:type=Model,name=<name> of the platform MBeanServer, readable with jconsole or any JMX client
+public class MetricsRegistry {
+	private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+	
+	private final ConcurrentMap<String, ModelMetrics> models = new ConcurrentHashMap<String, ModelMetrics>();
+	private volatile boolean isJmxExposed = false;
+	
+	public static MetricsRegistry getDefault(){
+		return DEFAULT;
+	}
+	
+	// Measures of the model with that name, created on the first call
+	public ModelMetrics forModel(String name){
+		ModelMetrics metrics = models.get(name);
+		if(metrics == null){
+			ModelMetrics created = new ModelMetrics(name);
+			metrics = models.putIfAbsent(name, created);
+			if(metrics == null){
+				metrics = created;
+				if(isJmxExposed){
+					register(metrics);
+				}
+			}
+		}
+		return metrics;
+	}
+	
+	public Collection<ModelMetrics> getModels(){
+		return new ArrayList<ModelMetrics>(models.values());
+	}
+	
+	// Register the measures of every model in JMX, those created later are registered too
+	public synchronized MetricsRegistry exposeJmx(){
+		if(!isJmxExposed){
+			isJmxExposed = true;
+			for(ModelMetrics metrics: models.values()){
+				register(metrics);
+			}
+		}
+		return this;
+	}
+	
+	public synchronized MetricsRegistry hideJmx(){
+		if(isJmxExposed){
+			isJmxExposed = false;
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			for(ModelMetrics metrics: models.values()){
+				try {
+					server.unregisterMBean(objectName(metrics.getName()));
+				} catch (InstanceNotFoundException e) {
+					// unregistered by someone else
+				} catch (JMException e) {
+					throw new IllegalStateException("Can't unregister the metrics of " + metrics.getName(), e);
+				}
+			}
+		}
+		return this;
+	}
+	
+	public static ObjectName objectName(String name) throws JMException {
+		return new ObjectName("com.latte.orm:type=Model,name=" + ObjectName.quote(name));
+	}
+	
+	// A model of another registry with the same name is replaced
+	private void register(ModelMetrics metrics){
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName name = objectName(metrics.getName());
+			try {
+				server.registerMBean(metrics, name);
+			} catch (InstanceAlreadyExistsException e) {
+				server.unregisterMBean(name);
+				server.registerMBean(metrics, name);
+			}
+		} catch (JMException e) {
+			throw new IllegalStateException("Can't register the metrics of " + metrics.getName(), e);
+		}
+	}
+}
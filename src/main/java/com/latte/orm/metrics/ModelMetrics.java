@@ -0,0 +1,147 @@
+package com.latte.orm.metrics;
+/**
+ * @author hikmatullohhari
+ */
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Measures of one model kept in memory: a latency histogram per operation and counters of rows, index use and bytes.
+// Created by MetricsRegistry.forModel(), several models may share one to be measured together
+public class ModelMetrics implements Metrics, ModelMetricsMXBean {
+	private final String name;
+	private final Map<Operation, Histogram> latencies = new EnumMap<Operation, Histogram>(Operation.class); // filled once, only read after
+	private final AtomicLong rowsScanned = new AtomicLong();
+	private final AtomicLong rowsReturned = new AtomicLong();
+	private final AtomicLong indexHits = new AtomicLong();
+	private final AtomicLong indexMisses = new AtomicLong();
+	private final AtomicLong cacheHits = new AtomicLong();
+	private final AtomicLong cacheMisses = new AtomicLong();
+	private final AtomicLong bytesRead = new AtomicLong();
+	private final AtomicLong bytesWritten = new AtomicLong();
+	
+	public ModelMetrics(String name){
+		this.name = name;
+		for(Operation operation: Operation.values()){
+			latencies.put(operation, new Histogram());
+		}
+	}
+	
+	public void timed(Operation operation, long nanos) {
+		latencies.get(operation).record(nanos);
+	}
+	
+	public void rows(long scanned, long returned) {
+		rowsScanned.addAndGet(scanned);
+		rowsReturned.addAndGet(returned);
+	}
+	
+	public void index(boolean isHit) {
+		(isHit ? indexHits : indexMisses).incrementAndGet();
+	}
+	
+	public void cache(boolean isHit) {
+		(isHit ? cacheHits : cacheMisses).incrementAndGet();
+	}
+	
+	public void bytesRead(long bytes) {
+		bytesRead.addAndGet(bytes);
+	}
+	
+	public void bytesWritten(long bytes) {
+		bytesWritten.addAndGet(bytes);
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public Histogram getLatency(Operation operation){
+		return latencies.get(operation);
+	}
+	
+	// Operations called at least once, by name
+	public Map<String, OperationStats> getOperations() {
+		Map<String, OperationStats> operations = new LinkedHashMap<String, OperationStats>();
+		for(Map.Entry<Operation, Histogram> entry: latencies.entrySet()){
+			if(entry.getValue().getCount() > 0){
+				operations.put(entry.getKey().name(), OperationStats.of(entry.getValue()));
+			}
+		}
+		return operations;
+	}
+	
+	public long getRowsScanned() {
+		return rowsScanned.get();
+	}
+	
+	public long getRowsReturned() {
+		return rowsReturned.get();
+	}
+	
+	public long getIndexHits() {
+		return indexHits.get();
+	}
+	
+	public long getIndexMisses() {
+		return indexMisses.get();
+	}
+	
+	// Share of the queries answered from an index, 0 before the first query
+	public double getIndexHitRate() {
+		long hits = indexHits.get();
+		long total = hits + indexMisses.get();
+		return (total == 0) ? 0 : (double) hits / total;
+	}
+	
+	public long getCacheHits() {
+		return cacheHits.get();
+	}
+	
+	public long getCacheMisses() {
+		return cacheMisses.get();
+	}
+	
+	// Share of the queries served by the QueryCache, 0 before the first query
+	public double getCacheHitRate() {
+		long hits = cacheHits.get();
+		long total = hits + cacheMisses.get();
+		return (total == 0) ? 0 : (double) hits / total;
+	}
+	
+	public long getBytesRead() {
+		return bytesRead.get();
+	}
+	
+	public long getBytesWritten() {
+		return bytesWritten.get();
+	}
+	
+	public void reset() {
+		for(Histogram histogram: latencies.values()){
+			histogram.reset();
+		}
+		rowsScanned.set(0);
+		rowsReturned.set(0);
+		indexHits.set(0);
+		indexMisses.set(0);
+		cacheHits.set(0);
+		cacheMisses.set(0);
+		bytesRead.set(0);
+		bytesWritten.set(0);
+	}
+	
+	@Override
+	public String toString(){
+		StringBuilder text = new StringBuilder(name);
+		for(Map.Entry<String, OperationStats> entry: getOperations().entrySet()){
+			text.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue());
+		}
+		text.append("\n  rows scanned ").append(getRowsScanned()).append(", returned ").append(getRowsReturned());
+		text.append("\n  index hit rate ").append(String.format("%.2f", getIndexHitRate()));
+		text.append(", cache hit rate ").append(String.format("%.2f", getCacheHitRate()));
+		text.append("\n  bytes read ").append(getBytesRead()).append(", written ").append(getBytesWritten());
+		return text.toString();
+	}
+}
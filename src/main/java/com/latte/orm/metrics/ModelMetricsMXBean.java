@@ -0,0 +1,22 @@
+package com.latte.orm.metrics;
+/**
+ * @author hikmatullohhari
+ */
+import java.util.Map;
+
+// Attributes of a ModelMetrics registered in JMX, see MetricsRegistry.exposeJmx()
+public interface ModelMetricsMXBean {
+	public String getName();
+	public Map<String, OperationStats> getOperations();
+	public long getRowsScanned();
+	public long getRowsReturned();
+	public long getIndexHits();
+	public long getIndexMisses();
+	public double getIndexHitRate();
+	public long getCacheHits();
+	public long getCacheMisses();
+	public double getCacheHitRate();
+	public long getBytesRead();
+	public long getBytesWritten();
+	public void reset();
+}
@@ -0,0 +1,15 @@
+package com.latte.orm.metrics;
+/**
+ * @author hikmatullohhari
+ */
+// Operations of a model whose latency is recorded
+public enum Operation {
+	MAPPING, // startMapping()
+	QUERY, // toList() and toSingle(), toIterator() and toStream() are lazy and not timed
+	INSERT, // insert() and insertAll()
+	UPDATE, // update() and updateAll()
+	DELETE, // delete(), deleteAll() and delete() of a query
+	CONSTRAINT_CHECK, // @PrimaryKey, @NotNull and @Unique checks of an insert or an update
+	WRITE, // save() and the exports, a journaled save() is its commit
+	SNAPSHOT // copy of the records published by a ConcurrentModel after a write
+}
@@ -0,0 +1,59 @@
+package com.latte.orm.metrics;
+/**
+ * @author hikmatullohhari
+ */
+import java.beans.ConstructorProperties;
+
+// Latencies of one operation at the time it was read, in microseconds
+public class OperationStats {
+	private final long count;
+	private final long totalMicros;
+	private final long meanMicros;
+	private final long p50Micros;
+	private final long p99Micros;
+	private final long maxMicros;
+	
+	@ConstructorProperties({"count", "totalMicros", "meanMicros", "p50Micros", "p99Micros", "maxMicros"})
+	public OperationStats(long count, long totalMicros, long meanMicros, long p50Micros, long p99Micros, long maxMicros){
+		this.count = count;
+		this.totalMicros = totalMicros;
+		this.meanMicros = meanMicros;
+		this.p50Micros = p50Micros;
+		this.p99Micros = p99Micros;
+		this.maxMicros = maxMicros;
+	}
+	
+	public static OperationStats of(Histogram histogram){
+		return new OperationStats(histogram.getCount(), histogram.getTotalNanos() / 1000, histogram.getMeanNanos() / 1000,
+				histogram.getPercentileNanos(0.5) / 1000, histogram.getPercentileNanos(0.99) / 1000, histogram.getMaxNanos() / 1000);
+	}
+	
+	public long getCount() {
+		return count;
+	}
+	
+	public long getTotalMicros() {
+		return totalMicros;
+	}
+	
+	public long getMeanMicros() {
+		return meanMicros;
+	}
+	
+	public long getP50Micros() {
+		return p50Micros;
+	}
+	
+	public long getP99Micros() {
+		return p99Micros;
+	}
+	
+	public long getMaxMicros() {
+		return maxMicros;
+	}
+	
+	@Override
+	public String toString(){
+		return count + " calls, mean " + meanMicros + "us, p50 " + p50Micros + "us, p99 " + p99Micros + "us, max " + maxMicros + "us";
+	}
+}
@@ -0,0 +1,325 @@
+package com.latte.orm.query;
+/**
+ * @author hikmatullohhari
+ */
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import com.latte.orm.Model.Operator;
+import com.latte.orm.binary.ColumnType;
+import com.latte.orm.columnar.Bitmaps;
+import com.latte.orm.columnar.ColumnStore;
+import com.latte.orm.columnar.ColumnVector;
+import com.latte.orm.helpers.Accessor;
+import com.latte.orm.helpers.Helper;
+import com.latte.orm.index.Indexes;
+
+// where(columnName, operator, value)
+public class ColumnCondition<T> implements Condition<T> {
+	private final String columnName;
+	private final Operator operator;
+	private final String value;
+	private final Accessor getter;
+	private final boolean isString;
+	private final boolean isNumber;
+	private final boolean isParsable;
+	// Operands parsed once per query
+	private final Object typedValue;
+	private final double value1;
+	private final double value2;
+	private final List<String> input;
+	private final Set<Object> inputSet;
+	private final boolean inputHasNull;
+	private final char firstLower;
+	private final char firstUpper;
+	
+	public ColumnCondition(String columnName, Operator operator, String value, Accessor getter){
+		this.columnName = columnName;
+		this.operator = operator;
+		this.value = value;
+		this.getter = getter;
+		Class<?> type = wrap(getter.getType());
+		this.isString = type == String.class;
+		this.isNumber = type == Integer.class || type == Long.class || type == Short.class || type == Byte.class || type == Double.class;
+		this.isParsable = isNumber || type == Float.class || type == Boolean.class;
+		this.firstLower = value.isEmpty() ? 0 : Character.toLowerCase(value.charAt(0));
+		this.firstUpper = value.isEmpty() ? 0 : Character.toUpperCase(value.charAt(0));
+		boolean isRange = operator == Operator.BETWEEN || operator == Operator.NOT_BETWEEN;
+		boolean isIn = operator == Operator.IN || operator == Operator.NOT_IN;
+		double[] range = isRange ? range(value) : null;
+		if(isRange && range == null){ // reported by Query before
+			throw new IllegalArgumentException("Not a range: "+value);
+		}
+		this.value1 = isRange ? range[0] : 0;
+		this.value2 = isRange ? range[1] : 0;
+		this.input = isIn ? Arrays.asList(value.split(","+Helper.REGEX_ESCAPE_QUOTE)) : null;
+		this.inputSet = isIn ? new HashSet<Object>() : null;
+		boolean hasNull = false;
+		if(isIn){
+			for(String token: input){
+				hasNull = hasNull || token.equals("null");
+				Object typed = isString ? token : parse(type, token);
+				inputSet.add((typed == null) ? token : typed);
+			}
+		}
+		this.inputHasNull = hasNull;
+		this.typedValue = (operator == Operator.EQUALS || operator == Operator.NOT_EQUALS) ? (isString ? value : parse(type, value)) : null;
+	}
+	
+	// Bounds of a BETWEEN or NOT_BETWEEN value, two numbers joined by "and", null if value isn't written so
+	public static double[] range(String value){
+		String[] values = value.toLowerCase().split("and");
+		if(values.length != 2){
+			return null;
+		}
+		try {
+			return new double[]{Double.parseDouble(values[0].trim()), Double.parseDouble(values[1].trim())};
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+	
+	private static Class<?> wrap(Class<?> type){
+		if(type == int.class) return Integer.class;
+		if(type == long.class) return Long.class;
+		if(type == short.class) return Short.class;
+		if(type == byte.class) return Byte.class;
+		if(type == double.class) return Double.class;
+		if(type == float.class) return Float.class;
+		if(type == boolean.class) return Boolean.class;
+		return type;
+	}
+	
+	// Operand as a value of the field type, only when String.valueOf() of that value gives the operand back,
+	// so comparing typed values gives the same result as comparing String.valueOf(fieldValue) with the operand
+	private static Object parse(Class<?> type, String s){
+		try {
+			Object typed = null;
+			if(type == Integer.class){
+				typed = Integer.valueOf(s);
+			} else if(type == Long.class){
+				typed = Long.valueOf(s);
+			} else if(type == Short.class){
+				typed = Short.valueOf(s);
+			} else if(type == Byte.class){
+				typed = Byte.valueOf(s);
+			} else if(type == Double.class){
+				typed = Double.valueOf(s);
+			} else if(type == Float.class){
+				typed = Float.valueOf(s);
+			} else if(type == Boolean.class){
+				typed = Boolean.valueOf(s);
+			}
+			return (typed != null && String.valueOf(typed).equals(s)) ? typed : null;
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+	
+	public boolean matches(T t) throws InvocationTargetException {
+		return isMatch(getter.get(t));
+	}
+	
+	public boolean matches(ColumnStore<T> columns, int row) throws InvocationTargetException {
+		ColumnVector vector = columns.getVector(columnName);
+		return isMatch((vector == null) ? getter.get(columns.get(row)) : vector.get(row));
+	}
+	
+	// Strings are matched once per distinct value. Numbers use the kernel of the operator, when it gives the
+	// same result as comparing the boxed values. Null rows all get the result of a null value
+	public long[] select(ColumnStore<T> columns, long[] rows){
+		ColumnVector vector = columns.getVector(columnName);
+		if(vector == null){
+			return null;
+		}
+		long[] bits = null;
+		int from = Bitmaps.nextSetBit(rows, 0);
+		int to = Bitmaps.lastSetBit(rows) + 1; // kernels run on the rows from the first to the last one of rows
+		if(from < 0){
+			return rows.clone();
+		}
+		if(vector.getType() == ColumnType.STRING){
+			bits = vector.matching(rows, new Predicate<Object>() {
+				public boolean test(Object fieldValue) {
+					return isMatch(fieldValue);
+				}
+			});
+		} else {
+			switch(operator){
+			case EQUALS:
+			case NOT_EQUALS:
+				if(isParsable){
+					bits = (typedValue == null) ? Bitmaps.empty(vector.size()) : vector.equalTo(typedValue, from, to);
+				} else if(vector.getType() == ColumnType.CHAR){
+					bits = (value.length() == 1) ? vector.equalTo(value.charAt(0), from, to) : Bitmaps.empty(vector.size());
+				}
+				if(bits != null && operator == Operator.NOT_EQUALS){
+					Bitmaps.not(bits, vector.size());
+				}
+				break;
+			case BETWEEN:
+				bits = isNumber ? vector.between(value1, value2, from, to) : null;
+				break;
+			case NOT_BETWEEN:
+				bits = isNumber ? vector.notBetween(value1, value2, from, to) : null;
+				break;
+			case IN:
+			case NOT_IN:
+				if(isParsable){
+					bits = vector.in(inputSet, from, to);
+					if(operator == Operator.NOT_IN){
+						Bitmaps.not(bits, vector.size());
+					}
+				}
+				break;
+			default:
+				break;
+			}
+		}
+		if(bits != null){
+			Bitmaps.assign(bits, vector.nulls(from, to), isMatch(null));
+			Bitmaps.and(bits, rows);
+		}
+		return bits;
+	}
+	
+	private boolean isMatch(Object fieldValue){
+		switch(operator){
+		case CONTAINS:
+			return containsIgnoreCase(fieldValue);
+		case NOT_CONTAINS:
+			return !containsIgnoreCase(fieldValue);
+		case EQUALS:
+			return isEqual(fieldValue);
+		case NOT_EQUALS:
+			return !isEqual(fieldValue);
+		case EQUALS_IGNORE_CASE:
+			return value.equalsIgnoreCase(String.valueOf(fieldValue));
+		case NOT_EQUALS_IGNORE_CASE:
+			return !value.equalsIgnoreCase(String.valueOf(fieldValue));
+		case BETWEEN:
+			if(fieldValue == null){
+				return false;
+			}
+			double valCompare = toDouble(fieldValue);
+			return valCompare >= value1 && valCompare <= value2;
+		case NOT_BETWEEN:
+			if(fieldValue == null){
+				return false;
+			}
+			valCompare = toDouble(fieldValue);
+			return valCompare <= value1 || valCompare >= value2;
+		case IN:
+			return isIn(fieldValue);
+		case NOT_IN:
+			return !isIn(fieldValue);
+		default:
+			return false;
+		}
+	}
+	
+	private boolean isEqual(Object fieldValue){
+		if(fieldValue == null){
+			return value.equals("null");
+		}
+		if(isString || isParsable){
+			return typedValue != null && typedValue.equals(fieldValue); // null when value isn't written the way String.valueOf() writes it
+		}
+		return value.equals(String.valueOf(fieldValue));
+	}
+	
+	private boolean isIn(Object fieldValue){
+		if(fieldValue == null){
+			return inputHasNull;
+		}
+		if(isString || isParsable){
+			return inputSet.contains(fieldValue);
+		}
+		return inputSet.contains(String.valueOf(fieldValue));
+	}
+	
+	private boolean containsIgnoreCase(Object fieldValue){
+		String text = isString && fieldValue != null ? (String) fieldValue : String.valueOf(fieldValue);
+		int length = value.length();
+		if(length == 0){
+			return true;
+		}
+		for(int i=0; i<=text.length()-length; i++){
+			char c = text.charAt(i);
+			if((c == firstLower || c == firstUpper || Character.toLowerCase(c) == firstLower) && text.regionMatches(true, i, value, 0, length)){
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private double toDouble(Object fieldValue){
+		if(isNumber){
+			return ((Number) fieldValue).doubleValue();
+		}
+		if(isString){
+			return Double.parseDouble((String) fieldValue);
+		}
+		return Double.parseDouble(String.valueOf(fieldValue));
+	}
+	
+	public int estimate(Indexes<T> indexes){
+		switch(operator){
+		case EQUALS:
+			return indexes.countIn(columnName, Arrays.asList(value));
+		case IN:
+			return indexes.countIn(columnName, input);
+		case BETWEEN:
+			return indexes.countBetween(columnName, value1, value2);
+		case NOT_BETWEEN:
+			return indexes.countNotBetween(columnName, value1, value2);
+		default:
+			return -1;
+		}
+	}
+	
+	public List<T> lookup(Indexes<T> indexes){
+		switch(operator){
+		case EQUALS:
+			return indexes.equalTo(columnName, value);
+		case IN:
+			return indexes.in(columnName, input);
+		case BETWEEN:
+			return indexes.between(columnName, value1, value2);
+		case NOT_BETWEEN:
+			return indexes.notBetween(columnName, value1, value2);
+		default:
+			return null;
+		}
+	}
+	
+	public Collection<String> getColumnNames(){
+		return Collections.singletonList(columnName.toLowerCase());
+	}
+	
+	// Same column, operator and value: the same records match, see QueryCache
+	@Override
+	public boolean equals(Object o){
+		if(!(o instanceof ColumnCondition)){
+			return false;
+		}
+		ColumnCondition<?> other = (ColumnCondition<?>) o;
+		return columnName.equalsIgnoreCase(other.columnName) && operator == other.operator && value.equals(other.value);
+	}
+	
+	@Override
+	public int hashCode(){
+		return (columnName.toLowerCase().hashCode() * 31 + operator.hashCode()) * 31 + value.hashCode();
+	}
+	
+	@Override
+	public String toString(){
+		return columnName + " " + operator + " " + value;
+	}
+}
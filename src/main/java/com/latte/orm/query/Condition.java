@@ -0,0 +1,31 @@
+package com.latte.orm.query;
+/**
+ * @author hikmatullohhari
+ */
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.List;
+
+import com.latte.orm.columnar.ColumnStore;
+import com.latte.orm.index.Indexes;
+
+// A single where() condition, immutable so queries can be shared between threads
+public interface Condition<T> {
+	public boolean matches(T t) throws InvocationTargetException;
+	
+	// Same as matches(columns.get(row)), read from the stored columns when possible
+	public boolean matches(ColumnStore<T> columns, int row) throws InvocationTargetException;
+	
+	// Rows of the rows bitmap matching, computed column at a time, or null if it must be evaluated row by row.
+	// Other rows aren't evaluated, like matches() isn't called for them
+	public long[] select(ColumnStore<T> columns, long[] rows);
+	
+	// Number of records an index would return for this condition, -1 if no index can serve it
+	public int estimate(Indexes<T> indexes);
+	
+	// Records that may match, in records order, or null if no index can serve this condition
+	public List<T> lookup(Indexes<T> indexes);
+	
+	// Lower-cased names of the properties read by matches()
+	public Collection<String> getColumnNames();
+}
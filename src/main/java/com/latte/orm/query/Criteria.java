@@ -0,0 +1,131 @@
+package com.latte.orm.query;
+/**
+ * @author hikmatullohhari
+ */
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.latte.orm.columnar.Bitmaps;
+import com.latte.orm.columnar.ColumnStore;
+
+// Conditions chained by where(), andWhere() and orWhere(), evaluated from left to right:
+// where(A).andWhere(B).orWhere(C).andWhere(D) matches ((A and B) or C) and D
+public class Criteria<T> {
+	private final Criteria<T> previous;
+	private final boolean or;
+	private final Condition<T> condition;
+	
+	public Criteria(Condition<T> condition){
+		this(null, false, condition);
+	}
+	
+	private Criteria(Criteria<T> previous, boolean or, Condition<T> condition){
+		this.previous = previous;
+		this.or = or;
+		this.condition = condition;
+	}
+	
+	public Criteria<T> and(Condition<T> condition){
+		return new Criteria<T>(this, false, condition);
+	}
+	
+	public Criteria<T> or(Condition<T> condition){
+		return new Criteria<T>(this, true, condition);
+	}
+	
+	public boolean matches(T t) throws InvocationTargetException {
+		if(previous == null){
+			return condition.matches(t);
+		}
+		if(or){
+			return previous.matches(t) || condition.matches(t);
+		}
+		return previous.matches(t) && condition.matches(t);
+	}
+	
+	public boolean matches(ColumnStore<T> columns, int row) throws InvocationTargetException {
+		if(previous == null){
+			return condition.matches(columns, row);
+		}
+		if(or){
+			return previous.matches(columns, row) || condition.matches(columns, row);
+		}
+		return previous.matches(columns, row) && condition.matches(columns, row);
+	}
+	
+	// Rows of the rows bitmap matching, as a bitmap of Bitmaps. Each condition is only evaluated on the rows whose
+	// result it can still change: those selected so far for an and, the others for an or
+	public long[] select(ColumnStore<T> columns, long[] rows) throws InvocationTargetException {
+		if(previous == null){
+			return select(condition, columns, rows);
+		}
+		long[] bits = previous.select(columns, rows);
+		if(!or){
+			return select(condition, columns, bits);
+		}
+		long[] others = rows.clone();
+		Bitmaps.assign(others, bits, false);
+		Bitmaps.or(bits, select(condition, columns, others));
+		return bits;
+	}
+	
+	private static <T> long[] select(Condition<T> condition, ColumnStore<T> columns, long[] rows) throws InvocationTargetException {
+		if(Bitmaps.cardinality(rows) == 0){
+			return rows.clone();
+		}
+		long[] selected = condition.select(columns, rows);
+		if(selected != null){
+			return selected;
+		}
+		selected = rows.clone();
+		for(int row=Bitmaps.nextSetBit(rows, 0); row>=0; row=Bitmaps.nextSetBit(rows, row + 1)){
+			if(!condition.matches(columns, row)){
+				Bitmaps.set(selected, row, false);
+			}
+		}
+		return selected;
+	}
+	
+	// Conditions every matching record satisfies: the ones after the last orWhere()
+	public List<Condition<T>> required(){
+		List<Condition<T>> required = new ArrayList<Condition<T>>();
+		for(Criteria<T> c = this; c != null && !c.or; c = c.previous){
+			required.add(c.condition);
+		}
+		return required;
+	}
+	
+	// Lower-cased names of the properties read by matches()
+	public Set<String> getColumnNames(){
+		Set<String> columnNames = new LinkedHashSet<String>();
+		for(Criteria<T> c = this; c != null; c = c.previous){
+			columnNames.addAll(c.condition.getColumnNames());
+		}
+		return columnNames;
+	}
+	
+	@Override
+	public boolean equals(Object o){
+		if(!(o instanceof Criteria)){
+			return false;
+		}
+		Criteria<?> other = (Criteria<?>) o;
+		return or == other.or && condition.equals(other.condition) && (previous == null ? other.previous == null : previous.equals(other.previous));
+	}
+	
+	@Override
+	public int hashCode(){
+		return ((previous == null ? 0 : previous.hashCode()) * 31 + (or ? 1 : 0)) * 31 + condition.hashCode();
+	}
+	
+	@Override
+	public String toString(){
+		if(previous == null){
+			return "(" + condition + ")";
+		}
+		return "(" + previous + (or ? " or " : " and ") + condition + ")";
+	}
+}
@@ -0,0 +1,135 @@
+package com.latte.orm.query;
+/**
+ * @author hikmatullohhari
+ */
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.latte.orm.columnar.Bitmaps;
+import com.latte.orm.columnar.ColumnStore;
+import com.latte.orm.columnar.ColumnVector;
+import com.latte.orm.helpers.Accessor;
+import com.latte.orm.helpers.EntityMetadata;
+import com.latte.orm.index.Indexes;
+
+// where(T t), every not null value of t must be equal
+public class ExampleCondition<T> implements Condition<T> {
+	private final List<Accessor> getters = new ArrayList<Accessor>();
+	private final List<Object> values = new ArrayList<Object>();
+	
+	// Values of t are read once, not once per record
+	public ExampleCondition(T t, EntityMetadata metadata) throws InvocationTargetException {
+		for(Accessor getter: metadata.getGetters()){
+			Object value = getter.get(t);
+			if(value != null){
+				getters.add(getter);
+				values.add(value);
+			}
+		}
+	}
+	
+	public boolean matches(T t) throws InvocationTargetException {
+		for(int i=0; i<getters.size(); i++){
+			if(!values.get(i).equals(getters.get(i).get(t))){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	public boolean matches(ColumnStore<T> columns, int row) throws InvocationTargetException {
+		T t = null; // created for the first property that isn't stored
+		for(int i=0; i<getters.size(); i++){
+			ColumnVector vector = columns.getVector(propertyName(i));
+			if(vector != null){
+				if(!vector.isEqual(row, values.get(i))){
+					return false;
+				}
+				continue;
+			}
+			if(t == null){
+				t = columns.get(row);
+			}
+			if(!values.get(i).equals(getters.get(i).get(t))){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	public long[] select(ColumnStore<T> columns, long[] rows){
+		long[] bits = rows.clone();
+		int from = Math.max(0, Bitmaps.nextSetBit(rows, 0));
+		int to = Bitmaps.lastSetBit(rows) + 1;
+		for(int i=0; i<getters.size(); i++){
+			ColumnVector vector = columns.getVector(propertyName(i));
+			if(vector == null){
+				return null;
+			}
+			Bitmaps.and(bits, vector.equalTo(values.get(i), from, to));
+		}
+		return bits;
+	}
+	
+	public int estimate(Indexes<T> indexes){
+		int best = mostSelective(indexes);
+		return (best < 0) ? -1 : indexes.countIn(propertyName(best), keyOf(best));
+	}
+	
+	public List<T> lookup(Indexes<T> indexes){
+		int best = mostSelective(indexes);
+		return (best < 0) ? null : indexes.in(propertyName(best), keyOf(best));
+	}
+	
+	// Position of the indexed value with the fewest records, candidates are checked again by matches()
+	private int mostSelective(Indexes<T> indexes){
+		int best = -1;
+		int estimate = -1;
+		for(int i=0; i<getters.size(); i++){
+			int count = indexes.countIn(propertyName(i), keyOf(i));
+			if(count >= 0 && (estimate < 0 || count < estimate)){
+				estimate = count;
+				best = i;
+			}
+		}
+		return best;
+	}
+	
+	private List<String> keyOf(int i){
+		return Collections.singletonList(String.valueOf(values.get(i)));
+	}
+	
+	private String propertyName(int i){
+		return getters.get(i).getName().substring(3);
+	}
+	
+	public Collection<String> getColumnNames(){
+		List<String> columnNames = new ArrayList<String>();
+		for(int i=0; i<getters.size(); i++){
+			columnNames.add(propertyName(i).toLowerCase());
+		}
+		return columnNames;
+	}
+	
+	@Override
+	public boolean equals(Object o){
+		if(!(o instanceof ExampleCondition)){
+			return false;
+		}
+		ExampleCondition<?> other = (ExampleCondition<?>) o;
+		return getColumnNames().equals(other.getColumnNames()) && values.equals(other.values);
+	}
+	
+	@Override
+	public int hashCode(){
+		return getColumnNames().hashCode() * 31 + values.hashCode();
+	}
+	
+	@Override
+	public String toString(){
+		return "example " + values;
+	}
+}
@@ -0,0 +1,77 @@
+package com.latte.orm.query;
+/**
+ * @author hikmatullohhari
+ */
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.latte.orm.helpers.Errors;
+
+// Records in an order whose first column has a sorted index: the index is read in order one value at a time,
+// the records of a value are sorted by the other columns. The records without value come last, they are only
+// searched once every indexed record is read
+public class IndexOrder<T> implements Iterator<T> {
+	private final Iterator<List<T>> buckets; // records of each value of the first column, in records order
+	private final List<T> records;
+	private final Ordering<T> ordering;
+	private final Errors errors;
+	private Iterator<T> bucket = Collections.<T>emptyList().iterator();
+	private boolean isNullsRead = false;
+	
+	public IndexOrder(Iterator<List<T>> buckets, List<T> records, Ordering<T> ordering, Errors errors){
+		this.buckets = buckets;
+		this.records = records;
+		this.ordering = ordering;
+		this.errors = errors;
+	}
+	
+	public boolean hasNext() {
+		while(!bucket.hasNext()){
+			List<T> next;
+			if(buckets.hasNext()){
+				next = buckets.next();
+			} else if(!isNullsRead){
+				isNullsRead = true;
+				next = withoutValue();
+			} else {
+				return false;
+			}
+			try {
+				bucket = (next.size() > 1) ? ordering.sort(next, next.size()).iterator() : next.iterator();
+			} catch (InvocationTargetException e) {
+				errors.add(e);
+				bucket = next.iterator();
+			}
+		}
+		return true;
+	}
+	
+	private List<T> withoutValue(){
+		List<T> withoutValue = new ArrayList<T>();
+		for(T r: records){
+			try {
+				if(ordering.getGetter(0).get(r) == null){
+					withoutValue.add(r);
+				}
+			} catch (InvocationTargetException e) {
+				errors.add(e);
+			}
+		}
+		return withoutValue;
+	}
+	
+	public T next() {
+		if(!hasNext()){
+			throw new NoSuchElementException();
+		}
+		return bucket.next();
+	}
+	
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+}
@@ -0,0 +1,213 @@
+package com.latte.orm.query;
+/**
+ * @author hikmatullohhari
+ */
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.latte.orm.helpers.Accessor;
+
+// Order of the records given by orderBy(), by one or more columns, each ascending or descending. Nulls come last
+// in both directions and records with equal keys keep the records order. The keys of a record are read once,
+// a limited query keeps its best records in a bounded heap instead of sorting every match
+public class Ordering<T> {
+	private final List<Key> keys;
+	
+	// One column of the order
+	private static class Key {
+		private final String columnName; // lower-cased
+		private final Accessor getter;
+		private final boolean isDescending;
+		
+		Key(String columnName, Accessor getter, boolean isDescending){
+			this.columnName = columnName.toLowerCase();
+			this.getter = getter;
+			this.isDescending = isDescending;
+		}
+	}
+	
+	// Values of the keys of the items sorted by sort(count, values, limit), rows of a ColumnarModel
+	public interface Values {
+		public Object get(int item, int key) throws InvocationTargetException;
+	}
+	
+	// An item and the values of its keys
+	private static class Entry {
+		private final int item;
+		private final Object[] values;
+		
+		Entry(int item, Object[] values){
+			this.item = item;
+			this.values = values;
+		}
+	}
+	
+	private final Comparator<Entry> bestFirst = new Comparator<Entry>() {
+		public int compare(Entry e1, Entry e2) {
+			return Ordering.this.compare(e1.values, e1.item, e2.values, e2.item);
+		}
+	};
+	
+	private final Comparator<Entry> worstFirst = Collections.reverseOrder(bestFirst);
+	
+	public Ordering(String columnName, Accessor getter, boolean isDescending){
+		this(Collections.singletonList(new Key(columnName, getter, isDescending)));
+	}
+	
+	private Ordering(List<Key> keys){
+		this.keys = keys;
+	}
+	
+	// Same order, records with equal keys ordered by columnName
+	public Ordering<T> then(String columnName, Accessor getter, boolean isDescending){
+		List<Key> then = new ArrayList<Key>(keys);
+		then.add(new Key(columnName, getter, isDescending));
+		return new Ordering<T>(Collections.unmodifiableList(then));
+	}
+	
+	// Primitives and Comparable types can be ordered
+	public static boolean isOrderable(Class<?> type){
+		return type.isPrimitive() || Comparable.class.isAssignableFrom(type);
+	}
+	
+	public int size(){
+		return keys.size();
+	}
+	
+	public String getColumnName(int key){
+		return keys.get(key).columnName;
+	}
+	
+	public Accessor getGetter(int key){
+		return keys.get(key).getter;
+	}
+	
+	public boolean isDescending(int key){
+		return keys.get(key).isDescending;
+	}
+	
+	// The first limit records in this order, records with equal keys keep their order in records
+	public List<T> sort(final List<T> records, int limit) throws InvocationTargetException {
+		int[] order = sort(records.size(), new Values() {
+			public Object get(int item, int key) throws InvocationTargetException {
+				return keys.get(key).getter.get(records.get(item));
+			}
+		}, limit);
+		List<T> sorted = new ArrayList<T>(order.length);
+		for(int item: order){
+			sorted.add(records.get(item));
+		}
+		return sorted;
+	}
+	
+	// The first limit of the items 0 to count - 1 in this order, ties in items order
+	public int[] sort(int count, Values values, int limit) throws InvocationTargetException {
+		limit = Math.min(limit, count);
+		Entry[] sorted = (limit < count / 2) ? best(count, values, limit) : all(count, values);
+		int[] order = new int[Math.max(limit, 0)];
+		for(int i=0; i<order.length; i++){
+			order[i] = sorted[i].item;
+		}
+		return order;
+	}
+	
+	private Entry[] all(int count, Values values) throws InvocationTargetException {
+		Entry[] entries = new Entry[count];
+		for(int item=0; item<count; item++){
+			Object[] keyValues = new Object[keys.size()];
+			for(int key=0; key<keyValues.length; key++){
+				keyValues[key] = values.get(item, key);
+			}
+			entries[item] = new Entry(item, keyValues);
+		}
+		Arrays.sort(entries, bestFirst);
+		return entries;
+	}
+	
+	// The worst of the limit best items so far is on top of the heap, an item is only read past its first key
+	// if that key doesn't already rank it after the worst
+	private Entry[] best(int count, Values values, int limit) throws InvocationTargetException {
+		PriorityQueue<Entry> heap = new PriorityQueue<Entry>(Math.max(limit, 1), worstFirst);
+		Object[] keyValues = new Object[keys.size()];
+		for(int item=0; item<count && limit > 0; item++){
+			keyValues[0] = values.get(item, 0);
+			if(heap.size() == limit && compare(0, keyValues[0], heap.peek().values[0]) > 0){
+				continue;
+			}
+			for(int key=1; key<keyValues.length; key++){
+				keyValues[key] = values.get(item, key);
+			}
+			if(heap.size() < limit){
+				heap.add(new Entry(item, keyValues));
+				keyValues = new Object[keys.size()];
+			} else if(compare(keyValues, item, heap.peek().values, heap.peek().item) < 0){
+				Entry worst = heap.poll();
+				heap.add(new Entry(item, keyValues));
+				keyValues = worst.values;
+			}
+		}
+		Entry[] best = heap.toArray(new Entry[heap.size()]);
+		Arrays.sort(best, bestFirst);
+		return best;
+	}
+	
+	private int compare(Object[] values1, int item1, Object[] values2, int item2){
+		for(int key=0; key<keys.size(); key++){
+			int compared = compare(key, values1[key], values2[key]);
+			if(compared != 0){
+				return compared;
+			}
+		}
+		return (item1 < item2) ? -1 : ((item1 == item2) ? 0 : 1);
+	}
+	
+	// Values of one key, null after any value
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private int compare(int key, Object value1, Object value2){
+		if(value1 == null || value2 == null){
+			return (value1 == null) ? ((value2 == null) ? 0 : 1) : -1;
+		}
+		int compared = ((Comparable) value1).compareTo(value2);
+		return keys.get(key).isDescending ? -compared : compared;
+	}
+	
+	@Override
+	public boolean equals(Object o){
+		if(!(o instanceof Ordering)){
+			return false;
+		}
+		List<Key> other = ((Ordering<?>) o).keys;
+		if(other.size() != keys.size()){
+			return false;
+		}
+		for(int key=0; key<keys.size(); key++){
+			if(!other.get(key).columnName.equals(keys.get(key).columnName) || other.get(key).isDescending != keys.get(key).isDescending){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public int hashCode(){
+		int hash = 1;
+		for(Key key: keys){
+			hash = 31 * hash + key.columnName.hashCode() + (key.isDescending ? 1 : 0);
+		}
+		return hash;
+	}
+	
+	@Override
+	public String toString(){
+		StringBuilder order = new StringBuilder();
+		for(Key key: keys){
+			order.append((order.length() == 0) ? "" : ", ").append(key.columnName).append(key.isDescending ? " desc" : " asc");
+		}
+		return order.toString();
+	}
+}
@@ -0,0 +1,68 @@
+package com.latte.orm.query;
+/**
+ * @author hikmatullohhari
+ */
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.latte.orm.helpers.Errors;
+
+// Evaluates the criteria over partitions of the candidates on a ForkJoinPool, results are merged in candidates order
+public class ParallelScan {
+	public static final int MIN_PARTITION_SIZE = 4096;
+	
+	public static boolean isWorthIt(ForkJoinPool pool, List<?> candidates){
+		return pool != null && candidates.size() >= 2 * MIN_PARTITION_SIZE;
+	}
+	
+	public static <T> List<T> select(ForkJoinPool pool, final List<T> candidates, final Criteria<T> criteria, final Errors errors){
+		int partitions = Math.min(pool.getParallelism() * 4, candidates.size() / MIN_PARTITION_SIZE);
+		int partitionSize = (candidates.size() + partitions - 1) / partitions;
+		List<Callable<List<T>>> tasks = new ArrayList<Callable<List<T>>>();
+		for(int from=0; from<candidates.size(); from+=partitionSize){
+			final List<T> partition = candidates.subList(from, Math.min(from + partitionSize, candidates.size()));
+			tasks.add(new Callable<List<T>>() {
+				public List<T> call() {
+					List<T> matches = new ArrayList<T>();
+					for(T r: partition){
+						try {
+							if(criteria == null || criteria.matches(r)){
+								matches.add(r);
+							}
+						} catch (InvocationTargetException e) {
+							errors.add(e);
+						}
+					}
+					return matches;
+				}
+			});
+		}
+		List<T> selected = new ArrayList<T>();
+		try {
+			for(Future<List<T>> matches: pool.invokeAll(tasks)){
+				selected.addAll(matches.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			errors.add(e);
+		} catch (ExecutionException e) {
+			errors.add(e);
+		} catch (RejectedExecutionException e) { // the pool was shut down by parallel() meanwhile
+			selected.clear();
+			for(Callable<List<T>> task: tasks){
+				try {
+					selected.addAll(task.call());
+				} catch (Exception taskException) {
+					errors.add(taskException);
+				}
+			}
+		}
+		return selected;
+	}
+}
@@ -0,0 +1,123 @@
+package com.latte.orm.query;
+/**
+ * @author hikmatullohhari
+ */
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Results of toList() and toSingle() by query, set with GenericModel.cache(). A result is served while the
+// model keeps the version it was computed on, any insert, update, delete or startMapping() makes it stale.
+// Bounded by a number of queries, the least recently or the least frequently used one is dropped first
+public class QueryCache<T> {
+	public static enum Policy {
+		LRU, LFU
+	};
+	
+	private final int maxEntries;
+	private final Map<Object, Entry<T>> entries = new LinkedHashMap<Object, Entry<T>>(16, 0.75f, true); // least recently used first
+	private Policy policy = Policy.LRU;
+	private long timeToLive = 0; // nanoseconds, 0 for no limit
+	private int maxResultSize = Integer.MAX_VALUE;
+	
+	private static class Entry<T> {
+		final long version;
+		final long created;
+		final List<T> records;
+		long hits = 0;
+		
+		Entry(long version, List<T> records){
+			this.version = version;
+			this.created = System.nanoTime();
+			this.records = records;
+		}
+	}
+	
+	public QueryCache(int maxEntries){
+		if(maxEntries <= 0){
+			throw new IllegalArgumentException("maxEntries should be positive: " + maxEntries);
+		}
+		this.maxEntries = maxEntries;
+	}
+	
+	public synchronized QueryCache<T> policy(Policy policy){
+		this.policy = policy;
+		return this;
+	}
+	
+	// A result older than that is computed again even if the model didn't change, 0 keeps it
+	public synchronized QueryCache<T> expireAfter(long duration, TimeUnit unit){
+		this.timeToLive = unit.toNanos(duration);
+		return this;
+	}
+	
+	// Larger results aren't kept
+	public synchronized QueryCache<T> maxResultSize(int maxResultSize){
+		this.maxResultSize = maxResultSize;
+		return this;
+	}
+	
+	// Copy of the result of the query on that version of the model, null if it isn't cached
+	public synchronized List<T> get(Object key, long version){
+		Entry<T> entry = entries.get(key);
+		if(entry == null){
+			return null;
+		}
+		if(entry.version != version || (timeToLive > 0 && System.nanoTime() - entry.created > timeToLive)){
+			entries.remove(key);
+			return null;
+		}
+		entry.hits++;
+		return new ArrayList<T>(entry.records);
+	}
+	
+	public synchronized void put(Object key, long version, List<T> records){
+		if(records.size() > maxResultSize){
+			return;
+		}
+		if(!entries.containsKey(key)){
+			removeStale(version);
+			while(entries.size() >= maxEntries){
+				entries.remove(victim());
+			}
+		}
+		entries.put(key, new Entry<T>(version, Collections.unmodifiableList(new ArrayList<T>(records))));
+	}
+	
+	// Results of older versions are never served again
+	private void removeStale(long version){
+		for(Iterator<Entry<T>> it = entries.values().iterator(); it.hasNext();){
+			if(it.next().version != version){
+				it.remove();
+			}
+		}
+	}
+	
+	// Key of the entry to drop, ties of LFU go to the least recently used
+	private Object victim(){
+		Object victim = null;
+		long fewestHits = Long.MAX_VALUE;
+		for(Map.Entry<Object, Entry<T>> entry: entries.entrySet()){
+			if(policy == Policy.LRU){
+				return entry.getKey();
+			}
+			if(entry.getValue().hits < fewestHits){
+				victim = entry.getKey();
+				fewestHits = entry.getValue().hits;
+			}
+		}
+		return victim;
+	}
+	
+	public synchronized int size(){
+		return entries.size();
+	}
+	
+	public synchronized void clear(){
+		entries.clear();
+	}
+}
@@ -0,0 +1,66 @@
+package com.latte.orm.query;
+/**
+ * @author hikmatullohhari
+ */
+import java.lang.reflect.InvocationTargetException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.latte.orm.helpers.Errors;
+
+// Evaluates the criteria on demand, one candidate at a time, and stops once the limit is reached
+public class QueryIterator<T> implements Iterator<T> {
+	private final Iterator<T> candidates;
+	private final Criteria<T> criteria;
+	private final int offset;
+	private final int end;
+	private final Errors errors;
+	private int matched = 0;
+	private long scanned = 0;
+	private T next;
+	private boolean hasNext = false;
+	
+	public QueryIterator(Iterator<T> candidates, Criteria<T> criteria, int offset, int end, Errors errors){
+		this.candidates = candidates;
+		this.criteria = criteria;
+		this.offset = offset;
+		this.end = end;
+		this.errors = errors;
+	}
+	
+	public boolean hasNext() {
+		while(!hasNext && matched < end && candidates.hasNext()){
+			T r = candidates.next();
+			scanned++;
+			try {
+				if(criteria == null || criteria.matches(r)){
+					hasNext = matched >= offset;
+					next = r;
+					matched++;
+				}
+			} catch (InvocationTargetException e) {
+				errors.add(e);
+			}
+		}
+		return hasNext;
+	}
+	
+	// Records read from the model so far, including those read by the iterator of a source query
+	public long getScanned(){
+		return (candidates instanceof QueryIterator) ? ((QueryIterator<?>) candidates).getScanned() + scanned : scanned;
+	}
+	
+	public T next() {
+		if(!hasNext()){
+			throw new NoSuchElementException();
+		}
+		hasNext = false;
+		T r = next;
+		next = null;
+		return r;
+	}
+	
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+}
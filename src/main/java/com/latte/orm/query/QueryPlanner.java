@@ -0,0 +1,33 @@
+package com.latte.orm.query;
+/**
+ * @author hikmatullohhari
+ */
+import java.util.List;
+
+import com.latte.orm.index.Indexes;
+
+public class QueryPlanner {
+	// Candidates from the most selective indexed condition every match must satisfy, or null to scan every record
+	public static <T> List<T> candidates(Criteria<T> criteria, Indexes<T> indexes){
+		Condition<T> best = null;
+		int bestEstimate = -1;
+		for(Condition<T> condition: criteria.required()){
+			int estimate = condition.estimate(indexes);
+			if(estimate >= 0 && (best == null || estimate < bestEstimate)){
+				best = condition;
+				bestEstimate = estimate;
+			}
+		}
+		return (best == null) ? null : best.lookup(indexes);
+	}
+	
+	// candidates() would use an index
+	public static <T> boolean isIndexed(Criteria<T> criteria, Indexes<T> indexes){
+		for(Condition<T> condition: criteria.required()){
+			if(condition.estimate(indexes) >= 0){
+				return true;
+			}
+		}
+		return false;
+	}
+}
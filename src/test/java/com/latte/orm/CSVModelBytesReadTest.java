@@ -0,0 +1,86 @@
+package com.latte.orm;
+/**
+ * @author hikmatullohhari
+ */
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import com.latte.orm.annotations.PrimaryKey;
+import com.latte.orm.metrics.ModelMetrics;
+
+import junit.framework.TestCase;
+
+public class CSVModelBytesReadTest extends TestCase {
+	private static final int ROWS = 120000; // a few megabytes, mapped in chunks with parallel()
+	private File csv;
+	
+	public static class Row {
+		@PrimaryKey
+		private int id;
+		private String name;
+		
+		public int getId(){
+			return id;
+		}
+		
+		public void setId(int id){
+			this.id = id;
+		}
+		
+		public String getName(){
+			return name;
+		}
+		
+		public void setName(String name){
+			this.name = name;
+		}
+	}
+	
+	@Override
+	protected void setUp() throws IOException {
+		csv = File.createTempFile("latte-bytes", ".csv");
+		FileWriter writer = new FileWriter(csv);
+		try {
+			writer.write("id,name\n");
+			for(int i=0; i<ROWS; i++){
+				writer.write(i+",row number "+i+"\n");
+			}
+		} finally {
+			writer.close();
+		}
+	}
+	
+	@Override
+	protected void tearDown(){
+		csv.delete();
+	}
+	
+	// Bytes read by startMapping(), with the first limit rows only if limit > 0
+	private long bytesRead(boolean isMemoryMapped, int parallelism, int limit){
+		CSVModel<Row> model = new CSVModel<Row>(Row.class, csv.getPath()).memoryMapped(isMemoryMapped);
+		model.parallel(parallelism);
+		ModelMetrics metrics = new ModelMetrics("bytes");
+		model.metrics(metrics);
+		if(limit > 0){
+			model.filter(model.where("id", Model.Operator.NOT_EQUALS, "-1").limit(limit));
+		}
+		model.startMapping();
+		model.parallel(1);
+		assertFalse(model.getErrors().getMessages(), model.getErrors().hasErrors());
+		assertEquals((limit > 0) ? limit : ROWS, model.where("id", Model.Operator.NOT_EQUALS, "-1").toList().size());
+		return metrics.getBytesRead();
+	}
+	
+	public void testWholeFile(){
+		assertEquals(csv.length(), bytesRead(false, 1, 0));
+		assertEquals(csv.length(), bytesRead(true, 1, 0));
+		assertEquals(csv.length(), bytesRead(true, 2, 0));
+	}
+	
+	public void testLimitStopsReading(){
+		assertEquals("id,name\n".length() + 10 * "0,row number 0\n".length(), bytesRead(true, 1, 10));
+		assertTrue(bytesRead(false, 1, 10) <= 2 * 65536); // the reader reads ahead a buffer of chars
+		assertTrue(bytesRead(true, 2, 10) < 65536); // each chunk stops after 10 rows
+	}
+}
@@ -0,0 +1,95 @@
+package com.latte.orm;
+/**
+ * @author hikmatullohhari
+ */
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+
+import com.latte.orm.annotations.PrimaryKey;
+import com.latte.orm.helpers.ModelError.Kind;
+
+import junit.framework.TestCase;
+
+public class CSVModelDelimiterTest extends TestCase {
+	private File csv;
+	
+	public static class Pair {
+		@PrimaryKey
+		private int id;
+		private String name;
+		
+		public int getId(){
+			return id;
+		}
+		
+		public void setId(int id){
+			this.id = id;
+		}
+		
+		public String getName(){
+			return name;
+		}
+		
+		public void setName(String name){
+			this.name = name;
+		}
+	}
+	
+	@Override
+	protected void setUp() throws IOException {
+		csv = File.createTempFile("latte-delimiter", ".csv");
+	}
+	
+	@Override
+	protected void tearDown(){
+		csv.delete();
+	}
+	
+	private CSVModel<Pair> map(String text, String delimiter) throws IOException {
+		FileWriter writer = new FileWriter(csv);
+		try {
+			writer.write(text);
+		} finally {
+			writer.close();
+		}
+		CSVModel<Pair> model = new CSVModel<Pair>(Pair.class, csv.getPath()).delimiter(delimiter);
+		model.startMapping();
+		return model;
+	}
+	
+	private static void assertMapped(CSVModel<Pair> model, String name){
+		assertFalse(model.getErrors().getMessages(), model.getErrors().hasErrors());
+		List<Pair> pairs = model.where("id", Model.Operator.EQUALS, "1").toList();
+		assertEquals(1, pairs.size());
+		assertEquals(name, pairs.get(0).getName());
+	}
+	
+	public void testPlainText() throws IOException {
+		assertMapped(map("id|name\n1|a.b\n", "|"), "a.b");
+		assertMapped(map("id||name\n1||a|b\n", "||"), "a|b");
+		assertMapped(map("id.name\n1.a\n", "."), "a");
+	}
+	
+	// delimiter() used to take a regular expression
+	public void testEscapedRegularExpression() throws IOException {
+		assertMapped(map("id|name\n1|a.b\n", "\\|"), "a.b");
+		assertMapped(map("id\tname\n1\ta b\n", "\\t"), "a b");
+		assertMapped(map("id||name\n1||a|b\n", "\\|\\|"), "a|b");
+		assertMapped(map("id.name\n1.a\n", "\\."), "a");
+	}
+	
+	public void testOtherRegularExpressionIsRejected() throws IOException {
+		CSVModel<Pair> model = map("id;name\n1;a\n", "\\s+");
+		assertEquals(1, model.getErrors().count(Kind.USAGE));
+		model = map("id;name\n1;a\n", "a\\");
+		assertEquals(1, model.getErrors().count(Kind.USAGE));
+	}
+	
+	public void testInvalidDelimiterIsRejected() throws IOException {
+		assertEquals(1, map("id,name\n1,a\n", "").getErrors().count(Kind.USAGE));
+		assertEquals(1, map("id,name\n1,a\n", "\"").getErrors().count(Kind.USAGE));
+		assertEquals(1, map("id,name\n1,a\n", "\n").getErrors().count(Kind.USAGE));
+	}
+}
@@ -0,0 +1,192 @@
+package com.latte.orm;
+/**
+ * @author hikmatullohhari
+ */
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.latte.orm.annotations.PrimaryKey;
+
+import junit.framework.TestCase;
+
+public class CSVModelJournalTest extends TestCase {
+	private File directory;
+	private File csv;
+	private File journal;
+	private File rotated;
+	
+	public static class Item {
+		@PrimaryKey
+		private int id;
+		private String name;
+		private double price;
+		
+		public Item(){
+		}
+		
+		public Item(int id, String name, double price){
+			this.id = id;
+			this.name = name;
+			this.price = price;
+		}
+		
+		public int getId(){
+			return id;
+		}
+		
+		public void setId(int id){
+			this.id = id;
+		}
+		
+		public String getName(){
+			return name;
+		}
+		
+		public void setName(String name){
+			this.name = name;
+		}
+		
+		public double getPrice(){
+			return price;
+		}
+		
+		public void setPrice(double price){
+			this.price = price;
+		}
+	}
+	
+	@Override
+	protected void setUp() throws IOException {
+		directory = Files.createTempDirectory("latte-journal").toFile();
+		csv = new File(directory, "Item.csv");
+		journal = new File(csv.getPath() + ".journal");
+		rotated = new File(csv.getPath() + ".journal.old");
+		write(csv, "id,name,price\n1,a,1.5\n2,b,2.5\n");
+	}
+	
+	@Override
+	protected void tearDown(){
+		for(File file: directory.listFiles()){
+			file.delete();
+		}
+		directory.delete();
+	}
+	
+	private static void write(File file, String text) throws IOException {
+		FileWriter writer = new FileWriter(file);
+		try {
+			writer.write(text);
+		} finally {
+			writer.close();
+		}
+	}
+	
+	private CSVModel<Item> open(){
+		CSVModel<Item> model = new CSVModel<Item>(Item.class, csv.getPath()).journaled(false);
+		model.startMapping();
+		assertFalse(model.getErrors().getMessages(), model.getErrors().hasErrors());
+		return model;
+	}
+	
+	// Records as "id:name:price" in the model order
+	private static List<String> rows(Model<Item> model){
+		List<String> rows = new ArrayList<String>();
+		List<Item> items = model.where("id", Model.Operator.NOT_EQUALS, "0").toList();
+		for(int i=0; items != null && i<items.size(); i++){
+			Item item = items.get(i);
+			rows.add(item.getId()+":"+item.getName()+":"+item.getPrice());
+		}
+		return rows;
+	}
+	
+	private static List<String> rows(String... rows){
+		List<String> list = new ArrayList<String>();
+		for(String row: rows){
+			list.add(row);
+		}
+		return list;
+	}
+	
+	public void testSavedChangesAreReplayed(){
+		CSVModel<Item> model = open();
+		model.insert(new Item(3, "c", 3.5));
+		model.update(model.where("id", Model.Operator.EQUALS, "1").toSingle(), new Item(1, "a, \"quoted\"", 1.25));
+		model.delete(model.where("id", Model.Operator.EQUALS, "2").toSingle());
+		model.save();
+		assertTrue(journal.exists());
+		
+		List<String> expected = rows("1:a, \"quoted\":1.25", "3:c:3.5");
+		assertEquals(expected, rows(model));
+		assertEquals(expected, rows(open()));
+		assertTrue(journal.exists()); // replayed, not compacted
+	}
+	
+	public void testTornEntryIsIgnoredAndCompacted() throws IOException {
+		write(journal, "I,3,3,c,3.5,.\nU,1,1,z,9.0"); // the crash cut the last entry
+		CSVModel<Item> model = open();
+		
+		List<String> expected = rows("1:a:1.5", "2:b:2.5", "3:c:3.5");
+		assertEquals(expected, rows(model));
+		assertFalse(journal.exists());
+		assertEquals(expected, rows(open()));
+	}
+	
+	public void testClearEntryDropsEverythingBefore() throws IOException {
+		write(journal, "I,3,3,c,3.5,.\nC,,.\nI,4,4,d,4.5,.\n");
+		assertEquals(rows("4:d:4.5"), rows(open()));
+	}
+	
+	public void testDeleteAllIsReplayedAsClear(){
+		CSVModel<Item> model = open();
+		model.deleteAll(model.where("id", Model.Operator.NOT_EQUALS, "0").toList());
+		model.insert(new Item(5, "e", 5.5));
+		model.save();
+		assertEquals(rows("5:e:5.5"), rows(open()));
+	}
+	
+	// A crash after the csv file was rewritten but before the journal was deleted replays it on merged records
+	public void testReplayOfMergedJournalChangesNothing() throws IOException {
+		CSVModel<Item> model = open();
+		model.insert(new Item(3, "c", 3.5));
+		model.update(model.where("id", Model.Operator.EQUALS, "1").toSingle(), new Item(7, "g", 7.5)); // the key changes
+		model.update(model.where("id", Model.Operator.EQUALS, "3").toSingle(), new Item(3, "c2", 3.25));
+		model.save();
+		byte[] entries = Files.readAllBytes(journal.toPath());
+		model.compact();
+		assertFalse(journal.exists());
+		Files.write(journal.toPath(), entries);
+		
+		List<String> expected = rows("7:g:7.5", "2:b:2.5", "3:c2:3.25");
+		assertEquals(expected, rows(open()));
+		assertEquals(expected, rows(open())); // and once more after the journal was kept
+	}
+	
+	// A crash during a background compaction leaves the rotated journal next to the current one
+	public void testRotatedJournalIsReplayedFirstThenCompacted() throws IOException {
+		write(rotated, "I,3,3,c,3.5,.\nU,1,1,a2,1.0,.\n");
+		write(journal, "U,3,3,c2,3.0,.\nD,2,.\n");
+		CSVModel<Item> model = open();
+		
+		List<String> expected = rows("1:a2:1.0", "3:c2:3.0");
+		assertEquals(expected, rows(model));
+		assertFalse(rotated.exists());
+		assertFalse(journal.exists());
+		assertEquals(expected, rows(open()));
+	}
+	
+	public void testBackgroundCompactionKeepsJournaling(){
+		CSVModel<Item> model = new CSVModel<Item>(Item.class, csv.getPath()).journaled(false).compactAfter(1);
+		model.startMapping();
+		model.insert(new Item(3, "c", 3.5));
+		model.save(); // rotates and compacts on another thread
+		model.insert(new Item(4, "d", 4.5));
+		model.compact();
+		assertFalse(model.getErrors().getMessages(), model.getErrors().hasErrors());
+		assertFalse(rotated.exists());
+		assertEquals(rows("1:a:1.5", "2:b:2.5", "3:c:3.5", "4:d:4.5"), rows(open()));
+	}
+}
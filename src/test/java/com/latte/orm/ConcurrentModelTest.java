@@ -0,0 +1,197 @@
+package com.latte.orm;
+/**
+ * @author hikmatullohhari
+ */
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.latte.orm.annotations.Indexed;
+import com.latte.orm.annotations.PrimaryKey;
+import com.latte.orm.metrics.Metrics;
+import com.latte.orm.metrics.Operation;
+
+import junit.framework.TestCase;
+
+public class ConcurrentModelTest extends TestCase {
+	private static final int SIZE = 3000; // about three chunks of records
+	
+	public static class Item {
+		@PrimaryKey
+		private int id;
+		@Indexed
+		private String category;
+		@Indexed
+		private int rank;
+		
+		public Item(){
+		}
+		
+		public Item(int id, String category, int rank){
+			this.id = id;
+			this.category = category;
+			this.rank = rank;
+		}
+		
+		public int getId(){
+			return id;
+		}
+		
+		public void setId(int id){
+			this.id = id;
+		}
+		
+		public String getCategory(){
+			return category;
+		}
+		
+		public void setCategory(String category){
+			this.category = category;
+		}
+		
+		public int getRank(){
+			return rank;
+		}
+		
+		public void setRank(int rank){
+			this.rank = rank;
+		}
+	}
+	
+	private List<Item> items;
+	private ConcurrentModel<Item> model;
+	private final AtomicInteger indexHits = new AtomicInteger();
+	
+	@Override
+	protected void setUp(){
+		items = new ArrayList<Item>();
+		for(int i=0; i<SIZE; i++){
+			items.add(new Item(i, "c" + (i % 10), i));
+		}
+		model = new ConcurrentModel<Item>(new GenericModel<Item>(Item.class, items));
+		model.metrics(new Metrics() {
+			public void timed(Operation operation, long nanos) {
+			}
+			
+			public void rows(long scanned, long returned) {
+			}
+			
+			public void index(boolean isHit) {
+				if(isHit){
+					indexHits.incrementAndGet();
+				}
+			}
+			
+			public void cache(boolean isHit) {
+			}
+			
+			public void bytesRead(long bytes) {
+			}
+			
+			public void bytesWritten(long bytes) {
+			}
+		});
+	}
+	
+	private static List<Item> all(Model<Item> model){
+		List<Item> all = model.where("id", Model.Operator.NOT_EQUALS, "-1").toList();
+		return (all == null) ? new ArrayList<Item>() : all;
+	}
+	
+	private static int count(Model<Item> model, String columnName, Model.Operator operator, String value){
+		List<Item> matches = model.where(columnName, operator, value).toList();
+		return (matches == null) ? 0 : matches.size();
+	}
+	
+	private static Item byId(Model<Item> model, int id){
+		return model.where("id", Model.Operator.EQUALS, String.valueOf(id)).toSingle();
+	}
+	
+	// Records and indexed matches of the model as it was built in setUp()
+	private void assertUnchanged(Model<Item> old){
+		int hits = indexHits.get();
+		List<Item> records = all(old);
+		assertEquals(SIZE, records.size());
+		for(int i=0; i<SIZE; i++){
+			assertSame(items.get(i), records.get(i));
+		}
+		assertSame(items.get(10), byId(old, 10));
+		assertSame(items.get(2000), byId(old, 2000));
+		assertNull(byId(old, SIZE));
+		assertEquals(SIZE / 10, count(old, "category", Model.Operator.EQUALS, "c0"));
+		assertEquals(0, count(old, "category", Model.Operator.EQUALS, "moved"));
+		assertEquals(SIZE / 10, count(old, "category", Model.Operator.IN, "c3"));
+		assertEquals(11, count(old, "rank", Model.Operator.BETWEEN, "1020 and 1030"));
+		assertEquals(0, count(old, "rank", Model.Operator.BETWEEN, "100000 and 100001"));
+		assertEquals("every query but the first read an index", 8, indexHits.get() - hits);
+	}
+	
+	public void testSnapshotIsolation(){
+		GenericModel<Item> old = model.snapshot();
+		Iterator<Item> started = model.where("id", Model.Operator.NOT_EQUALS, "-1").toIterator();
+		assertUnchanged(old);
+		
+		Item inserted = new Item(SIZE, "moved", 100000);
+		model.insert(inserted);
+		Item moved = new Item(10, "moved", 100001);
+		model.update(items.get(10), moved);
+		model.delete(items.get(1000)); // the records after it move across the chunk boundary
+		model.delete(items.get(2000));
+		Item renamed = new Item(1031, "c0", 1025);
+		model.update(items.get(1031), renamed);
+		
+		assertUnchanged(old);
+		for(int i=0; i<SIZE; i++){
+			assertSame(items.get(i), started.next());
+		}
+		assertFalse(started.hasNext());
+		
+		List<Item> records = all(model);
+		assertEquals(SIZE - 1, records.size());
+		assertSame(moved, records.get(10));
+		assertSame(items.get(1001), records.get(1000));
+		assertSame(renamed, records.get(1030));
+		assertSame(inserted, records.get(SIZE - 2));
+		assertSame(moved, byId(model, 10));
+		assertNull(byId(model, 1000));
+		assertNull(byId(model, 2000));
+		assertSame(inserted, byId(model, SIZE));
+		assertEquals(2, count(model, "category", Model.Operator.EQUALS, "moved"));
+		assertEquals(SIZE / 10 - 3 + 1, count(model, "category", Model.Operator.EQUALS, "c0")); // 10, 1000 and 2000 left, 1031 came
+		assertEquals(12, count(model, "rank", Model.Operator.BETWEEN, "1020 and 1030"));
+		assertEquals(2, count(model, "rank", Model.Operator.BETWEEN, "100000 and 100001"));
+	}
+	
+	public void testEverySnapshotKeepsItsVersion(){
+		List<GenericModel<Item>> snapshots = new ArrayList<GenericModel<Item>>();
+		for(int i=0; i<5; i++){
+			snapshots.add(model.snapshot());
+			model.delete(items.get(i * 600)); // a record of a different chunk each time
+			model.insert(new Item(SIZE + i, "new", SIZE + i));
+		}
+		for(int i=0; i<snapshots.size(); i++){
+			GenericModel<Item> snapshot = snapshots.get(i);
+			assertEquals(SIZE, all(snapshot).size());
+			for(int j=0; j<5; j++){
+				assertEquals("snapshot "+i+", record "+(j * 600), j >= i, byId(snapshot, j * 600) != null);
+				assertEquals("snapshot "+i+", record "+(SIZE + j), j < i, byId(snapshot, SIZE + j) != null);
+			}
+			assertEquals(SIZE / 10 - i, count(snapshot, "category", Model.Operator.EQUALS, "c0"));
+			assertEquals(i, count(snapshot, "category", Model.Operator.EQUALS, "new"));
+		}
+	}
+	
+	public void testColumnarSnapshotIsolation(){
+		ConcurrentModel<Item> columnar = new ConcurrentModel<Item>(new ColumnarModel<Item>(Item.class, items));
+		GenericModel<Item> old = columnar.snapshot();
+		columnar.insert(new Item(SIZE, "moved", 100000));
+		columnar.delete(byId(columnar, 2000));
+		assertEquals(SIZE, all(old).size());
+		assertNotNull(byId(old, 2000));
+		assertEquals(0, count(old, "category", Model.Operator.EQUALS, "moved"));
+		assertEquals(SIZE, all(columnar).size());
+		assertNull(byId(columnar, 2000));
+		assertEquals(1, count(columnar, "category", Model.Operator.EQUALS, "moved"));
+	}
+}
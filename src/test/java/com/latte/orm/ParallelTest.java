@@ -0,0 +1,85 @@
+package com.latte.orm;
+/**
+ * @author hikmatullohhari
+ */
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import com.latte.orm.annotations.PrimaryKey;
+
+import junit.framework.TestCase;
+
+public class ParallelTest extends TestCase {
+	private static final int SIZE = 20000; // enough records for a parallel scan
+	
+	public static class Item {
+		@PrimaryKey
+		private int id;
+		
+		public Item(){
+		}
+		
+		public Item(int id){
+			this.id = id;
+		}
+		
+		public int getId(){
+			return id;
+		}
+		
+		public void setId(int id){
+			this.id = id;
+		}
+	}
+	
+	private static List<Item> items(){
+		List<Item> items = new ArrayList<Item>();
+		for(int i=0; i<SIZE; i++){
+			items.add(new Item(i));
+		}
+		return items;
+	}
+	
+	private static int countAll(GenericModel<Item> model){
+		return model.where("id", Model.Operator.NOT_EQUALS, "-1").toList().size();
+	}
+	
+	public void testOwnPoolIsShutDownWhenReplaced(){
+		GenericModel<Item> model = new GenericModel<Item>(Item.class, items()).parallel(2);
+		ForkJoinPool first = model.pool;
+		assertEquals(SIZE, countAll(model));
+		
+		model.parallel(4);
+		assertTrue(first.isShutdown());
+		ForkJoinPool second = model.pool;
+		assertEquals(4, second.getParallelism());
+		
+		model.parallel(1);
+		assertTrue(second.isShutdown());
+		assertNull(model.pool);
+		assertEquals(SIZE, countAll(model));
+		
+		model.parallel(2);
+		ForkJoinPool third = model.pool;
+		ForkJoinPool shared = new ForkJoinPool(2);
+		model.parallel(shared);
+		assertTrue(third.isShutdown());
+		model.parallel(1);
+		assertFalse("a pool given by the caller is left running", shared.isShutdown());
+		shared.shutdown();
+	}
+	
+	public void testSnapshotKeepsScanningAfterShutdown(){
+		ConcurrentModel<Item> model = new ConcurrentModel<Item>(new GenericModel<Item>(Item.class, items()));
+		model.parallel(2);
+		GenericModel<Item> old = model.snapshot();
+		ForkJoinPool pool = old.pool;
+		assertNotNull(pool);
+		model.parallel(1);
+		assertTrue(pool.isShutdown());
+		assertEquals(SIZE, countAll(old));
+		assertFalse(old.getErrors().getMessages(), old.getErrors().hasErrors());
+		assertEquals(SIZE, countAll(model));
+	}
+}
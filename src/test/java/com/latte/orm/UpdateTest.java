@@ -0,0 +1,90 @@
+package com.latte.orm;
+/**
+ * @author hikmatullohhari
+ */
+import java.util.ArrayList;
+import java.util.List;
+
+import com.latte.orm.annotations.Indexed;
+import com.latte.orm.annotations.PrimaryKey;
+
+import junit.framework.TestCase;
+
+public class UpdateTest extends TestCase {
+	
+	// Equal by name, so several records can be equal to the one given to update()
+	public static class Tag {
+		@PrimaryKey
+		private int id;
+		@Indexed
+		private String name;
+		
+		public Tag(){
+		}
+		
+		public Tag(int id, String name){
+			this.id = id;
+			this.name = name;
+		}
+		
+		public int getId(){
+			return id;
+		}
+		
+		public void setId(int id){
+			this.id = id;
+		}
+		
+		public String getName(){
+			return name;
+		}
+		
+		public void setName(String name){
+			this.name = name;
+		}
+		
+		@Override
+		public boolean equals(Object o){
+			return o instanceof Tag && name.equals(((Tag) o).name);
+		}
+		
+		@Override
+		public int hashCode(){
+			return name.hashCode();
+		}
+	}
+	
+	private static int size(List<Tag> tags){
+		return (tags == null) ? 0 : tags.size();
+	}
+	
+	// Indexed matches of the name, then the same from a scan of every record
+	private static void assertConsistent(Model<Tag> model, String name, int expected){
+		assertEquals(expected, size(model.where("name", Model.Operator.EQUALS, name).toList()));
+		int scanned = 0;
+		for(Tag tag: model.where("id", Model.Operator.NOT_EQUALS, "-1").toList()){
+			if(tag.getName().equals(name)){
+				scanned++;
+			}
+		}
+		assertEquals(expected, scanned);
+	}
+	
+	private static List<Tag> tags(){
+		List<Tag> tags = new ArrayList<Tag>();
+		tags.add(new Tag(1, "a"));
+		tags.add(new Tag(2, "a"));
+		return tags;
+	}
+	
+	public void testOnlyTheFirstEqualRecordIsReplaced(){
+		Model<Tag> model = new GenericModel<Tag>(Tag.class, tags());
+		model.update(new Tag(0, "a"), new Tag(3, "b"));
+		assertFalse(model.getErrors().getMessages(), model.getErrors().hasErrors());
+		assertConsistent(model, "b", 1);
+		assertConsistent(model, "a", 1);
+		assertNull(model.where("id", Model.Operator.EQUALS, "1").toSingle());
+		assertEquals("a", model.where("id", Model.Operator.EQUALS, "2").toSingle().getName());
+		assertEquals("b", model.where("id", Model.Operator.EQUALS, "3").toSingle().getName());
+	}
+}
@@ -0,0 +1,138 @@
+package com.latte.orm.binary;
+/**
+ * @author hikmatullohhari
+ */
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.latte.orm.BinaryModel;
+import com.latte.orm.ColumnarModel;
+import com.latte.orm.GenericModel;
+import com.latte.orm.Model;
+import com.latte.orm.annotations.PrimaryKey;
+import com.latte.orm.helpers.ModelError.Kind;
+
+import junit.framework.TestCase;
+
+public class BinaryFileTest extends TestCase {
+	private File bin;
+	
+	public static class Item {
+		@PrimaryKey
+		private int id;
+		private String name;
+		private Double price;
+		
+		public Item(){
+		}
+		
+		public Item(int id, String name, Double price){
+			this.id = id;
+			this.name = name;
+			this.price = price;
+		}
+		
+		public int getId(){
+			return id;
+		}
+		
+		public void setId(int id){
+			this.id = id;
+		}
+		
+		public String getName(){
+			return name;
+		}
+		
+		public void setName(String name){
+			this.name = name;
+		}
+		
+		public Double getPrice(){
+			return price;
+		}
+		
+		public void setPrice(Double price){
+			this.price = price;
+		}
+	}
+	
+	@Override
+	protected void setUp() throws IOException {
+		bin = File.createTempFile("latte-binary", ".bin");
+	}
+	
+	@Override
+	protected void tearDown(){
+		bin.delete();
+	}
+	
+	private static List<ColumnBlock> blocks(){
+		return Arrays.asList(
+				ColumnBlock.of("id", ColumnType.INT, BinaryFile.PRIMARY_KEY, 3, null, new int[] { 1, 2, 3 }, null, null, null, null),
+				ColumnBlock.of("name", ColumnType.STRING, 0, 3, new boolean[] { false, true, false }, null, null, null, new String[] { "a", "b" }, new int[] { 0, 0, 1 }));
+	}
+	
+	private void assertUnreadable(byte[] bytes) throws IOException {
+		Files.write(bin.toPath(), bytes);
+		try {
+			BinaryFile.read(bin);
+			fail("read "+bytes.length+" bytes");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+	
+	public void testEveryTruncationIsAnIOException() throws IOException {
+		for(boolean isCompressed: new boolean[] { false, true }){
+			BinaryFile.write(bin, blocks(), 3, isCompressed);
+			byte[] bytes = Files.readAllBytes(bin.toPath());
+			assertEquals(2, BinaryFile.read(bin).size());
+			for(int length=0; length<bytes.length; length++){
+				assertUnreadable(Arrays.copyOf(bytes, length));
+			}
+		}
+	}
+	
+	public void testCorruptHeaderIsAnIOException() throws IOException {
+		BinaryFile.write(bin, blocks(), 3, false);
+		byte[] bytes = Files.readAllBytes(bin.toPath());
+		
+		byte[] rowCount = bytes.clone();
+		rowCount[5] = (byte) 0x80; // negative
+		assertUnreadable(rowCount);
+		
+		byte[] type = bytes.clone();
+		type[11 + 2 + 2] = 42; // after the column count and the name "id"
+		assertUnreadable(type);
+		
+		byte[] length = bytes.clone();
+		int firstBlock = 11 + (2 + 2 + 2) + (2 + 4 + 2);
+		length[firstBlock + 5] = (byte) 0x7F; // stored length past the end of the file
+		assertUnreadable(length);
+	}
+	
+	public void testTruncatedFileIsAMappingError() throws IOException {
+		List<Item> items = new ArrayList<Item>();
+		for(int i=1; i<=100; i++){
+			items.add(new Item(i, "item " + (i % 7), (i % 3 == 0) ? null : i * 1.5));
+		}
+		new GenericModel<Item>(Item.class, items).exportToBinary(bin.getPath());
+		byte[] bytes = Files.readAllBytes(bin.toPath());
+		assertEquals(100, new BinaryModel<Item>(Item.class, bin.getPath()).startMapping().where("id", Model.Operator.NOT_EQUALS, "0").toList().size());
+		Files.write(bin.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+		
+		BinaryModel<Item> model = new BinaryModel<Item>(Item.class, bin.getPath());
+		model.startMapping();
+		assertEquals(1, model.getErrors().count(Kind.FILE));
+		assertNull(model.where("id", Model.Operator.NOT_EQUALS, "0").toList());
+		
+		ColumnarModel<Item> columnar = new ColumnarModel<Item>(Item.class, bin.getPath());
+		columnar.startMapping();
+		assertEquals(1, columnar.getErrors().count(Kind.FILE));
+	}
+}
@@ -0,0 +1,108 @@
+package com.latte.orm.binary;
+/**
+ * @author hikmatullohhari
+ */
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class ColumnBlockTest extends TestCase {
+	
+	private static ColumnBlock roundTrip(ColumnBlock block){
+		byte[] encoded = block.encode();
+		ByteBuffer buffer = ByteBuffer.wrap(encoded);
+		ColumnBlock decoded = ColumnBlock.decode(block.getName(), block.getType(), block.getFlags(), block.size(), buffer);
+		assertEquals("every byte is read", encoded.length, buffer.position());
+		assertEquals(block.getName(), decoded.getName());
+		assertEquals(block.getFlags(), decoded.getFlags());
+		assertEquals(block.size(), decoded.size());
+		for(int row=0; row<block.size(); row++){
+			assertEquals("row "+row, block.isNull(row), decoded.isNull(row));
+			assertEquals("row "+row, block.get(row), decoded.get(row));
+		}
+		return decoded;
+	}
+	
+	private static String[] strings(String[] dictionary, int[] codes, boolean[] nulls){
+		String[] values = new String[codes.length];
+		for(int row=0; row<codes.length; row++){
+			values[row] = (nulls != null && nulls[row]) ? null : dictionary[codes[row]];
+		}
+		return values;
+	}
+	
+	public void testIntsWithNulls(){
+		boolean[] nulls = { false, true, false, false };
+		int[] ints = { 7, 0, Integer.MIN_VALUE, Integer.MAX_VALUE };
+		ColumnBlock decoded = roundTrip(ColumnBlock.of("id", ColumnType.INT, BinaryFile.PRIMARY_KEY, 4, nulls, ints, null, null, null, null));
+		assertTrue(Arrays.equals(ints, decoded.getInts()));
+	}
+	
+	public void testIntsWithoutNulls(){
+		int[] ints = { 1, 0, 1 };
+		ColumnBlock decoded = roundTrip(ColumnBlock.of("isActive", ColumnType.BOOLEAN, 0, 3, null, ints, null, null, null, null));
+		assertNull(decoded.getNulls());
+		assertEquals(Boolean.TRUE, decoded.get(0));
+		assertEquals(Boolean.FALSE, decoded.get(1));
+	}
+	
+	public void testLongsAndDoublesWithNulls(){
+		boolean[] nulls = { true, false, false };
+		roundTrip(ColumnBlock.of("total", ColumnType.LONG, 0, 3, nulls, null, new long[] { 0, Long.MIN_VALUE, -1 }, null, null, null));
+		roundTrip(ColumnBlock.of("price", ColumnType.DOUBLE, 0, 3, nulls, null, null, new double[] { 0, -0.5, Double.NaN }, null, null));
+	}
+	
+	public void testRepeatedStringsShareTheDictionary(){
+		boolean[] nulls = { false, false, true, false, false };
+		String[] dictionary = { "a", "b" };
+		int[] codes = { 0, 1, 0, 0, 1 };
+		ColumnBlock decoded = roundTrip(ColumnBlock.of("name", ColumnType.STRING, 0, 5, nulls, null, null, null, dictionary, codes));
+		assertTrue(Arrays.equals(dictionary, decoded.getDictionary()));
+		assertTrue(Arrays.equals(strings(dictionary, codes, nulls), strings(decoded.getDictionary(), decoded.getCodes(), decoded.getNulls())));
+	}
+	
+	// Width 0: no code is written, the dictionary holds the values in rows order
+	public void testDistinctStringsWithoutCodes(){
+		StringBuilder longValue = new StringBuilder();
+		for(int i=0; i<300; i++){
+			longValue.append('x'); // a length of two varint bytes
+		}
+		String[] dictionary = { "", "café 日本", longValue.toString() };
+		int[] codes = { 0, 1, 2 };
+		ColumnBlock block = ColumnBlock.of("name", ColumnType.STRING, 0, 3, null, null, null, null, dictionary, codes);
+		ColumnBlock decoded = roundTrip(block);
+		assertTrue(Arrays.equals(codes, decoded.getCodes()));
+		
+		ColumnBlock distinct = ColumnBlock.of("name", ColumnType.STRING, 0, 3, null, null, null, null, new String[] { "a", "b", "c" }, new int[] { 0, 1, 2 });
+		assertEquals(1 + 4 + 3 * 2 + 1, distinct.encode().length); // null flag, dictionary, width and no code
+	}
+	
+	public void testDistinctStringsWithNulls(){
+		boolean[] nulls = { true, false, true, false };
+		String[] dictionary = { "a", "b" };
+		int[] codes = { 0, 0, 0, 1 };
+		ColumnBlock decoded = roundTrip(ColumnBlock.of("name", ColumnType.STRING, 0, 4, nulls, null, null, null, dictionary, codes));
+		assertEquals("a", decoded.get(1));
+		assertEquals("b", decoded.get(3));
+	}
+	
+	public void testEveryValueNull(){
+		boolean[] nulls = { true, true };
+		roundTrip(ColumnBlock.of("name", ColumnType.STRING, 0, 2, nulls, null, null, null, new String[0], new int[2]));
+	}
+	
+	public void testTwoBytesCodes(){
+		int size = 1000;
+		String[] dictionary = new String[300];
+		for(int i=0; i<dictionary.length; i++){
+			dictionary[i] = "value " + i;
+		}
+		int[] codes = new int[size];
+		for(int row=0; row<size; row++){
+			codes[row] = (row < dictionary.length) ? row : (row * 7) % dictionary.length;
+		}
+		ColumnBlock decoded = roundTrip(ColumnBlock.of("name", ColumnType.STRING, 0, size, null, null, null, null, dictionary, codes));
+		assertTrue(Arrays.equals(codes, decoded.getCodes()));
+	}
+}
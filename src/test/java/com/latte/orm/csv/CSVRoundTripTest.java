@@ -0,0 +1,101 @@
+package com.latte.orm.csv;
+/**
+ * @author hikmatullohhari
+ */
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class CSVRoundTripTest extends TestCase {
+	private static final String[][] RECORDS = {
+		{ "id", "name", "note" },
+		{ "1", "plain", "" },
+		{ "2", "He said \"hi\"", "\"" },
+		{ "3", "line\r\nbreak", "line\nbreak\rand cr" },
+		{ "4", "a,b;c", "||::\t|" },
+		{ "5", "a|", ":" },
+		{ "6", "|", "b:" },
+		{ "7", " spaced ", "\"\"" },
+		{ "" },
+		{ "8", "", "" },
+	};
+	
+	private static String write(String delimiter, String[][] records) throws IOException {
+		StringWriter text = new StringWriter();
+		CSVWriter writer = new CSVWriter(text, delimiter);
+		for(String[] record: records){
+			writer.writeRecord(record);
+		}
+		writer.flush();
+		return text.toString();
+	}
+	
+	private static List<List<String>> read(String delimiter, String text) throws IOException {
+		List<List<String>> records = new ArrayList<List<String>>();
+		CSVTokenizer tokenizer = new CSVTokenizer(new StringReader(text), delimiter);
+		while(tokenizer.next()){
+			records.add(Arrays.asList(tokenizer.getFields()));
+		}
+		tokenizer.close();
+		return records;
+	}
+	
+	private static List<List<String>> records(String[]... records){
+		List<List<String>> list = new ArrayList<List<String>>();
+		for(String[] record: records){
+			list.add(Arrays.asList(record));
+		}
+		return list;
+	}
+	
+	private static void assertRoundTrip(String delimiter) throws IOException {
+		String text = write(delimiter, RECORDS);
+		assertEquals("delimiter "+delimiter+" in\n"+text, records(RECORDS), read(delimiter, text));
+	}
+	
+	public void testSingleCharDelimiters() throws IOException {
+		assertRoundTrip(",");
+		assertRoundTrip(";");
+		assertRoundTrip("|");
+		assertRoundTrip("\t");
+	}
+	
+	public void testMultiCharDelimiters() throws IOException {
+		assertRoundTrip("||");
+		assertRoundTrip("::");
+		assertRoundTrip("<->");
+		assertRoundTrip("|:|");
+	}
+	
+	public void testQuotedFields() throws IOException {
+		assertEquals(records(new String[] { "a,b", "say \"hi\"", "" }, new String[] { "x", "" }), read(",", "\"a,b\",\"say \"\"hi\"\"\",\"\"\nx,\n"));
+		assertEquals(records(new String[] { "abc" }), read(",", "\"ab\"c\n")); // text after a closing quote is kept
+	}
+	
+	public void testLineEndings() throws IOException {
+		String[][] expected = { { "a", "b" }, { "c", "d" }, { "e", "f" } };
+		assertEquals(records(expected), read(",", "a,b\r\nc,d\r\ne,f\r\n"));
+		assertEquals(records(expected), read(",", "a,b\rc,d\ne,f"));
+		assertEquals(records(expected), read(",", "\r\na,b\r\n\r\nc,d\n\ne,f\r\n")); // blank lines are skipped
+		assertEquals(records(new String[] { "multi\r\nline", "x" }), read(",", "\"multi\r\nline\",x\r\n"));
+	}
+	
+	public void testMultiCharDelimiterPrefixes() throws IOException {
+		assertEquals(records(new String[] { "a|b", "c", "|d" }), read("||", "a|b||c|||d\n"));
+		assertEquals(records(new String[] { "a", "b", "" }), read("::", "a::b::\n"));
+	}
+	
+	public void testLongFieldsAcrossBuffers() throws IOException {
+		StringBuilder value = new StringBuilder();
+		for(int i=0; i<100000; i++){
+			value.append((i % 1000 == 999) ? "\"\r\n|" : "x");
+		}
+		String[][] records = { { value.toString(), "end" }, { "next", value.toString() } };
+		assertEquals(records(records), read("||", write("||", records)));
+	}
+}
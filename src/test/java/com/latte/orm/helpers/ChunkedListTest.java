@@ -0,0 +1,73 @@
+package com.latte.orm.helpers;
+/**
+ * @author hikmatullohhari
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class ChunkedListTest extends TestCase {
+	
+	// Random changes on a list and its copies, each checked against an ArrayList copied at the same time
+	public void testCopiesAreIndependent(){
+		Random random = new Random(42);
+		List<ChunkedList<Integer>> lists = new ArrayList<ChunkedList<Integer>>();
+		List<List<Integer>> expected = new ArrayList<List<Integer>>();
+		lists.add(new ChunkedList<Integer>());
+		expected.add(new ArrayList<Integer>());
+		for(int step=0; step<20000; step++){
+			int i = random.nextInt(lists.size());
+			ChunkedList<Integer> list = lists.get(i);
+			List<Integer> reference = expected.get(i);
+			int operation = random.nextInt(10);
+			if(operation < 5 || reference.isEmpty()){
+				list.add(step);
+				reference.add(step);
+			} else if(operation < 7){
+				int index = random.nextInt(reference.size());
+				assertEquals(reference.set(index, -step), list.set(index, -step));
+			} else if(operation < 9){
+				int index = random.nextInt(reference.size());
+				assertEquals(reference.remove(index), list.remove(index));
+			} else if(lists.size() < 8){
+				lists.add(list.copy());
+				expected.add(new ArrayList<Integer>(reference));
+			}
+		}
+		for(int i=0; i<lists.size(); i++){
+			assertEquals(expected.get(i), lists.get(i));
+			assertEquals(expected.get(i), new ArrayList<Integer>(lists.get(i))); // through the iterator
+		}
+	}
+	
+	public void testRemoveAcrossChunks(){
+		ChunkedList<Integer> list = new ChunkedList<Integer>();
+		for(int i=0; i<3000; i++){
+			list.add(i);
+		}
+		ChunkedList<Integer> copy = list.copy();
+		for(int i=0; i<1024; i++){
+			list.remove(0); // empties the first chunk
+		}
+		assertEquals(Integer.valueOf(1024), list.get(0));
+		assertEquals(Integer.valueOf(2999), list.get(list.size() - 1));
+		list.removeAll(Arrays.asList(1024, 2048, 2999));
+		assertEquals(3000 - 1024 - 3, list.size());
+		for(Iterator<Integer> it = list.iterator(); it.hasNext();){
+			if(it.next() % 2 == 0){
+				it.remove();
+			}
+		}
+		for(int value: list){
+			assertTrue(value % 2 == 1);
+		}
+		assertEquals(3000, copy.size());
+		for(int i=0; i<3000; i++){
+			assertEquals(Integer.valueOf(i), copy.get(i));
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.latte.orm.index;
+/**
+ * @author hikmatullohhari
+ */
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+public class CowMapTest extends TestCase {
+	
+	// Random puts and removes on a map and its copies, each checked against a HashMap copied at the same time
+	public void testCowMapCopiesAreIndependent(){
+		Random random = new Random(7);
+		List<CowMap<Integer, Integer>> maps = new ArrayList<CowMap<Integer, Integer>>();
+		List<Map<Integer, Integer>> expected = new ArrayList<Map<Integer, Integer>>();
+		maps.add(new CowMap<Integer, Integer>(false));
+		expected.add(new HashMap<Integer, Integer>());
+		for(int step=0; step<50000; step++){
+			int i = random.nextInt(maps.size());
+			int key = random.nextInt(8000); // enough keys for several segments
+			if(random.nextInt(4) != 0){
+				assertEquals(expected.get(i).put(key, step), maps.get(i).put(key, step));
+			} else {
+				assertEquals(expected.get(i).remove(key), maps.get(i).remove(key));
+			}
+			if(step % 5000 == 0 && maps.size() < 6){
+				maps.add(maps.get(i).copy());
+				expected.add(new HashMap<Integer, Integer>(expected.get(i)));
+			}
+		}
+		for(int i=0; i<maps.size(); i++){
+			CowMap<Integer, Integer> map = maps.get(i);
+			assertEquals(expected.get(i).size(), map.size());
+			for(Map.Entry<Integer, Integer> entry: expected.get(i).entrySet()){
+				assertEquals(entry.getValue(), map.get(entry.getKey()));
+			}
+			assertEquals(expected.get(i).size(), map.keys().size());
+		}
+	}
+	
+	public void testCowSortedMapCopiesAreIndependent(){
+		Random random = new Random(11);
+		List<CowSortedMap<Integer, Integer>> maps = new ArrayList<CowSortedMap<Integer, Integer>>();
+		List<TreeMap<Integer, Integer>> expected = new ArrayList<TreeMap<Integer, Integer>>();
+		maps.add(new CowSortedMap<Integer, Integer>());
+		expected.add(new TreeMap<Integer, Integer>());
+		for(int step=0; step<50000; step++){
+			int i = random.nextInt(maps.size());
+			int key = random.nextInt(8000); // enough keys for several chunks
+			if(random.nextInt(4) != 0){
+				assertEquals(expected.get(i).put(key, step), maps.get(i).put(key, step));
+			} else {
+				assertEquals(expected.get(i).remove(key), maps.get(i).remove(key));
+			}
+			if(step % 5000 == 0 && maps.size() < 6){
+				maps.add(maps.get(i).copy());
+				expected.add(new TreeMap<Integer, Integer>(expected.get(i)));
+			}
+		}
+		for(int i=0; i<maps.size(); i++){
+			CowSortedMap<Integer, Integer> map = maps.get(i);
+			TreeMap<Integer, Integer> reference = expected.get(i);
+			assertEquals(new ArrayList<Integer>(reference.values()), map.values(null, null));
+			assertEquals(new ArrayList<Integer>(reference.subMap(1000, true, 3000, true).values()), map.values(1000, 3000));
+			assertEquals(new ArrayList<Integer>(reference.headMap(500, true).values()), map.values(null, 500));
+			assertEquals(new ArrayList<Integer>(reference.tailMap(7500, true).values()), map.values(7500, null));
+			List<Integer> descending = new ArrayList<Integer>();
+			for(Iterator<Integer> it = map.iterator(true); it.hasNext();){
+				descending.add(it.next());
+			}
+			assertEquals(new ArrayList<Integer>(reference.descendingMap().values()), descending);
+		}
+	}
+}